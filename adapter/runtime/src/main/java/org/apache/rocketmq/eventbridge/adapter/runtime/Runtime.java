@@ -20,15 +20,18 @@ package org.apache.rocketmq.eventbridge.adapter.runtime;
 import org.apache.rocketmq.eventbridge.adapter.runtime.boot.EventBusListener;
 import org.apache.rocketmq.eventbridge.adapter.runtime.boot.EventRuleTransfer;
 import org.apache.rocketmq.eventbridge.adapter.runtime.boot.EventTargetTrigger;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.FusedPipeline;
 import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.CirculatorContext;
 import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.OffsetManager;
 import org.apache.rocketmq.eventbridge.adapter.runtime.boot.listener.EventSubscriber;
 import org.apache.rocketmq.eventbridge.adapter.runtime.common.RuntimeState;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.enums.PipelineModeEnum;
 import org.apache.rocketmq.eventbridge.adapter.runtime.error.ErrorHandler;
 import org.apache.rocketmq.eventbridge.adapter.runtime.service.TargetRunnerConfigObserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import org.apache.rocketmq.eventbridge.adapter.runtime.boot.hook.StartAndShutdown;
@@ -60,18 +63,37 @@ public class Runtime {
     @Autowired
     private ErrorHandler errorHandler;
 
+    @Value("${runtime.transfer.runnerParallelism:0}")
+    private int transferRunnerParallelism;
+
+    @Value("${runtime.pipeline.mode:STAGED}")
+    private String pipelineMode;
+
     @PostConstruct
     public void initAndStart() throws Exception {
         LOGGER.info("Start init runtime.");
+        circulatorContext.registerDiscardedRecordsHandler(offsetManager::commit);
         circulatorContext.initCirculatorContext(runnerConfigObserver.getTargetRunnerConfig());
         runnerConfigObserver.registerListener(circulatorContext);
         runnerConfigObserver.registerListener(eventSubscriber);
-        EventBusListener eventBusListener = new EventBusListener(circulatorContext, eventSubscriber, errorHandler);
-        EventRuleTransfer eventRuleTransfer = new EventRuleTransfer(circulatorContext, offsetManager, errorHandler);
-        EventTargetTrigger eventTargetPusher = new EventTargetTrigger(circulatorContext, offsetManager, errorHandler);
-        RUNTIME_START_AND_SHUTDOWN.appendStartAndShutdown(eventBusListener);
-        RUNTIME_START_AND_SHUTDOWN.appendStartAndShutdown(eventRuleTransfer);
-        RUNTIME_START_AND_SHUTDOWN.appendStartAndShutdown(eventTargetPusher);
+        if (PipelineModeEnum.parse(pipelineMode) == PipelineModeEnum.FUSED) {
+            if (!eventSubscriber.supportsRunnerPull()) {
+                throw new IllegalStateException(eventSubscriber.getClass().getSimpleName()
+                    + " does not support pulling by runner, set runtime.pipeline.mode to STAGED.");
+            }
+            FusedPipeline fusedPipeline = new FusedPipeline(circulatorContext, eventSubscriber, offsetManager, errorHandler);
+            runnerConfigObserver.registerListener(fusedPipeline);
+            RUNTIME_START_AND_SHUTDOWN.appendStartAndShutdown(fusedPipeline);
+        } else {
+            EventBusListener eventBusListener = new EventBusListener(circulatorContext, eventSubscriber, errorHandler);
+            EventRuleTransfer eventRuleTransfer = new EventRuleTransfer(circulatorContext, offsetManager, errorHandler, transferRunnerParallelism);
+            EventTargetTrigger eventTargetPusher = new EventTargetTrigger(circulatorContext, offsetManager, errorHandler);
+            circulatorContext.registerEventRecordsSignal(eventRuleTransfer::wakeup);
+            circulatorContext.registerTargetRecordsSignal(eventTargetPusher::wakeup);
+            RUNTIME_START_AND_SHUTDOWN.appendStartAndShutdown(eventBusListener);
+            RUNTIME_START_AND_SHUTDOWN.appendStartAndShutdown(eventRuleTransfer);
+            RUNTIME_START_AND_SHUTDOWN.appendStartAndShutdown(eventTargetPusher);
+        }
 
         // start servers one by one.
         RUNTIME_START_AND_SHUTDOWN.start();
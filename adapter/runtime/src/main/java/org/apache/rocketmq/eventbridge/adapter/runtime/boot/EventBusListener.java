@@ -19,6 +19,7 @@ package org.apache.rocketmq.eventbridge.adapter.runtime.boot;
 
 import com.google.common.collect.Lists;
 import io.openmessaging.connector.api.data.ConnectRecord;
+import java.util.Collections;
 import java.util.List;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.CirculatorContext;
@@ -35,10 +36,20 @@ public class EventBusListener extends ServiceThread {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EventBusListener.class);
 
+    /**
+     * wait between offers of the records rejected by a full runner buffer
+     */
+    private static final long FULL_BUFFER_WAIT_MILLS = 10;
+
     private final CirculatorContext circulatorContext;
     private final EventSubscriber eventSubscriber;
     private final ErrorHandler errorHandler;
 
+    /**
+     * records rejected by a full runner buffer, nothing is pulled until they are offered
+     */
+    private List<ConnectRecord> pendingRecords = Collections.emptyList();
+
     public EventBusListener(CirculatorContext circulatorContext, EventSubscriber eventSubscriber,
         ErrorHandler errorHandler) {
         this.circulatorContext = circulatorContext;
@@ -51,19 +62,43 @@ public class EventBusListener extends ServiceThread {
         while (!stopped) {
             List<ConnectRecord> pullRecordList = Lists.newArrayList();
             try {
+                if (!pendingRecords.isEmpty()) {
+                    // back pressure, the records stay in flight until the full runner buffer is drained
+                    pendingRecords = circulatorContext.offerEventRecords(pendingRecords);
+                    if (!pendingRecords.isEmpty()) {
+                        this.waitForRunning(FULL_BUFFER_WAIT_MILLS);
+                    }
+                    continue;
+                }
+                // the subscriber blocks for a while when empty, so pull again immediately
                 pullRecordList = eventSubscriber.pull();
                 if (CollectionUtils.isEmpty(pullRecordList)) {
-                    this.waitForRunning(1000);
                     continue;
                 }
-                circulatorContext.offerEventRecords(pullRecordList);
+                pendingRecords = circulatorContext.offerEventRecords(pullRecordList);
+                if (!pendingRecords.isEmpty()) {
+                    LOGGER.warn("offer event records rejected by full runner buffer, stop pulling until offered, rejected.size={}",
+                        pendingRecords.size());
+                }
             } catch (Exception exception) {
                 LOGGER.error(getServiceName() + " - event bus pull record exception, stackTrace - ", exception);
-                pullRecordList.forEach(pullRecord -> errorHandler.handle(pullRecord, exception));
+                pendingRecords = Collections.emptyList();
+                pullRecordList.forEach(pullRecord -> handleError(pullRecord, exception));
             }
         }
     }
 
+    /**
+     * the listener thread must outlive the failure of the error handler, or every bus stops consuming
+     */
+    private void handleError(ConnectRecord connectRecord, Exception exception) {
+        try {
+            errorHandler.handle(connectRecord, exception);
+        } catch (Exception handleException) {
+            LOGGER.error(getServiceName() + " - handle failed record exception, stackTrace - ", handleException);
+        }
+    }
+
     @Override
     public String getServiceName() {
         return EventBusListener.class.getSimpleName();
@@ -71,6 +106,8 @@ public class EventBusListener extends ServiceThread {
 
     @Override
     public void shutdown() {
+        // the loop ends at its next stop check, at the latest once the pending pull returns
+        makeStop();
         eventSubscriber.close();
     }
 }
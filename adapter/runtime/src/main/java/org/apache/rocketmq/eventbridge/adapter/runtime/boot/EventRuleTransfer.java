@@ -14,25 +14,34 @@
  *  See the License for the specific language governing permissions and
  *  limitations under the License.
  */
-
 package org.apache.rocketmq.eventbridge.adapter.runtime.boot;
 
-import com.alibaba.fastjson.JSON;
-import com.google.common.collect.Lists;
 import io.openmessaging.connector.api.data.ConnectRecord;
+import io.openmessaging.connector.api.data.RecordPosition;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.PostConstruct;
 import org.apache.commons.collections.MapUtils;
+import org.apache.rocketmq.common.utils.ThreadUtils;
 import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.CirculatorContext;
 import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.OffsetManager;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.transfer.EventBusRuleIndex;
 import org.apache.rocketmq.eventbridge.adapter.runtime.boot.transfer.TransformEngine;
 import org.apache.rocketmq.eventbridge.adapter.runtime.common.ServiceThread;
 import org.apache.rocketmq.eventbridge.adapter.runtime.error.ErrorHandler;
 import org.apache.rocketmq.eventbridge.adapter.runtime.utils.ExceptionUtil;
+import org.apache.rocketmq.eventbridge.adapter.runtime.utils.ShutdownUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,17 +52,51 @@ public class EventRuleTransfer extends ServiceThread {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EventRuleTransfer.class);
 
-    private volatile Integer batchSize = 100;
+    /**
+     * records of one runner are not split into chunks smaller than this
+     */
+    private static final int MIN_CHUNK_SIZE = 16;
+
+    /**
+     * wait between offers of the records rejected by a full runner buffer
+     */
+    private static final long FULL_BUFFER_WAIT_MILLS = 10;
+
+    /**
+     * max records taken of all the runners per round, the records of every runner are bounded by its own
+     * adaptive batch size
+     */
+    private volatile Integer batchSize = 10000;
 
     private final CirculatorContext circulatorContext;
     private final OffsetManager offsetManager;
     private final ErrorHandler errorHandler;
+    private final ExecutorService transformExecutor;
+    private final int runnerParallelism;
+
+    /**
+     * transformed records rejected by a full runner buffer, no event is taken until they are offered
+     */
+    private List<ConnectRecord> pendingRecords = Collections.emptyList();
 
     public EventRuleTransfer(CirculatorContext circulatorContext, OffsetManager offsetManager,
         ErrorHandler errorHandler) {
+        this(circulatorContext, offsetManager, errorHandler, 0);
+    }
+
+    /**
+     * @param runnerParallelism max number of chunks the records of one runner are split into, non-positive
+     * means the number of processors
+     */
+    public EventRuleTransfer(CirculatorContext circulatorContext, OffsetManager offsetManager,
+        ErrorHandler errorHandler, int runnerParallelism) {
         this.circulatorContext = circulatorContext;
         this.offsetManager = offsetManager;
         this.errorHandler = errorHandler;
+        int transformThreads = java.lang.Runtime.getRuntime().availableProcessors();
+        this.runnerParallelism = runnerParallelism > 0 ? runnerParallelism : transformThreads;
+        this.transformExecutor = new ThreadPoolExecutor(transformThreads, transformThreads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), ThreadUtils.newThreadFactory("EventRuleTransformWorker", false));
     }
 
     @Override
@@ -68,9 +111,18 @@ public class EventRuleTransfer extends ServiceThread {
 
     @Override
     public void run() {
-        List<ConnectRecord> afterTransformConnect = new CopyOnWriteArrayList<>();
+        List<TransformChunk> chunks = new ArrayList<>();
+        List<Future<List<ConnectRecord>>> chunkFutures = new ArrayList<>();
         while (!stopped) {
             try {
+                if (!pendingRecords.isEmpty()) {
+                    // back pressure, the records stay in flight until the full runner buffer is drained
+                    pendingRecords = circulatorContext.offerTargetTaskQueue(pendingRecords);
+                    if (!pendingRecords.isEmpty()) {
+                        this.waitForRunning(FULL_BUFFER_WAIT_MILLS);
+                    }
+                    continue;
+                }
                 Map<String, List<ConnectRecord>> eventRecordMap = circulatorContext.takeEventRecords(batchSize);
                 if (MapUtils.isEmpty(eventRecordMap)) {
                     LOGGER.trace("listen eventRecords is empty, continue by curTime - {}", System.currentTimeMillis());
@@ -84,36 +136,186 @@ public class EventRuleTransfer extends ServiceThread {
                     continue;
                 }
 
-                afterTransformConnect.clear();
-                List<CompletableFuture<Void>> completableFutures = Lists.newArrayList();
-                for (String runnerName : eventRecordMap.keySet()) {
-                    TransformEngine<ConnectRecord> curTransformEngine = latestTransformMap.get(runnerName);
-                    List<ConnectRecord> curEventRecords = eventRecordMap.get(runnerName);
-                    curEventRecords.forEach(pullRecord -> {
-                        CompletableFuture<Void> transformFuture = CompletableFuture.supplyAsync(() -> curTransformEngine.doTransforms(pullRecord))
-                            .exceptionally((exception) -> {
-                                LOGGER.error("transfer do transform event record failed, stackTrace-", exception);
-                                errorHandler.handle(pullRecord, exception);
-                                return null;
-                            })
-                            .thenAccept(pushRecord -> {
-                                if (Objects.nonNull(pushRecord)) {
-                                    afterTransformConnect.add(pushRecord);
-                                } else {
-                                    offsetManager.commit(pullRecord);
-                                }
-                            });
-                        completableFutures.add(transformFuture);
-                    });
+                chunks = new ArrayList<>();
+                // the runners of a topic share its messages, so a message is matched against the rules of its bus once per round
+                Map<RecordPosition, Set<String>> ruleMatches = new ConcurrentHashMap<>();
+                for (Map.Entry<String, List<ConnectRecord>> entry : eventRecordMap.entrySet()) {
+                    TransformEngine<ConnectRecord> curTransformEngine = latestTransformMap.get(entry.getKey());
+                    List<ConnectRecord> curEventRecords = entry.getValue();
+                    if (curEventRecords.isEmpty()) {
+                        continue;
+                    }
+                    if (curTransformEngine == null) {
+                        LOGGER.warn("transform engine of runner {} is absent, discard records.size={}", entry.getKey(), curEventRecords.size());
+                        offsetManager.commit(curEventRecords);
+                        continue;
+                    }
+                    int chunkNum = Math.min(runnerParallelism, (curEventRecords.size() + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE);
+                    int chunkSize = (curEventRecords.size() + chunkNum - 1) / chunkNum;
+                    for (int from = 0; from < curEventRecords.size(); from += chunkSize) {
+                        TransformChunk chunk = new TransformChunk(entry.getKey(), curTransformEngine,
+                            curEventRecords.subList(from, Math.min(from + chunkSize, curEventRecords.size())), ruleMatches);
+                        chunks.add(chunk);
+                    }
+                }
+                if (chunks.isEmpty()) {
+                    continue;
                 }
-                CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture[eventRecordMap.values().size()])).get();
-                circulatorContext.offerTargetTaskQueue(afterTransformConnect);
-                LOGGER.info("offer target task queues succeed, transforms.size={}", afterTransformConnect.size());
+                // keep the last chunk for the transfer thread itself instead of idling on the futures
+                chunkFutures = new ArrayList<>(chunks.size() - 1);
+                for (TransformChunk chunk : chunks.subList(0, chunks.size() - 1)) {
+                    chunkFutures.add(transformExecutor.submit(chunk::transform));
+                }
+                List<ConnectRecord> callerChunkRecords = chunks.get(chunks.size() - 1).transform();
+                // keep the chunk order, so the records of a queue stay in order
+                List<ConnectRecord> offeredRecords = new ArrayList<>();
+                for (Future<List<ConnectRecord>> chunkFuture : chunkFutures) {
+                    offeredRecords.addAll(chunkFuture.get());
+                }
+                offeredRecords.addAll(callerChunkRecords);
+                reportBatches(eventRecordMap, chunks);
+                // the offered records belong to the trigger from now on
+                chunks = new ArrayList<>();
+                if (offeredRecords.isEmpty()) {
+                    continue;
+                }
+                pendingRecords = circulatorContext.offerTargetTaskQueue(offeredRecords);
+                if (!pendingRecords.isEmpty()) {
+                    LOGGER.warn("offer target records rejected by full runner buffer, stop taking until offered, rejected.size={}",
+                        pendingRecords.size());
+                }
+                LOGGER.info("offer target task queues succeed, transforms.size={}", offeredRecords.size());
             } catch (Exception exception) {
                 LOGGER.error("transfer event record failed, stackTrace-", exception);
-                afterTransformConnect.forEach(transferRecord -> errorHandler.handle(transferRecord, exception));
+                chunkFutures.forEach(chunkFuture -> chunkFuture.cancel(false));
+                // a finished chunk already committed its filtered records, the others are retried as a whole
+                for (TransformChunk chunk : chunks) {
+                    List<ConnectRecord> failedRecords = chunk.transformedRecords != null ? chunk.transformedRecords : chunk.eventRecords;
+                    failedRecords.forEach(failedRecord -> handleError(failedRecord, exception));
+                }
+                chunks = new ArrayList<>();
+            }
+
+        }
+    }
+
+    /**
+     * the transfer thread must outlive the failure of the error handler
+     */
+    private void handleError(ConnectRecord connectRecord, Exception exception) {
+        try {
+            errorHandler.handle(connectRecord, exception);
+        } catch (Exception handleException) {
+            LOGGER.error("handle failed transfer record exception, stackTrace-", handleException);
+        }
+    }
+
+    /**
+     * feed the transform latency of every runner back to its batch size, the chunks of a runner run in
+     * parallel so the slowest one counts
+     *
+     * @param eventRecordMap
+     * @param chunks
+     */
+    private void reportBatches(Map<String, List<ConnectRecord>> eventRecordMap, List<TransformChunk> chunks) {
+        Map<String, TransformChunk> slowestChunks = new HashMap<>();
+        Set<String> failedRunners = new HashSet<>();
+        for (TransformChunk chunk : chunks) {
+            TransformChunk slowestChunk = slowestChunks.get(chunk.runnerName);
+            if (slowestChunk == null || chunk.latencyMillis > slowestChunk.latencyMillis) {
+                slowestChunks.put(chunk.runnerName, chunk);
+            }
+            if (chunk.failed) {
+                failedRunners.add(chunk.runnerName);
+            }
+        }
+        for (Map.Entry<String, TransformChunk> entry : slowestChunks.entrySet()) {
+            String runnerName = entry.getKey();
+            circulatorContext.reportBatch(runnerName, true, eventRecordMap.get(runnerName).size(),
+                entry.getValue().latencyMillis, failedRunners.contains(runnerName));
+        }
+    }
+
+    /**
+     * A contiguous range of records of one runner, transformed by a single worker.
+     */
+    private class TransformChunk {
+
+        private final String runnerName;
+        private final TransformEngine<ConnectRecord> transformEngine;
+        private final List<ConnectRecord> eventRecords;
+        private final Map<RecordPosition, Set<String>> ruleMatches;
+        private volatile long latencyMillis;
+        private volatile boolean failed;
+        /**
+         * set once every record of the chunk is transformed, filtered or handed to the error handler
+         */
+        private volatile List<ConnectRecord> transformedRecords;
+
+        TransformChunk(String runnerName, TransformEngine<ConnectRecord> transformEngine, List<ConnectRecord> eventRecords,
+            Map<RecordPosition, Set<String>> ruleMatches) {
+            this.runnerName = runnerName;
+            this.transformEngine = transformEngine;
+            this.eventRecords = eventRecords;
+            this.ruleMatches = ruleMatches;
+        }
+
+        List<ConnectRecord> transform() {
+            long startTime = System.currentTimeMillis();
+            List<ConnectRecord> transformedRecords = new ArrayList<>(eventRecords.size());
+            List<ConnectRecord> filteredRecords = null;
+            for (ConnectRecord pullRecord : eventRecords) {
+                ConnectRecord pushRecord;
+                try {
+                    Set<String> matchedRunners = matchRules(pullRecord);
+                    if (matchedRunners == null || matchedRunners.contains(runnerName)) {
+                        pushRecord = transformEngine.doTransforms(pullRecord, matchedRunners != null);
+                    } else {
+                        pushRecord = null;
+                    }
+                } catch (Exception exception) {
+                    LOGGER.error("transfer do transform event record failed, stackTrace-", exception);
+                    errorHandler.handle(pullRecord, exception);
+                    failed = true;
+                    continue;
+                }
+                if (pushRecord != null) {
+                    transformedRecords.add(pushRecord);
+                } else {
+                    if (filteredRecords == null) {
+                        filteredRecords = new ArrayList<>();
+                    }
+                    filteredRecords.add(pullRecord);
+                }
             }
+            if (filteredRecords != null) {
+                offsetManager.commit(filteredRecords);
+            }
+            latencyMillis = System.currentTimeMillis() - startTime;
+            this.transformedRecords = transformedRecords;
+            return transformedRecords;
+        }
 
+        /**
+         * match the record against the rule index of its bus, reusing the match of the same message for another runner
+         *
+         * @param pullRecord
+         * @return the matched runners of the bus, null if the filter of the runner is not indexed
+         */
+        private Set<String> matchRules(ConnectRecord pullRecord) {
+            EventBusRuleIndex ruleIndex = circulatorContext.getRuleIndex();
+            if (!ruleIndex.contains(runnerName)) {
+                return null;
+            }
+            RecordPosition position = pullRecord.getPosition();
+            Set<String> matchedRunners = position == null ? null : ruleMatches.get(position);
+            if (matchedRunners == null) {
+                matchedRunners = ruleIndex.match(runnerName, pullRecord);
+                if (matchedRunners != null && position != null) {
+                    ruleMatches.put(position, matchedRunners);
+                }
+            }
+            return matchedRunners;
         }
     }
 
@@ -125,6 +327,7 @@ public class EventRuleTransfer extends ServiceThread {
     @Override
     public void shutdown() {
         try {
+            ShutdownUtils.shutdownThreadPool(transformExecutor);
             circulatorContext.releaseTaskTransform();
         } catch (Exception e) {
             LOGGER.error(String.format("current thread: %s, error Track: %s ", getServiceName(), ExceptionUtil.getErrorMessage(e)));
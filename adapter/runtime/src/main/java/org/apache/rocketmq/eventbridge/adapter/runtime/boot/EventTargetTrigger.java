@@ -21,16 +21,27 @@ import com.alibaba.fastjson.JSON;
 import io.openmessaging.connector.api.component.task.sink.SinkTask;
 import io.openmessaging.connector.api.data.ConnectRecord;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.collections.MapUtils;
 import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.OffsetManager;
 import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.CirculatorContext;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.RunnerStage;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.trigger.LingerBatch;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.trigger.SinkScheduler;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.trigger.TriggerTaskContext;
 import org.apache.rocketmq.eventbridge.adapter.runtime.common.ServiceThread;
 import org.apache.rocketmq.eventbridge.adapter.runtime.error.ErrorHandler;
 import org.apache.rocketmq.eventbridge.adapter.runtime.utils.ExceptionUtil;
+import org.apache.rocketmq.eventbridge.domain.model.run.DeliveryStrategy;
+import org.apache.rocketmq.eventbridge.enums.DeliveryOrderingEnum;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,7 +55,18 @@ public class EventTargetTrigger extends ServiceThread {
     private final CirculatorContext circulatorContext;
     private final OffsetManager offsetManager;
     private final ErrorHandler errorHandler;
-    private volatile Integer batchSize = 100;
+    /**
+     * max records taken of all the runners per round, the records of every runner are bounded by its own
+     * adaptive batch size
+     */
+    private volatile Integer batchSize = 10000;
+
+    private static final long MAX_WAIT_MILLIS = 1000;
+
+    /**
+     * batches of the runners with a linger, only touched by the trigger thread
+     */
+    private final Map<String/*RunnerName*/, LingerBatch> lingerBatches = new HashMap<>();
 
     public EventTargetTrigger(CirculatorContext circulatorContext, OffsetManager offsetManager,
         ErrorHandler errorHandler) {
@@ -57,32 +79,203 @@ public class EventTargetTrigger extends ServiceThread {
     public void run() {
         while (!stopped) {
             Map<String, List<ConnectRecord>> targetRecordMap = circulatorContext.takeTargetRecords(batchSize);
+            long now = System.currentTimeMillis();
+            if (MapUtils.isNotEmpty(targetRecordMap)) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("start push content by pusher - {}", JSON.toJSONString(targetRecordMap));
+                }
+                for (Map.Entry<String, List<ConnectRecord>> entry : targetRecordMap.entrySet()) {
+                    String runnerName = entry.getKey();
+                    DeliveryStrategy deliveryStrategy = CirculatorContext.getDeliveryStrategy(circulatorContext.getRunnerConfig(runnerName));
+                    if (!isLinger(deliveryStrategy)) {
+                        dispatch(runnerName, entry.getValue(), deliveryStrategy);
+                        continue;
+                    }
+                    LingerBatch lingerBatch = lingerBatches.computeIfAbsent(runnerName, key -> new LingerBatch());
+                    lingerBatch.addAll(entry.getValue(), now);
+                }
+            }
+            long waitMillis = flushLingerBatches(now);
             if (MapUtils.isEmpty(targetRecordMap)) {
                 LOGGER.trace("current target pusher is empty");
-                this.waitForRunning(1000);
+                this.waitForRunning(waitMillis);
+            }
+        }
+    }
+
+    /**
+     * put the linger batches which are full, expired, or whose runner buffer still holds a full batch
+     *
+     * @param now
+     * @return time to wait for the next expiring linger batch
+     */
+    private long flushLingerBatches(long now) {
+        long waitMillis = MAX_WAIT_MILLIS;
+        Iterator<Map.Entry<String, LingerBatch>> iterator = lingerBatches.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, LingerBatch> entry = iterator.next();
+            String runnerName = entry.getKey();
+            LingerBatch lingerBatch = entry.getValue();
+            RunnerStage runnerStage = circulatorContext.getRunnerStage(runnerName);
+            DeliveryStrategy deliveryStrategy = CirculatorContext.getDeliveryStrategy(circulatorContext.getRunnerConfig(runnerName));
+            if (runnerStage == null || !isLinger(deliveryStrategy)) {
+                if (!lingerBatch.isEmpty()) {
+                    dispatch(runnerName, lingerBatch.drain(Integer.MAX_VALUE), deliveryStrategy);
+                }
+                iterator.remove();
                 continue;
             }
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("start push content by pusher - {}", JSON.toJSONString(targetRecordMap));
+            if (lingerBatch.isEmpty()) {
+                continue;
+            }
+            int batchRecords = runnerStage.getTriggerBatch().getBatchSize();
+            int maxRecords = deliveryStrategy.getLingerMaxRecords() != null && deliveryStrategy.getLingerMaxRecords() > 0
+                ? Math.min(deliveryStrategy.getLingerMaxRecords(), batchRecords) : batchRecords;
+            long maxBytes = deliveryStrategy.getLingerMaxBytes() != null ? deliveryStrategy.getLingerMaxBytes() : 0;
+            long lingerMs = deliveryStrategy.getLingerMs();
+            // no point in lingering while the buffer already holds the rest of a batch
+            while (!lingerBatch.isEmpty() && (runnerStage.getTargetBuffer().size() + lingerBatch.size() >= maxRecords
+                || lingerBatch.isReady(now, maxRecords, maxBytes, lingerMs))) {
+                dispatch(runnerName, lingerBatch.drain(maxRecords, maxBytes), deliveryStrategy);
+            }
+            if (lingerBatch.isEmpty()) {
+                continue;
             }
+            waitMillis = Math.min(waitMillis, Math.max(1, lingerBatch.deadline(lingerMs) - now));
+        }
+        return waitMillis;
+    }
 
-            for (String runnerName : targetRecordMap.keySet()) {
-                ExecutorService executorService = circulatorContext.getExecutorService(runnerName);
-                executorService.execute(() -> {
-                    SinkTask sinkTask = circulatorContext.getPusherTaskMap().get(runnerName);
-                    List<ConnectRecord> triggerRecords = targetRecordMap.get(runnerName);
-                    try {
-                        sinkTask.put(triggerRecords);
-                        offsetManager.commit(triggerRecords);
-                    } catch (Exception exception) {
-                        LOGGER.error(getServiceName() + " push target exception, stackTrace-", exception);
-                        triggerRecords.forEach(triggerRecord -> errorHandler.handle(triggerRecord, exception));
-                    }
-                });
+    private boolean isLinger(DeliveryStrategy deliveryStrategy) {
+        return deliveryStrategy.getLingerMs() != null && deliveryStrategy.getLingerMs() > 0;
+    }
+
+    private void dispatch(String runnerName, List<ConnectRecord> triggerRecords, DeliveryStrategy deliveryStrategy) {
+        SinkScheduler sinkScheduler = circulatorContext.getSinkScheduler();
+        DeliveryOrderingEnum ordering = deliveryStrategy.getOrdering();
+        if (ordering == null || ordering == DeliveryOrderingEnum.NONE) {
+            BatchRound batchRound = new BatchRound(runnerName, triggerRecords.size(), 1);
+            sinkScheduler.submit(runnerName, () -> push(runnerName, triggerRecords, batchRound));
+            return;
+        }
+        int laneNum = sinkScheduler.getOrderedLaneNum(runnerName);
+        List<ConnectRecord>[] laneRecords = splitIntoLanes(triggerRecords, laneNum, ordering, deliveryStrategy.getOrderingKey());
+        int usedLaneNum = 0;
+        for (List<ConnectRecord> records : laneRecords) {
+            if (records != null) {
+                usedLaneNum++;
+            }
+        }
+        BatchRound batchRound = new BatchRound(runnerName, triggerRecords.size(), usedLaneNum);
+        for (int laneIndex = 0; laneIndex < laneNum; laneIndex++) {
+            List<ConnectRecord> records = laneRecords[laneIndex];
+            if (records != null) {
+                sinkScheduler.submitOrdered(runnerName, laneIndex, () -> push(runnerName, records, batchRound));
+            }
+        }
+    }
+
+    /**
+     * put the records to the sink task, the round they were taken in feeds the latency back to the batch size
+     * of the runner once all its lanes are done
+     *
+     * @param runnerName
+     * @param pushRecords
+     * @param batchRound
+     */
+    private void push(String runnerName, List<ConnectRecord> pushRecords, BatchRound batchRound) {
+        long startTime = System.currentTimeMillis();
+        boolean put = false;
+        boolean failed = false;
+        try {
+            List<ConnectRecord> triggerRecords = offsetManager.fence(pushRecords);
+            if (triggerRecords.isEmpty()) {
+                return;
+            }
+            put = true;
+            SinkTask sinkTask = circulatorContext.getPusherTaskMap().get(runnerName);
+            try {
+                sinkTask.put(triggerRecords);
+                offsetManager.commit(triggerRecords);
+            } catch (Exception exception) {
+                failed = true;
+                LOGGER.error(getServiceName() + " push target exception, stackTrace-", exception);
+                triggerRecords.forEach(triggerRecord -> errorHandler.handle(triggerRecord, exception));
+            }
+        } finally {
+            batchRound.complete(put, System.currentTimeMillis() - startTime, failed);
+        }
+    }
+
+    /**
+     * The lanes one round of a runner is dispatched onto. The round is reported once, with the latency of its
+     * slowest lane, so the batch size of the runner moves once per round whatever the number of lanes.
+     */
+    private class BatchRound {
+
+        private final String runnerName;
+        private final int recordNum;
+        private final AtomicInteger pendingLanes;
+        private final AtomicLong maxLatencyMillis = new AtomicLong();
+        private volatile boolean put;
+        private volatile boolean failed;
+
+        BatchRound(String runnerName, int recordNum, int laneNum) {
+            this.runnerName = runnerName;
+            this.recordNum = recordNum;
+            this.pendingLanes = new AtomicInteger(laneNum);
+        }
+
+        void complete(boolean lanePut, long latencyMillis, boolean laneFailed) {
+            if (lanePut) {
+                put = true;
+                maxLatencyMillis.accumulateAndGet(latencyMillis, Math::max);
+            }
+            if (laneFailed) {
+                failed = true;
+            }
+            // the lane counter orders the writes above before the read of the last lane
+            if (pendingLanes.decrementAndGet() == 0 && put) {
+                circulatorContext.reportBatch(runnerName, false, recordNum, maxLatencyMillis.get(), failed);
             }
         }
     }
 
+    /**
+     * hash records onto sequential lanes, keeping their relative order inside every lane
+     *
+     * @param triggerRecords
+     * @param laneNum
+     * @param ordering
+     * @param orderingKey
+     * @return records of every lane, null for an empty lane
+     */
+    @SuppressWarnings("unchecked")
+    private List<ConnectRecord>[] splitIntoLanes(List<ConnectRecord> triggerRecords, int laneNum,
+        DeliveryOrderingEnum ordering, String orderingKey) {
+        List<ConnectRecord>[] laneRecords = new List[laneNum];
+        for (ConnectRecord triggerRecord : triggerRecords) {
+            int laneIndex = (orderingHash(triggerRecord, ordering, orderingKey) & Integer.MAX_VALUE) % laneNum;
+            if (laneRecords[laneIndex] == null) {
+                laneRecords[laneIndex] = new ArrayList<>();
+            }
+            laneRecords[laneIndex].add(triggerRecord);
+        }
+        return laneRecords;
+    }
+
+    private int orderingHash(ConnectRecord connectRecord, DeliveryOrderingEnum ordering, String orderingKey) {
+        if (ordering == DeliveryOrderingEnum.KEY) {
+            return Objects.hashCode(connectRecord.getExtension(orderingKey));
+        }
+        if (connectRecord.getPosition() == null || connectRecord.getPosition().getPartition() == null) {
+            return 0;
+        }
+        Map<String, ?> partition = connectRecord.getPosition().getPartition().getPartition();
+        return Objects.hashCode(partition.get(TriggerTaskContext.BROKER_NAME)) * 31
+            + Objects.hashCode(partition.get(TriggerTaskContext.QUEUE_ID));
+    }
+
     @Override
     public String getServiceName() {
         return EventTargetTrigger.class.getSimpleName();
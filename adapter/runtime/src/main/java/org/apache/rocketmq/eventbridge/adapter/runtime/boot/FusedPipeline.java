@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.boot;
+
+import io.openmessaging.connector.api.component.task.sink.SinkTask;
+import io.openmessaging.connector.api.data.ConnectRecord;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.CirculatorContext;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.OffsetManager;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.TargetRunnerListener;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.hook.StartAndShutdown;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.listener.EventSubscriber;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.transfer.TransformEngine;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.ServiceThread;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.entity.TargetRunnerConfig;
+import org.apache.rocketmq.eventbridge.adapter.runtime.error.ErrorHandler;
+import org.apache.rocketmq.eventbridge.adapter.runtime.utils.ExceptionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fused pipeline, every runner is served end-to-end by one worker which polls its records, transforms them and
+ * puts them to the sink task on the same thread, without the buffers between listener, transfer and trigger.
+ */
+public class FusedPipeline implements StartAndShutdown, TargetRunnerListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FusedPipeline.class);
+
+    private final CirculatorContext circulatorContext;
+    private final EventSubscriber eventSubscriber;
+    private final OffsetManager offsetManager;
+    private final ErrorHandler errorHandler;
+    private final Map<String/*RunnerName*/, RunnerWorker> runnerWorkerMap = new ConcurrentHashMap<>();
+    private volatile boolean started = false;
+
+    public FusedPipeline(CirculatorContext circulatorContext, EventSubscriber eventSubscriber,
+        OffsetManager offsetManager, ErrorHandler errorHandler) {
+        this.circulatorContext = circulatorContext;
+        this.eventSubscriber = eventSubscriber;
+        this.offsetManager = offsetManager;
+        this.errorHandler = errorHandler;
+    }
+
+    @Override
+    public synchronized void start() {
+        started = true;
+        for (String runnerName : circulatorContext.getRunnerNames()) {
+            startWorker(runnerName);
+        }
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        started = false;
+        for (RunnerWorker runnerWorker : runnerWorkerMap.values()) {
+            runnerWorker.shutdown();
+        }
+        runnerWorkerMap.clear();
+        try {
+            eventSubscriber.close();
+            circulatorContext.releaseTaskTransform();
+            circulatorContext.releaseExecutorService();
+            circulatorContext.releaseTriggerTask();
+        } catch (Exception e) {
+            LOGGER.error(String.format("fused pipeline shutdown failed, error Track: %s ", ExceptionUtil.getErrorMessage(e)));
+        }
+    }
+
+    @Override
+    public synchronized void onAddTargetRunner(TargetRunnerConfig targetRunnerConfig) {
+        if (started) {
+            startWorker(targetRunnerConfig.getName());
+        }
+    }
+
+    @Override
+    public synchronized void onUpdateTargetRunner(TargetRunnerConfig targetRunnerConfig) {
+        // the worker looks up the latest transform engine and sink task of its runner on every batch
+        if (started) {
+            startWorker(targetRunnerConfig.getName());
+        }
+    }
+
+    @Override
+    public synchronized void onDeleteTargetRunner(TargetRunnerConfig targetRunnerConfig) {
+        RunnerWorker runnerWorker = runnerWorkerMap.remove(targetRunnerConfig.getName());
+        if (runnerWorker != null) {
+            runnerWorker.shutdown();
+        }
+    }
+
+    private void startWorker(String runnerName) {
+        if (runnerWorkerMap.containsKey(runnerName)) {
+            return;
+        }
+        RunnerWorker runnerWorker = new RunnerWorker(runnerName);
+        runnerWorkerMap.put(runnerName, runnerWorker);
+        runnerWorker.start();
+        LOGGER.info("runnerName -{}- fused worker started", runnerName);
+    }
+
+    class RunnerWorker extends ServiceThread {
+
+        private final String runnerName;
+
+        RunnerWorker(String runnerName) {
+            this.runnerName = runnerName;
+        }
+
+        @Override
+        public String getServiceName() {
+            return RunnerWorker.class.getSimpleName();
+        }
+
+        @Override
+        public void start() {
+            thread.setName(getServiceName() + "-" + runnerName);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            while (!stopped) {
+                try {
+                    // the subscriber blocks for a while when empty, so pull again immediately
+                    List<ConnectRecord> pullRecords = eventSubscriber.pull(runnerName);
+                    if (CollectionUtils.isEmpty(pullRecords)) {
+                        continue;
+                    }
+                    process(pullRecords);
+                } catch (Exception exception) {
+                    LOGGER.error(getServiceName() + " - runner " + runnerName + " pull record exception, stackTrace - ", exception);
+                }
+            }
+        }
+
+        private void process(List<ConnectRecord> pullRecords) {
+            TransformEngine<ConnectRecord> transformEngine = circulatorContext.getTaskTransformMap().get(runnerName);
+            if (transformEngine == null) {
+                LOGGER.warn("transform engine of runner {} is absent, discard records.size={}", runnerName, pullRecords.size());
+                offsetManager.commit(pullRecords);
+                return;
+            }
+            List<ConnectRecord> pushRecords = new ArrayList<>(pullRecords.size());
+            List<ConnectRecord> filteredRecords = null;
+            for (ConnectRecord pullRecord : pullRecords) {
+                ConnectRecord pushRecord;
+                try {
+                    pushRecord = transformEngine.doTransforms(pullRecord);
+                } catch (Exception exception) {
+                    LOGGER.error("fused do transform event record failed, stackTrace-", exception);
+                    errorHandler.handle(pullRecord, exception);
+                    continue;
+                }
+                if (pushRecord != null) {
+                    pushRecords.add(pushRecord);
+                } else {
+                    if (filteredRecords == null) {
+                        filteredRecords = new ArrayList<>();
+                    }
+                    filteredRecords.add(pullRecord);
+                }
+            }
+            if (filteredRecords != null) {
+                offsetManager.commit(filteredRecords);
+            }
+            pushRecords = offsetManager.fence(pushRecords);
+            if (pushRecords.isEmpty()) {
+                return;
+            }
+            long startTime = System.currentTimeMillis();
+            boolean failed = false;
+            try {
+                SinkTask sinkTask = circulatorContext.getPusherTaskMap().get(runnerName);
+                if (sinkTask == null) {
+                    throw new IllegalStateException("sink task of runner " + runnerName + " is absent");
+                }
+                sinkTask.put(pushRecords);
+                offsetManager.commit(pushRecords);
+            } catch (Exception exception) {
+                failed = true;
+                LOGGER.error(getServiceName() + " push target exception, stackTrace-", exception);
+                pushRecords.forEach(pushRecord -> errorHandler.handle(pushRecord, exception));
+            }
+            circulatorContext.reportBatch(runnerName, false, pushRecords.size(), System.currentTimeMillis() - startTime, failed);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.boot.common;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.LoggerName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * AIMD batch size controller of one runner stage.
+ * The batch grows additively while the batch latency stays within the tolerance of its moving average,
+ * and shrinks multiplicatively when the latency jumps or the batch fails.
+ * Only full batches feed and are compared with the moving average, the latency of a partial batch is not
+ * comparable with a full one.
+ */
+public class AdaptiveBatchController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoggerName.EVENT_BRIDGE_RUNTIMER);
+
+    private static final double LATENCY_TOLERANCE = 1.5D;
+
+    private static final double LATENCY_DECREASE_FACTOR = 0.75D;
+
+    private static final double ERROR_DECREASE_FACTOR = 0.5D;
+
+    private static final double EWMA_ALPHA = 0.2D;
+
+    private static final int HISTORY_SIZE = 64;
+
+    private final String name;
+
+    private final int minBatchSize;
+
+    private final int maxBatchSize;
+
+    private final int increaseStep;
+
+    private volatile int batchSize;
+
+    /**
+     * moving average of the latency of full batches
+     */
+    private double latencyEwma = -1;
+
+    private final Deque<BatchSizeSample> history = new ArrayDeque<>(HISTORY_SIZE);
+
+    public AdaptiveBatchController(String name, int initialBatchSize, int minBatchSize, int maxBatchSize) {
+        this.name = name;
+        this.minBatchSize = Math.max(1, minBatchSize);
+        this.maxBatchSize = Math.max(this.minBatchSize, maxBatchSize);
+        this.batchSize = Math.min(this.maxBatchSize, Math.max(this.minBatchSize, initialBatchSize));
+        this.increaseStep = Math.max(1, this.batchSize / 10);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * feed back the result of a batch
+     *
+     * @param recordNum records of the batch
+     * @param latencyMillis time spent on the batch
+     * @param failed whether the batch failed
+     */
+    public synchronized void onBatchComplete(int recordNum, long latencyMillis, boolean failed) {
+        int current = batchSize;
+        int next = current;
+        boolean full = recordNum >= current;
+        if (failed) {
+            next = (int) (current * ERROR_DECREASE_FACTOR);
+        } else if (!full) {
+            // a partial batch says nothing about a larger one, and is faster than a full one however loaded
+            return;
+        } else if (latencyEwma >= 0 && latencyMillis > latencyEwma * LATENCY_TOLERANCE + 1) {
+            next = (int) (current * LATENCY_DECREASE_FACTOR);
+        } else {
+            next = current + increaseStep;
+        }
+        if (!failed) {
+            latencyEwma = latencyEwma < 0 ? latencyMillis : latencyEwma + EWMA_ALPHA * (latencyMillis - latencyEwma);
+        }
+        next = Math.min(maxBatchSize, Math.max(minBatchSize, next));
+        if (next != current) {
+            batchSize = next;
+            if (history.size() == HISTORY_SIZE) {
+                history.removeFirst();
+            }
+            history.addLast(new BatchSizeSample(System.currentTimeMillis(), next, latencyMillis, failed));
+            LOGGER.debug("{} batch size changed from {} to {}, latency={}ms, failed={}", name, current, next, latencyMillis, failed);
+        }
+    }
+
+    /**
+     * @return the latest batch size changes, oldest first
+     */
+    public synchronized List<BatchSizeSample> getHistory() {
+        return new ArrayList<>(history);
+    }
+
+    public synchronized double getLatencyEwma() {
+        return latencyEwma;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveBatchController{" +
+            "name='" + name + '\'' +
+            ", batchSize=" + batchSize +
+            ", minBatchSize=" + minBatchSize +
+            ", maxBatchSize=" + maxBatchSize +
+            '}';
+    }
+
+    public static class BatchSizeSample {
+
+        private final long timestamp;
+
+        private final int batchSize;
+
+        private final long latencyMillis;
+
+        private final boolean failed;
+
+        BatchSizeSample(long timestamp, int batchSize, long latencyMillis, boolean failed) {
+            this.timestamp = timestamp;
+            this.batchSize = batchSize;
+            this.latencyMillis = latencyMillis;
+            this.failed = failed;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+
+        @Override
+        public String toString() {
+            return "BatchSizeSample{" +
+                "timestamp=" + timestamp +
+                ", batchSize=" + batchSize +
+                ", latencyMillis=" + latencyMillis +
+                ", failed=" + failed +
+                '}';
+        }
+    }
+}
@@ -21,15 +21,18 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import io.openmessaging.connector.api.component.task.sink.SinkTask;
 import io.openmessaging.connector.api.data.ConnectRecord;
-import java.util.concurrent.BlockingQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.rocketmq.common.utils.ThreadUtils;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.trigger.SinkScheduler;
 import org.apache.rocketmq.eventbridge.adapter.runtime.boot.trigger.TriggerTaskContext;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.transfer.EventBusRuleIndex;
 import org.apache.rocketmq.eventbridge.adapter.runtime.boot.transfer.TransformEngine;
 import org.apache.rocketmq.eventbridge.adapter.runtime.common.LoggerName;
 import org.apache.rocketmq.eventbridge.adapter.runtime.common.entity.TargetKeyValue;
@@ -38,10 +41,12 @@ import org.apache.rocketmq.eventbridge.adapter.runtime.common.enums.RefreshTypeE
 import org.apache.rocketmq.eventbridge.adapter.runtime.common.plugin.Plugin;
 import org.apache.rocketmq.eventbridge.adapter.runtime.common.plugin.PluginClassLoader;
 import org.apache.rocketmq.eventbridge.adapter.runtime.config.RuntimeConfigDefine;
-import org.apache.rocketmq.eventbridge.adapter.runtime.utils.ShutdownUtils;
+import org.apache.rocketmq.eventbridge.domain.model.run.DeliveryStrategy;
+import org.apache.rocketmq.eventbridge.domain.model.run.RunOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -59,23 +64,75 @@ public class CirculatorContext implements TargetRunnerListener {
     @Autowired
     private Plugin plugin;
 
-    private static final Integer QUEUE_CAPACITY = 50000;
+    private static final DeliveryStrategy DEFAULT_DELIVERY_STRATEGY = DeliveryStrategy.builder().build();
 
-    private final BlockingQueue<ConnectRecord> eventQueue = new LinkedBlockingQueue<>(50000);
+    @Value("${runtime.circulator.runnerQueueCapacity:4096}")
+    private int runnerQueueCapacity = 4096;
 
-    private final BlockingQueue<ConnectRecord> targetQueue = new LinkedBlockingQueue<>(50000);
+    @Value("${runtime.batch.initialSize:100}")
+    private int initialBatchSize = 100;
+
+    @Value("${runtime.batch.minSize:1}")
+    private int minBatchSize = 1;
+
+    @Value("${runtime.batch.maxSize:2000}")
+    private int maxBatchSize = 2000;
 
     private final Map<String/*RunnerName*/, TargetRunnerConfig> runnerConfigMap = new ConcurrentHashMap<>(30);
 
-    private final Map<String/*RunnerName*/, BlockingQueue<ConnectRecord>> eventQueueMap = new ConcurrentHashMap<>(30);
+    private final Map<String/*RunnerName*/, RunnerStage> runnerStageMap = new ConcurrentHashMap<>(30);
+
+    /**
+     * snapshot of runnerStageMap values for the round-robin drain, rebuilt when runners change
+     */
+    private volatile RunnerStage[] runnerStages = new RunnerStage[0];
+
+    /**
+     * stages of deleted runners whose buffered records are discarded by the consumer of the buffer, since a
+     * ring buffer only allows one consumer
+     */
+    private final Queue<RemovedStage> removedEventStages = new ConcurrentLinkedQueue<>();
 
-    private final Map<String/*RunnerName*/, BlockingQueue<ConnectRecord>> targetQueueMap = new ConcurrentHashMap<>(30);
+    private final Queue<RemovedStage> removedTargetStages = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger eventCursor = new AtomicInteger();
+
+    private final AtomicInteger targetCursor = new AtomicInteger();
+
+    /**
+     * wake up the downstream stage as soon as records are offered
+     */
+    private volatile Runnable eventRecordsSignal = () -> { };
+
+    private volatile Runnable targetRecordsSignal = () -> { };
+
+    /**
+     * discard the records of absent runners, usually by committing them
+     */
+    private volatile Consumer<List<ConnectRecord>> discardedRecordsHandler = discardedRecords -> { };
 
     private final Map<String/*RunnerName*/, TransformEngine<ConnectRecord>> taskTransformMap = new ConcurrentHashMap<>(20);
 
     private final Map<String/*RunnerName*/, SinkTask> pusherTaskMap = new ConcurrentHashMap<>(20);
 
-    private final Map<String/*RunnerName*/, ExecutorService> pusherExecutorMap = new ConcurrentHashMap<>(10);
+    @Value("${runtime.transfer.ruleIndexEnable:true}")
+    private boolean ruleIndexEnable = true;
+
+    private final EventBusRuleIndex ruleIndex = new EventBusRuleIndex();
+
+    @Value("${runtime.trigger.maxThreads:256}")
+    private int sinkMaxThreads = 256;
+
+    @Value("${runtime.trigger.runnerMaxInflight:8}")
+    private int sinkRunnerMaxInflight = 8;
+
+    @Value("${runtime.trigger.runnerWeight:1}")
+    private int sinkRunnerWeight = 1;
+
+    @Value("${runtime.trigger.virtualThreads:true}")
+    private boolean sinkVirtualThreads = true;
+
+    private volatile SinkScheduler sinkScheduler;
 
     /**
      * initial targetRunnerMap, taskTransformMap, pusherTaskMap
@@ -117,51 +174,60 @@ public class CirculatorContext implements TargetRunnerListener {
     }
 
     /**
-     * offer event records
+     * get the names of all the runners
      *
-     * @param connectRecords
+     * @return
      */
-    public boolean offerEventRecords(List<ConnectRecord> connectRecords) {
-        Map<String, List<ConnectRecord>> recordMap = buildWithRunnerNameKeyMap(connectRecords);
-        updateRecordQueueMap(recordMap, eventQueueMap);
-        return eventQueue.addAll(connectRecords);
+    public Set<String> getRunnerNames() {
+        return runnerConfigMap.keySet();
     }
 
     /**
-     * update record queue map
+     * register the signal fired after event records are offered, usually the wakeup of the transfer
      *
-     * @param recordMap
-     * @param eventQueueMap
+     * @param eventRecordsSignal
      */
-    private boolean updateRecordQueueMap(Map<String, List<ConnectRecord>> recordMap,
-        Map<String, BlockingQueue<ConnectRecord>> eventQueueMap) {
-        try {
-            for (String runnerName : recordMap.keySet()) {
-                BlockingQueue<ConnectRecord> recordQueue = eventQueueMap.get(runnerName);
-                if (CollectionUtils.isEmpty(recordQueue)) {
-                    recordQueue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
-                }
-                recordQueue.addAll(recordMap.get(runnerName));
-                eventQueueMap.put(runnerName, recordQueue);
-            }
-            return true;
-        } catch (Exception exception) {
-            return false;
-        }
+    public void registerEventRecordsSignal(Runnable eventRecordsSignal) {
+        this.eventRecordsSignal = eventRecordsSignal;
+    }
+
+    /**
+     * register the signal fired after target records are offered, usually the wakeup of the trigger
+     *
+     * @param targetRecordsSignal
+     */
+    public void registerTargetRecordsSignal(Runnable targetRecordsSignal) {
+        this.targetRecordsSignal = targetRecordsSignal;
+    }
+
+    /**
+     * register the handler of the records which are discarded because their runner is absent, usually the commit
+     * of their offsets
+     *
+     * @param discardedRecordsHandler
+     */
+    public void registerDiscardedRecordsHandler(Consumer<List<ConnectRecord>> discardedRecordsHandler) {
+        this.discardedRecordsHandler = discardedRecordsHandler;
+    }
+
+    /**
+     * offer event records to the event buffer of its runner, the records of absent runners are discarded
+     *
+     * @param connectRecords
+     * @return the records rejected because the runner buffer is full, which should be offered again later
+     */
+    public List<ConnectRecord> offerEventRecords(List<ConnectRecord> connectRecords) {
+        return offerRecords(connectRecords, true);
     }
 
     /**
-     * take event records
+     * take event records, drained round-robin across runners
      *
+     * @param batchSize max records taken of all the runners, every runner is also bounded by its transfer batch size
      * @return
      */
     public Map<String, List<ConnectRecord>> takeEventRecords(int batchSize) {
-        if (eventQueue.isEmpty()) {
-            return null;
-        }
-        List<ConnectRecord> eventRecords = Lists.newArrayList();
-        eventQueue.drainTo(eventRecords, batchSize);
-        return buildWithRunnerNameKeyMap(eventRecords);
+        return takeRecords(batchSize, true, eventCursor);
     }
 
     public Map<String, TransformEngine<ConnectRecord>> getTaskTransformMap() {
@@ -172,55 +238,185 @@ public class CirculatorContext implements TargetRunnerListener {
         return pusherTaskMap;
     }
 
-    public boolean offerTargetTaskQueue(List<ConnectRecord> connectRecords) {
-        Map<String, List<ConnectRecord>> recordMap = buildWithRunnerNameKeyMap(connectRecords);
-        updateRecordQueueMap(recordMap, targetQueueMap);
-        return targetQueue.addAll(connectRecords);
+    /**
+     * get the filter patterns of the runners indexed per event bus
+     *
+     * @return
+     */
+    public EventBusRuleIndex getRuleIndex() {
+        return ruleIndex;
     }
 
     /**
-     * take batch target records
+     * offer transformed records to the target buffer of its runner, the records of absent runners are discarded
      *
-     * @param batchSize
+     * @param connectRecords
+     * @return the records rejected because the runner buffer is full, which should be offered again later
+     */
+    public List<ConnectRecord> offerTargetTaskQueue(List<ConnectRecord> connectRecords) {
+        return offerRecords(connectRecords, false);
+    }
+
+    /**
+     * take batch target records, drained round-robin across runners
+     *
+     * @param batchSize max records taken of all the runners, every runner is also bounded by its trigger batch size
      * @return
      */
     public Map<String, List<ConnectRecord>> takeTargetRecords(Integer batchSize) {
-        if (targetQueue.isEmpty()) {
+        return takeRecords(batchSize, false, targetCursor);
+    }
+
+    private List<ConnectRecord> offerRecords(List<ConnectRecord> connectRecords, boolean eventStage) {
+        List<ConnectRecord> rejectedRecords = Collections.emptyList();
+        if (CollectionUtils.isEmpty(connectRecords)) {
+            return rejectedRecords;
+        }
+        String lastRunnerName = null;
+        RunnerStage runnerStage = null;
+        List<ConnectRecord> discardedRecords = null;
+        for (ConnectRecord connectRecord : connectRecords) {
+            String runnerName = connectRecord.getExtension(RuntimeConfigDefine.RUNNER_NAME);
+            if (runnerStage == null || !Objects.equals(runnerName, lastRunnerName)) {
+                runnerStage = runnerName == null ? null : runnerStageMap.get(runnerName);
+                lastRunnerName = runnerName;
+            }
+            if (runnerStage == null) {
+                if (discardedRecords == null) {
+                    discardedRecords = Lists.newArrayList();
+                }
+                discardedRecords.add(connectRecord);
+                continue;
+            }
+            MpscRingBuffer<ConnectRecord> buffer = eventStage ? runnerStage.getEventBuffer() : runnerStage.getTargetBuffer();
+            if (!buffer.offer(connectRecord)) {
+                if (rejectedRecords.isEmpty()) {
+                    rejectedRecords = Lists.newArrayList();
+                }
+                rejectedRecords.add(connectRecord);
+            }
+        }
+        int discardedNum = 0;
+        if (discardedRecords != null) {
+            LOGGER.warn("runner of the offered records is absent, discard records.size={}", discardedRecords.size());
+            discardedNum = discardedRecords.size();
+            discardedRecordsHandler.accept(discardedRecords);
+        }
+        if (rejectedRecords.size() + discardedNum < connectRecords.size()) {
+            (eventStage ? eventRecordsSignal : targetRecordsSignal).run();
+        }
+        return rejectedRecords;
+    }
+
+    /**
+     * Drain at most batchSize records, every runner contributing at most its own adaptive batch size,
+     * and rotate the first runner between calls, so a noisy runner can not starve the others.
+     */
+    private Map<String, List<ConnectRecord>> takeRecords(int batchSize, boolean eventStage, AtomicInteger cursor) {
+        discardRemovedStages(eventStage);
+        RunnerStage[] stages = this.runnerStages;
+        int stageNum = stages.length;
+        if (stageNum == 0 || batchSize <= 0) {
             return null;
         }
-        List<ConnectRecord> targetRecords = Lists.newArrayList();
-        targetQueue.drainTo(targetRecords, batchSize);
-        return buildWithRunnerNameKeyMap(targetRecords);
+        int start = Math.floorMod(cursor.getAndIncrement(), stageNum);
+        int remaining = batchSize;
+        Map<String, List<ConnectRecord>> recordMap = null;
+        for (int index = 0; index < stageNum && remaining > 0; index++) {
+            RunnerStage runnerStage = stages[(start + index) % stageNum];
+            MpscRingBuffer<ConnectRecord> buffer = eventStage ? runnerStage.getEventBuffer() : runnerStage.getTargetBuffer();
+            if (buffer.isEmpty()) {
+                continue;
+            }
+            AdaptiveBatchController batchController = eventStage ? runnerStage.getTransferBatch() : runnerStage.getTriggerBatch();
+            int quantum = Math.min(batchController.getBatchSize(), remaining);
+            List<ConnectRecord> records = new ArrayList<>(Math.min(quantum, buffer.size()));
+            int count = buffer.drainTo(records, quantum);
+            if (count == 0) {
+                continue;
+            }
+            if (recordMap == null) {
+                recordMap = Maps.newHashMap();
+            }
+            recordMap.put(runnerStage.getRunnerName(), records);
+            remaining -= count;
+        }
+        return recordMap;
     }
 
     /**
-     * user runner-name as key
+     * the records still buffered for a deleted runner are never taken, so they are discarded by the consumer
+     * of the buffer. A producer which looked the stage up before the delete may still offer into it, so a stage
+     * is only dropped once it stayed empty for a full round
      *
-     * @param eventRecords
-     * @return
+     * @param eventStage
      */
-    private Map<String, List<ConnectRecord>> buildWithRunnerNameKeyMap(List<ConnectRecord> eventRecords) {
-        Map<String, List<ConnectRecord>> eventRecordMap = Maps.newHashMap();
-        for (ConnectRecord connectRecord : eventRecords) {
-            String runnerName = connectRecord.getExtension(RuntimeConfigDefine.RUNNER_NAME);
-            List<ConnectRecord> curEventRecords = eventRecordMap.get(runnerName);
-            if (CollectionUtils.isEmpty(curEventRecords)) {
-                curEventRecords = Lists.newArrayList();
+    private void discardRemovedStages(boolean eventStage) {
+        Queue<RemovedStage> removedStages = eventStage ? removedEventStages : removedTargetStages;
+        for (int index = removedStages.size(); index > 0; index--) {
+            RemovedStage removedStage = removedStages.poll();
+            if (removedStage == null) {
+                break;
+            }
+            RunnerStage runnerStage = removedStage.runnerStage;
+            List<ConnectRecord> bufferedRecords = Lists.newArrayList();
+            (eventStage ? runnerStage.getEventBuffer() : runnerStage.getTargetBuffer()).drainTo(bufferedRecords,
+                Integer.MAX_VALUE);
+            if (!bufferedRecords.isEmpty()) {
+                LOGGER.warn("runnerName -{}- is deleted, discard buffered records.size={}",
+                    runnerStage.getRunnerName(), bufferedRecords.size());
+                discardedRecordsHandler.accept(bufferedRecords);
+                removedStage.emptyRound = false;
+                removedStages.add(removedStage);
+            } else if (!removedStage.emptyRound) {
+                removedStage.emptyRound = true;
+                removedStages.add(removedStage);
             }
-            curEventRecords.add(connectRecord);
-            eventRecordMap.put(runnerName, curEventRecords);
         }
-        return eventRecordMap;
     }
 
     /**
-     * get specific thread pool by push name
+     * get the per-runner stage, which exposes the buffers and the current batch sizes of the runner
+     *
+     * @param runnerName
+     * @return null when the runner is absent
+     */
+    public RunnerStage getRunnerStage(String runnerName) {
+        return runnerStageMap.get(runnerName);
+    }
+
+    /**
+     * report the result of a transfer or trigger batch of the runner to its batch size controller
      *
      * @param runnerName
+     * @param eventStage true for the transfer, false for the trigger
+     * @param recordNum
+     * @param latencyMillis
+     * @param failed
+     */
+    public void reportBatch(String runnerName, boolean eventStage, int recordNum, long latencyMillis, boolean failed) {
+        RunnerStage runnerStage = runnerStageMap.get(runnerName);
+        if (runnerStage == null) {
+            return;
+        }
+        AdaptiveBatchController batchController = eventStage ? runnerStage.getTransferBatch() : runnerStage.getTriggerBatch();
+        batchController.onBatchComplete(recordNum, latencyMillis, failed);
+    }
+
+    /**
+     * get the sink scheduler shared by all the runners
+     *
      * @return
      */
-    public ExecutorService getExecutorService(String runnerName) {
-        return pusherExecutorMap.get(runnerName);
+    public SinkScheduler getSinkScheduler() {
+        if (sinkScheduler == null) {
+            synchronized (this) {
+                if (sinkScheduler == null) {
+                    sinkScheduler = new SinkScheduler(sinkMaxThreads, sinkRunnerMaxInflight, sinkRunnerWeight, sinkVirtualThreads);
+                }
+            }
+        }
+        return sinkScheduler;
     }
 
     /**
@@ -235,8 +431,15 @@ public class CirculatorContext implements TargetRunnerListener {
             case ADD:
             case UPDATE:
                 runnerConfigMap.put(runnerName, targetRunnerConfig);
+                if (runnerStageMap.putIfAbsent(runnerName, new RunnerStage(runnerName, runnerQueueCapacity,
+                    initialBatchSize, minBatchSize, maxBatchSize)) == null) {
+                    refreshRunnerStages();
+                }
                 TransformEngine<ConnectRecord> transformChain = new TransformEngine<>(targetRunnerConfig.getComponents(), plugin);
                 taskTransformMap.put(runnerName, transformChain);
+                if (ruleIndexEnable) {
+                    ruleIndex.refresh(targetRunnerConfig, refreshTypeEnum);
+                }
 
                 int endIndex = targetRunnerConfig.getComponents().size() - 1;
                 TargetKeyValue targetKeyValue = new TargetKeyValue(targetRunnerConfig.getComponents().get(endIndex));
@@ -245,9 +448,9 @@ public class CirculatorContext implements TargetRunnerListener {
                     pusherTaskMap.put(runnerName, sinkTask);
                 }
 
-                if (!pusherExecutorMap.containsKey(runnerName)) {
-                    pusherExecutorMap.put(runnerName, initDefaultThreadPoolExecutor(runnerName));
-                }
+                DeliveryStrategy deliveryStrategy = getDeliveryStrategy(targetRunnerConfig);
+                getSinkScheduler().registerRunner(runnerName, deliveryStrategy.getMaxInflight(), deliveryStrategy.getWeight(),
+                    deliveryStrategy.getOrderingLanes());
 
                 if (LOGGER.isInfoEnabled()) {
                     LOGGER.info("runnerName -{}- refresh context by refresh type -{}- succeed", runnerName, refreshTypeEnum.name());
@@ -255,8 +458,18 @@ public class CirculatorContext implements TargetRunnerListener {
                 break;
             case DELETE:
                 runnerConfigMap.remove(runnerName);
+                if (ruleIndexEnable) {
+                    ruleIndex.refresh(targetRunnerConfig, refreshTypeEnum);
+                }
                 taskTransformMap.remove(runnerName);
                 pusherTaskMap.remove(runnerName);
+                getSinkScheduler().removeRunner(runnerName);
+                RunnerStage removedStage = runnerStageMap.remove(runnerName);
+                if (removedStage != null) {
+                    refreshRunnerStages();
+                    removedEventStages.add(new RemovedStage(removedStage));
+                    removedTargetStages.add(new RemovedStage(removedStage));
+                }
                 if (LOGGER.isInfoEnabled()) {
                     LOGGER.info("runnerName -{}- remove context succeed", runnerName);
                 }
@@ -266,15 +479,22 @@ public class CirculatorContext implements TargetRunnerListener {
         }
     }
 
+    private synchronized void refreshRunnerStages() {
+        runnerStages = runnerStageMap.values().toArray(new RunnerStage[0]);
+    }
+
     /**
-     * init default thread poll param, support auto config
+     * get the delivery strategy of the runner, never null
      *
-     * @param threadPollName
+     * @param targetRunnerConfig
      * @return
      */
-    private ExecutorService initDefaultThreadPoolExecutor(String threadPollName) {
-        return new ThreadPoolExecutor(200, 300, 1, TimeUnit.SECONDS,
-            new LinkedBlockingQueue<>(300), ThreadUtils.newThreadFactory(threadPollName, false));
+    public static DeliveryStrategy getDeliveryStrategy(TargetRunnerConfig targetRunnerConfig) {
+        RunOptions runOptions = targetRunnerConfig == null ? null : targetRunnerConfig.getRunOptions();
+        if (runOptions == null || runOptions.getDeliveryStrategy() == null) {
+            return DEFAULT_DELIVERY_STRATEGY;
+        }
+        return runOptions.getDeliveryStrategy();
     }
 
     /**
@@ -328,9 +548,21 @@ public class CirculatorContext implements TargetRunnerListener {
     }
 
     public void releaseExecutorService() throws Exception {
-        for (Map.Entry<String, ExecutorService> pusherExecutor : pusherExecutorMap.entrySet()) {
-            ExecutorService pusher = pusherExecutor.getValue();
-            ShutdownUtils.shutdownThreadPool(pusher);
+        if (sinkScheduler != null) {
+            sinkScheduler.shutdown();
+        }
+    }
+
+    /**
+     * a stage of a deleted runner, which is visited by the consumer of one of its buffers only
+     */
+    private static class RemovedStage {
+        private final RunnerStage runnerStage;
+        // whether the buffer was found empty on the previous visit
+        private boolean emptyRound;
+
+        RemovedStage(RunnerStage runnerStage) {
+            this.runnerStage = runnerStage;
         }
     }
 
@@ -41,4 +41,12 @@ public class OffsetManager {
         this.eventSubscriber.commit(Lists.newArrayList(connectRecord));
     }
 
+    /**
+     * @param connectRecordList
+     * @return the records whose queues are still owned, which may be delivered and committed
+     */
+    public List<ConnectRecord> fence(final List<ConnectRecord> connectRecordList) {
+        return this.eventSubscriber.fence(connectRecordList);
+    }
+
 }
\ No newline at end of file
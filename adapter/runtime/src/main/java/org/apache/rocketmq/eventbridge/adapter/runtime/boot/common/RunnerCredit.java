@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.boot.common;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Credit budget of one runner, in records and bytes.
+ * The subscriber acquires credits for every record it pulls and the records give them back once
+ * they are committed, which happens after SinkTask.put completes, after being filtered or after
+ * being handled by the error handler. Pulling stops while the budget is exhausted.
+ */
+public class RunnerCredit {
+
+    private final long maxRecords;
+
+    private final long maxBytes;
+
+    private final AtomicLong inflightRecords = new AtomicLong();
+
+    private final AtomicLong inflightBytes = new AtomicLong();
+
+    private final List<Runnable> refillListeners = new CopyOnWriteArrayList<>();
+
+    public RunnerCredit(long maxRecords, long maxBytes) {
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The byte budget may be overdrawn by the last acquire, because the size of a batch is only known
+     * after it is pulled.
+     *
+     * @return whether more records may be pulled
+     */
+    public boolean hasCredit() {
+        return inflightRecords.get() < maxRecords && inflightBytes.get() < maxBytes;
+    }
+
+    /**
+     * @return the number of records which may still be pulled
+     */
+    public int availableRecords() {
+        if (inflightBytes.get() >= maxBytes) {
+            return 0;
+        }
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, maxRecords - inflightRecords.get()));
+    }
+
+    public void acquire(int records, long bytes) {
+        inflightRecords.addAndGet(records);
+        inflightBytes.addAndGet(bytes);
+    }
+
+    /**
+     * give back credits and notify refill listeners when the release crosses back into credit, so pulling
+     * may resume
+     *
+     * @param records
+     * @param bytes
+     */
+    public void release(int records, long bytes) {
+        long releasedRecords = inflightRecords.addAndGet(-records);
+        long releasedBytes = inflightBytes.addAndGet(-bytes);
+        boolean hadCredit = releasedRecords + records < maxRecords && releasedBytes + bytes < maxBytes;
+        if (!hadCredit && hasCredit()) {
+            for (Runnable refillListener : refillListeners) {
+                refillListener.run();
+            }
+        }
+    }
+
+    public void registerRefillListener(Runnable refillListener) {
+        refillListeners.add(refillListener);
+    }
+
+    public long getInflightRecords() {
+        return inflightRecords.get();
+    }
+
+    public long getInflightBytes() {
+        return inflightBytes.get();
+    }
+
+    public long getMaxRecords() {
+        return maxRecords;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
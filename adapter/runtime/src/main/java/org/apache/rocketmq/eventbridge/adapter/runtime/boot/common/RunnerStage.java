@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.boot.common;
+
+import io.openmessaging.connector.api.data.ConnectRecord;
+
+/**
+ * The per-runner buffers between listener, transfer and trigger
+ */
+public class RunnerStage {
+
+    private final String runnerName;
+
+    private final MpscRingBuffer<ConnectRecord> eventBuffer;
+
+    private final MpscRingBuffer<ConnectRecord> targetBuffer;
+
+    private final AdaptiveBatchController transferBatch;
+
+    private final AdaptiveBatchController triggerBatch;
+
+    public RunnerStage(String runnerName, int capacity, int initialBatchSize, int minBatchSize, int maxBatchSize) {
+        this.runnerName = runnerName;
+        this.eventBuffer = new MpscRingBuffer<>(capacity);
+        this.targetBuffer = new MpscRingBuffer<>(capacity);
+        this.transferBatch = new AdaptiveBatchController(runnerName + "-transfer", initialBatchSize, minBatchSize, maxBatchSize);
+        this.triggerBatch = new AdaptiveBatchController(runnerName + "-trigger", initialBatchSize, minBatchSize, maxBatchSize);
+    }
+
+    public String getRunnerName() {
+        return runnerName;
+    }
+
+    public MpscRingBuffer<ConnectRecord> getEventBuffer() {
+        return eventBuffer;
+    }
+
+    public MpscRingBuffer<ConnectRecord> getTargetBuffer() {
+        return targetBuffer;
+    }
+
+    /**
+     * batch size of the records transformed per round
+     */
+    public AdaptiveBatchController getTransferBatch() {
+        return transferBatch;
+    }
+
+    /**
+     * batch size of the records put to the sink task at once
+     */
+    public AdaptiveBatchController getTriggerBatch() {
+        return triggerBatch;
+    }
+}
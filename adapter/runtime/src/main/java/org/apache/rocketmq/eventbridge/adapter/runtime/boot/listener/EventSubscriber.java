@@ -42,6 +42,26 @@ public abstract class EventSubscriber implements TargetRunnerListener {
      */
     public abstract List<ConnectRecord> pull();
 
+    /**
+     * Whether the records can be pulled by runner, the fused pipeline is refused at startup otherwise.
+     *
+     * @return
+     */
+    public boolean supportsRunnerPull() {
+        return false;
+    }
+
+    /**
+     * Pull connect records of one runner from store, used by the fused pipeline which polls every runner
+     * on its own worker. Blocking method when is empty. Only called when {@link #supportsRunnerPull()}.
+     *
+     * @param runnerName
+     * @return
+     */
+    public List<ConnectRecord> pull(String runnerName) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support pulling by runner");
+    }
+
     /**
      * Commit connect records.
      *
@@ -49,6 +69,17 @@ public abstract class EventSubscriber implements TargetRunnerListener {
      */
     public abstract void commit(List<ConnectRecord> connectRecordList);
 
+    /**
+     * Drop the records which may no longer be delivered, because their queue was rebalanced away since they
+     * were pulled and the new owner redelivers them. The dropped records are not committed either.
+     *
+     * @param connectRecordList
+     * @return the records still owned, the given list when none was dropped
+     */
+    public List<ConnectRecord> fence(List<ConnectRecord> connectRecordList) {
+        return connectRecordList;
+    }
+
     /**
      * close resource such as consumer
      */
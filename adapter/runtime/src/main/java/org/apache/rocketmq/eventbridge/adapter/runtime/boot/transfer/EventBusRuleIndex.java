@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.boot.transfer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonPrimitive;
+import io.openmessaging.connector.api.data.ConnectRecord;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.LoggerName;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.entity.TargetRunnerConfig;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.enums.RefreshTypeEnum;
+import org.apache.rocketmq.eventbridge.adapter.runtime.config.RuntimeConfigDefine;
+import org.apache.rocketmq.eventbridge.event.EventBridgeEvent;
+import org.apache.rocketmq.eventbridge.tools.pattern.PatternEvaluatorBuilder;
+import org.apache.rocketmq.eventbridge.tools.pattern.PatternIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The filter patterns of the runners indexed per event bus, so an event is matched against all the rules of its
+ * bus in one pass instead of once by the filter transform of every runner.
+ * <p>
+ * An event is matched as the filter transform matches it: the spec attributes come from the record extensions,
+ * no extension attributes are provided, and the data is the json of the record data.
+ */
+public class EventBusRuleIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoggerName.EVENT_RULE_TRANSFER);
+
+    private static final Gson GSON = new Gson();
+
+    private final Map<String/*EventBus*/, PatternIndex> busIndexMap = new ConcurrentHashMap<>();
+
+    private final Map<String/*RunnerName*/, String/*EventBus*/> runnerBusMap = new ConcurrentHashMap<>();
+
+    /**
+     * refresh the rule of the runner where config changed, only the changed rule is recompiled
+     *
+     * @param targetRunnerConfig
+     * @param refreshTypeEnum
+     */
+    public synchronized void refresh(TargetRunnerConfig targetRunnerConfig, RefreshTypeEnum refreshTypeEnum) {
+        String runnerName = targetRunnerConfig.getName();
+        removeRunner(runnerName);
+        if (refreshTypeEnum == RefreshTypeEnum.DELETE) {
+            return;
+        }
+        String filterPattern = getFilterPattern(targetRunnerConfig);
+        if (filterPattern == null) {
+            return;
+        }
+        String busKey = targetRunnerConfig.getAccountId() + "/" + targetRunnerConfig.getEventBusName();
+        try {
+            busIndexMap.computeIfAbsent(busKey, key -> new PatternIndex())
+                .put(runnerName, PatternEvaluatorBuilder.build(filterPattern));
+            runnerBusMap.put(runnerName, busKey);
+        } catch (Exception exception) {
+            // the filter transform fails the same way, so the runner is left to it
+            LOGGER.warn("index filter pattern of runner {} failed, filter by its transform.", runnerName, exception);
+        }
+    }
+
+    private void removeRunner(String runnerName) {
+        String busKey = runnerBusMap.remove(runnerName);
+        if (busKey == null) {
+            return;
+        }
+        PatternIndex patternIndex = busIndexMap.get(busKey);
+        if (patternIndex != null) {
+            patternIndex.remove(runnerName);
+            if (patternIndex.isEmpty()) {
+                busIndexMap.remove(busKey);
+            }
+        }
+    }
+
+    /**
+     * the filter pattern of the runner, null if the runner has none or more than one filter
+     *
+     * @param targetRunnerConfig
+     * @return
+     */
+    private String getFilterPattern(TargetRunnerConfig targetRunnerConfig) {
+        if (targetRunnerConfig.getComponents() == null) {
+            return null;
+        }
+        String filterPattern = null;
+        for (Map<String, String> component : targetRunnerConfig.getComponents()) {
+            String pattern = component.get(RuntimeConfigDefine.FILTER_PATTERN);
+            if (pattern == null) {
+                continue;
+            }
+            if (filterPattern != null) {
+                return null;
+            }
+            filterPattern = pattern;
+        }
+        return filterPattern;
+    }
+
+    /**
+     * whether the filter of the runner is indexed
+     *
+     * @param runnerName
+     * @return
+     */
+    public boolean contains(String runnerName) {
+        return runnerBusMap.containsKey(runnerName);
+    }
+
+    /**
+     * match the record against all the rules of the event bus of the runner
+     *
+     * @param runnerName the runner the record was pulled for
+     * @param connectRecord
+     * @return the names of the matched runners of the bus, null if the filter of the runner is not indexed
+     */
+    public Set<String> match(String runnerName, ConnectRecord connectRecord) {
+        String busKey = runnerBusMap.get(runnerName);
+        PatternIndex patternIndex = busKey == null ? null : busIndexMap.get(busKey);
+        if (patternIndex == null) {
+            return null;
+        }
+        Map<String, JsonElement> specAttrs = new HashMap<>();
+        for (String attrName : patternIndex.getSpecAttrNames()) {
+            String attrValue = EventBridgeEvent.getAttributeKeys().contains(attrName) ? connectRecord.getExtension(attrName) : null;
+            if (attrValue != null) {
+                specAttrs.put(attrName, new JsonPrimitive(attrValue));
+            }
+        }
+        JsonElement data = patternIndex.hasDataPattern() ? GSON.toJsonTree(connectRecord.getData()) : JsonNull.INSTANCE;
+        return patternIndex.match(specAttrs, Collections.emptyMap(), data);
+    }
+}
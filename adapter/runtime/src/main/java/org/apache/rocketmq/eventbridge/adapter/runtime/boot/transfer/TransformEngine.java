@@ -41,6 +41,11 @@ public class TransformEngine<R extends ConnectRecord> implements AutoCloseable {
 
     private final List<Transform> transformList;
 
+    /**
+     * the transforms filtering by a filter pattern, skipped for records already matched by the rule index
+     */
+    private final List<Transform> filterTransformList;
+
     private List<Map<String, String>> transferConfigs;
 
     private final KeyValue config;
@@ -56,6 +61,7 @@ public class TransformEngine<R extends ConnectRecord> implements AutoCloseable {
         this.config = formatTargetKey(transferConfigs);
         this.plugin = plugin;
         transformList = new ArrayList<>(8);
+        filterTransformList = new ArrayList<>(1);
         init();
     }
 
@@ -75,6 +81,9 @@ public class TransformEngine<R extends ConnectRecord> implements AutoCloseable {
                 transform.validate(transformConfig);
                 transform.init(transformConfig);
                 this.transformList.add(transform);
+                if (transferMap.containsKey(RuntimeConfigDefine.FILTER_PATTERN)) {
+                    this.filterTransformList.add(transform);
+                }
             } catch (Exception e) {
                 LOGGER.error("transform new instance error", e);
             }
@@ -107,10 +116,24 @@ public class TransformEngine<R extends ConnectRecord> implements AutoCloseable {
      * @return
      */
     public R doTransforms(R connectRecord) {
+        return doTransforms(connectRecord, false);
+    }
+
+    /**
+     * transform event record for target record
+     *
+     * @param connectRecord
+     * @param filterMatched whether the record already matched the filter pattern, then the filter transforms are skipped
+     * @return
+     */
+    public R doTransforms(R connectRecord, boolean filterMatched) {
         if (transformList.size() == 0) {
             return connectRecord;
         }
         for (final Transform<R> transform : transformList) {
+            if (filterMatched && filterTransformList.contains(transform)) {
+                continue;
+            }
             final R currentRecord = connectRecord;
             connectRecord = transform.doTransform(currentRecord);
             if (connectRecord == null) {
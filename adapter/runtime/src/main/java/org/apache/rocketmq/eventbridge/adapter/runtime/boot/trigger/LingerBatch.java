@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.boot.trigger;
+
+import io.openmessaging.connector.api.data.ConnectRecord;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records of one runner accumulated by the trigger until the batch is large enough or old enough to be put
+ * to the sink task. Only touched by the trigger thread.
+ */
+public class LingerBatch {
+
+    private List<ConnectRecord> records = new ArrayList<>();
+
+    private long bytes;
+
+    private long firstRecordTime;
+
+    public void addAll(List<ConnectRecord> connectRecords, long now) {
+        if (connectRecords.isEmpty()) {
+            return;
+        }
+        if (records.isEmpty()) {
+            firstRecordTime = now;
+        }
+        records.addAll(connectRecords);
+        for (ConnectRecord connectRecord : connectRecords) {
+            bytes += estimateSize(connectRecord);
+        }
+    }
+
+    /**
+     * @param now
+     * @param maxRecords
+     * @param maxBytes non-positive means unbounded
+     * @param lingerMs
+     * @return whether the batch should be put now
+     */
+    public boolean isReady(long now, int maxRecords, long maxBytes, long lingerMs) {
+        if (records.isEmpty()) {
+            return false;
+        }
+        return records.size() >= maxRecords || (maxBytes > 0 && bytes >= maxBytes) || now - firstRecordTime >= lingerMs;
+    }
+
+    /**
+     * @param lingerMs
+     * @return the time the batch must be put at the latest
+     */
+    public long deadline(long lingerMs) {
+        return firstRecordTime + lingerMs;
+    }
+
+    /**
+     * hand over at most maxRecords of the accumulated records, the rest keep lingering
+     *
+     * @param maxRecords
+     * @return
+     */
+    public List<ConnectRecord> drain(int maxRecords) {
+        return drain(maxRecords, 0);
+    }
+
+    /**
+     * hand over at most maxRecords of the accumulated records and no more than maxBytes of them, but at least
+     * one record, the rest keep lingering
+     *
+     * @param maxRecords
+     * @param maxBytes non-positive means unbounded
+     * @return
+     */
+    public List<ConnectRecord> drain(int maxRecords, long maxBytes) {
+        if (maxBytes > 0) {
+            long drainedBytes = 0;
+            int drainedNum = 0;
+            while (drainedNum < Math.min(maxRecords, records.size())) {
+                long size = estimateSize(records.get(drainedNum));
+                if (drainedNum > 0 && drainedBytes + size > maxBytes) {
+                    break;
+                }
+                drainedBytes += size;
+                drainedNum++;
+            }
+            maxRecords = drainedNum;
+        }
+        if (records.size() <= maxRecords) {
+            List<ConnectRecord> drained = records;
+            records = new ArrayList<>(drained.size());
+            bytes = 0;
+            return drained;
+        }
+        List<ConnectRecord> drained = new ArrayList<>(records.subList(0, maxRecords));
+        records = new ArrayList<>(records.subList(maxRecords, records.size()));
+        bytes = 0;
+        for (ConnectRecord connectRecord : records) {
+            bytes += estimateSize(connectRecord);
+        }
+        return drained;
+    }
+
+    public boolean isEmpty() {
+        return records.isEmpty();
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * size of the record data, only known for binary and text data
+     *
+     * @param connectRecord
+     * @return
+     */
+    static long estimateSize(ConnectRecord connectRecord) {
+        Object data = connectRecord.getData();
+        if (data instanceof byte[]) {
+            return ((byte[]) data).length;
+        }
+        if (data instanceof ByteBuffer) {
+            return ((ByteBuffer) data).remaining();
+        }
+        if (data instanceof CharSequence) {
+            return ((CharSequence) data).length();
+        }
+        return 0;
+    }
+}
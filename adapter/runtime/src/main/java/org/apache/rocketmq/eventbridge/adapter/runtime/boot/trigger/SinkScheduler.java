@@ -0,0 +1,362 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.boot.trigger;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.common.utils.ThreadUtils;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.LoggerName;
+import org.apache.rocketmq.eventbridge.adapter.runtime.utils.ShutdownUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sink execution engine shared by all the runners.
+ * Every runner has its own pending queue, a max-in-flight limit and a weight. Pending tasks are dispatched
+ * by weighted deficit round-robin, so a runner with a slow target only holds its own share of threads.
+ * Tasks run on virtual threads when the JVM supports them, otherwise on an elastic platform thread pool.
+ */
+public class SinkScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoggerName.EVENT_TARGET_TRIGGER);
+
+    private final ExecutorService executor;
+
+    private final boolean virtualThreads;
+
+    /**
+     * global in-flight limit, only bounded for platform threads
+     */
+    private final int maxThreads;
+
+    private final int defaultMaxInflight;
+
+    private final int defaultWeight;
+
+    private final Map<String/*RunnerName*/, RunnerLane> laneMap = new LinkedHashMap<>();
+
+    private final List<RunnerLane> lanes = new ArrayList<>();
+
+    private int inflight;
+
+    private int cursor;
+
+    public SinkScheduler(int maxThreads, int defaultMaxInflight, int defaultWeight, boolean preferVirtualThreads) {
+        ExecutorService virtualExecutor = preferVirtualThreads ? newVirtualThreadExecutor() : null;
+        this.virtualThreads = virtualExecutor != null;
+        this.maxThreads = virtualThreads ? Integer.MAX_VALUE : Math.max(1, maxThreads);
+        this.defaultMaxInflight = Math.max(1, defaultMaxInflight);
+        this.defaultWeight = Math.max(1, defaultWeight);
+        if (virtualThreads) {
+            this.executor = virtualExecutor;
+        } else {
+            // threads are created on demand and reclaimed when idle, the dispatch keeps the concurrency under maxThreads
+            this.executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), ThreadUtils.newThreadFactory("EventTargetSinkWorker", false));
+        }
+        LOGGER.info("sink scheduler started, virtualThreads={}, maxThreads={}", virtualThreads, maxThreads);
+    }
+
+    /**
+     * Register or update the limits of a runner.
+     *
+     * @param runnerName
+     * @param maxInflight null for the default
+     * @param weight null for the default
+     */
+    public synchronized void registerRunner(String runnerName, Integer maxInflight, Integer weight) {
+        registerRunner(runnerName, maxInflight, weight, null);
+    }
+
+    /**
+     * Register or update the limits of a runner. A new number of ordered lanes only takes effect once the
+     * ordered lanes of the runner are drained, see {@link #getOrderedLaneNum(String)}.
+     *
+     * @param runnerName
+     * @param maxInflight null for the default
+     * @param weight null for the default
+     * @param orderedLaneNum null for the default, which does not change with the runner
+     */
+    public synchronized void registerRunner(String runnerName, Integer maxInflight, Integer weight, Integer orderedLaneNum) {
+        RunnerLane lane = getOrCreateLane(runnerName);
+        lane.maxInflight = maxInflight != null && maxInflight > 0 ? maxInflight : defaultMaxInflight;
+        lane.weight = weight != null && weight > 0 ? weight : defaultWeight;
+        lane.targetOrderedLaneNum = orderedLaneNum != null && orderedLaneNum > 0 ? orderedLaneNum : defaultMaxInflight;
+        lane.removed = false;
+        dispatch();
+    }
+
+    /**
+     * Remove a runner, the tasks already submitted are still executed.
+     *
+     * @param runnerName
+     */
+    public synchronized void removeRunner(String runnerName) {
+        RunnerLane lane = laneMap.get(runnerName);
+        if (lane != null) {
+            lane.removed = true;
+            releaseIfIdle(lane);
+        }
+    }
+
+    /**
+     * Submit a sink task of the runner, it runs once the runner is under its in-flight limit.
+     *
+     * @param runnerName
+     * @param task
+     */
+    public synchronized void submit(String runnerName, Runnable task) {
+        RunnerLane lane = getOrCreateLane(runnerName);
+        lane.pending.add(task);
+        dispatch();
+    }
+
+    /**
+     * Submit a sink task onto a sequential lane of the runner. Tasks of the same lane run one after another
+     * in submission order, while different lanes of the runner still run in parallel.
+     *
+     * @param runnerName
+     * @param laneIndex
+     * @param task
+     */
+    public synchronized void submitOrdered(String runnerName, int laneIndex, Runnable task) {
+        RunnerLane lane = getOrCreateLane(runnerName);
+        OrderedLane orderedLane = lane.orderedLanes.get(laneIndex);
+        if (orderedLane == null) {
+            orderedLane = new OrderedLane(lane, laneIndex);
+            lane.orderedLanes.put(laneIndex, orderedLane);
+        }
+        orderedLane.tasks.add(task);
+        if (!orderedLane.scheduled) {
+            orderedLane.scheduled = true;
+            lane.pending.add(orderedLane);
+            dispatch();
+        }
+    }
+
+    /**
+     * The number of ordered lanes the records of the runner are hashed onto. A changed number only takes
+     * effect once no ordered lane of the runner is pending or in flight, so the records of a key never run
+     * on two lanes at once.
+     *
+     * @param runnerName
+     * @return
+     */
+    public synchronized int getOrderedLaneNum(String runnerName) {
+        RunnerLane lane = getOrCreateLane(runnerName);
+        if (lane.orderedLaneNum != lane.targetOrderedLaneNum && lane.orderedLanes.isEmpty()) {
+            lane.orderedLaneNum = lane.targetOrderedLaneNum;
+        }
+        return lane.orderedLaneNum;
+    }
+
+    /**
+     * @param runnerName
+     * @return number of the runner tasks submitted but not finished
+     */
+    public synchronized int pendingAndInflight(String runnerName) {
+        RunnerLane lane = laneMap.get(runnerName);
+        return lane == null ? 0 : lane.pending.size() + lane.inflight;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void shutdown() {
+        ShutdownUtils.shutdownThreadPool(executor);
+    }
+
+    private RunnerLane getOrCreateLane(String runnerName) {
+        RunnerLane lane = laneMap.get(runnerName);
+        if (lane == null) {
+            lane = new RunnerLane(runnerName);
+            lane.maxInflight = defaultMaxInflight;
+            lane.weight = defaultWeight;
+            lane.orderedLaneNum = defaultMaxInflight;
+            lane.targetOrderedLaneNum = defaultMaxInflight;
+            laneMap.put(runnerName, lane);
+            lanes.add(lane);
+        }
+        return lane;
+    }
+
+    /**
+     * weighted deficit round-robin over the lanes with pending tasks
+     */
+    private void dispatch() {
+        boolean dispatched = true;
+        while (dispatched && inflight < maxThreads && !executor.isShutdown()) {
+            dispatched = false;
+            int laneNum = lanes.size();
+            for (int index = 0; index < laneNum && inflight < maxThreads; index++) {
+                RunnerLane lane = lanes.get((cursor + index) % laneNum);
+                if (lane.pending.isEmpty() || lane.inflight >= lane.maxInflight) {
+                    lane.deficit = 0;
+                    continue;
+                }
+                lane.deficit += lane.weight;
+                while (lane.deficit > 0 && !lane.pending.isEmpty() && lane.inflight < lane.maxInflight
+                    && inflight < maxThreads) {
+                    if (!execute(lane, lane.pending.peek())) {
+                        return;
+                    }
+                    lane.pending.poll();
+                    lane.deficit--;
+                    dispatched = true;
+                }
+            }
+            if (laneNum > 0) {
+                cursor = (cursor + 1) % laneNum;
+            }
+        }
+    }
+
+    private boolean execute(RunnerLane lane, Runnable task) {
+        lane.inflight++;
+        inflight++;
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    LOGGER.error("sink task of runner {} failed, stackTrace-", lane.runnerName, t);
+                } finally {
+                    complete(lane);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException exception) {
+            lane.inflight--;
+            inflight--;
+            LOGGER.warn("sink task of runner {} rejected, the sink scheduler is shutdown", lane.runnerName);
+            return false;
+        }
+    }
+
+    private synchronized void complete(RunnerLane lane) {
+        lane.inflight--;
+        inflight--;
+        releaseIfIdle(lane);
+        dispatch();
+    }
+
+    private void releaseIfIdle(RunnerLane lane) {
+        if (lane.removed && lane.inflight == 0 && lane.pending.isEmpty() && laneMap.get(lane.runnerName) == lane) {
+            laneMap.remove(lane.runnerName);
+            lanes.remove(lane);
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor is looked up reflectively, so the runtime still builds and
+     * runs on Java 8.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (Throwable t) {
+            LOGGER.info("virtual threads are not supported by the current jvm, use platform threads instead");
+            return null;
+        }
+    }
+
+    private static class RunnerLane {
+
+        private final String runnerName;
+
+        private final Queue<Runnable> pending = new ArrayDeque<>();
+
+        private int maxInflight;
+
+        private int weight;
+
+        private int inflight;
+
+        private int deficit;
+
+        private boolean removed;
+
+        /**
+         * ordered lanes the records are hashed onto now, and the number to switch to once they are drained
+         */
+        private int orderedLaneNum;
+
+        private int targetOrderedLaneNum;
+
+        private final Map<Integer, OrderedLane> orderedLanes = new LinkedHashMap<>();
+
+        RunnerLane(String runnerName) {
+            this.runnerName = runnerName;
+        }
+    }
+
+    /**
+     * A sequential lane, at most one of its tasks is pending or in flight at any time.
+     */
+    private class OrderedLane implements Runnable {
+
+        private final RunnerLane runnerLane;
+
+        private final int laneIndex;
+
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        private boolean scheduled;
+
+        OrderedLane(RunnerLane runnerLane, int laneIndex) {
+            this.runnerLane = runnerLane;
+            this.laneIndex = laneIndex;
+        }
+
+        @Override
+        public void run() {
+            Runnable task;
+            synchronized (SinkScheduler.this) {
+                task = tasks.poll();
+            }
+            try {
+                if (task != null) {
+                    task.run();
+                }
+            } finally {
+                synchronized (SinkScheduler.this) {
+                    if (tasks.isEmpty()) {
+                        scheduled = false;
+                        runnerLane.orderedLanes.remove(laneIndex);
+                    } else {
+                        // requeue behind the other pending tasks to keep the fair share
+                        runnerLane.pending.add(this);
+                    }
+                }
+            }
+        }
+    }
+}
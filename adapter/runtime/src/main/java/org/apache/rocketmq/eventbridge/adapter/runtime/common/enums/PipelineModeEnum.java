@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.common.enums;
+
+import com.google.common.base.Strings;
+
+/**
+ * how the runtime moves the events of a runner from the subscriber to the sink task
+ */
+public enum PipelineModeEnum {
+    /**
+     * listener, transfer and trigger threads shared by all the runners, handing records over through buffers
+     */
+    STAGED,
+    /**
+     * one worker per runner polls, transforms and puts its records without intermediate buffers
+     */
+    FUSED;
+
+    public static PipelineModeEnum parse(String code) {
+        if (Strings.isNullOrEmpty(code)) {
+            return STAGED;
+        }
+        for (PipelineModeEnum pipelineModeEnum : PipelineModeEnum.values()) {
+            if (pipelineModeEnum.name().equalsIgnoreCase(code)) {
+                return pipelineModeEnum;
+            }
+        }
+        return STAGED;
+    }
+}
@@ -41,4 +41,6 @@ public class RuntimeConfigDefine {
 
     public static final String ACCOUNT_ID = "accountId";
 
+    public static final String FILTER_PATTERN = "filterPattern";
+
 }
@@ -47,6 +47,12 @@ public class ErrorHandler {
     public void handle(ConnectRecord connectRecord, Throwable t) {
         String eventRunnerName = connectRecord.getExtension(RUNNER_NAME);
         TargetRunnerConfig targetRunnerConfig = circulatorContext.getRunnerConfig(eventRunnerName);
+        if (targetRunnerConfig == null) {
+            // the runner is deleted, its records have nowhere to be retried
+            log.warn("runner of the failed record is absent, discard it. runnerName={}", eventRunnerName);
+            offsetManager.commit(connectRecord);
+            return;
+        }
         String eventBusName = targetRunnerConfig.getEventBusName();
         PushRetryStrategyEnum pushRetryStrategyEnum = targetRunnerConfig.getRunOptions().getRetryStrategy().getPushRetryStrategy();
 
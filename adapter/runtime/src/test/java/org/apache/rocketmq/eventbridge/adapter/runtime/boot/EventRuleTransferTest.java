@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.boot;
+
+import io.openmessaging.connector.api.data.ConnectRecord;
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.CirculatorContext;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.OffsetManager;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.transfer.TransformEngine;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.entity.TargetRunnerConfig;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.plugin.Plugin;
+import org.apache.rocketmq.eventbridge.adapter.runtime.config.RuntimeConfigDefine;
+import org.apache.rocketmq.eventbridge.adapter.runtime.error.ErrorHandler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.awaitility.Awaitility.await;
+
+public class EventRuleTransferTest {
+
+    private static final String RUNNER_NAME = "runner";
+
+    private final CirculatorContext circulatorContext = new CirculatorContext();
+
+    private final List<ConnectRecord> committedRecords = new CopyOnWriteArrayList<>();
+
+    private final List<ConnectRecord> handledRecords = new CopyOnWriteArrayList<>();
+
+    private EventRuleTransfer eventRuleTransfer;
+
+    @Before
+    public void setUp() throws Exception {
+        // the plugin is autowired, it finds no plugin class loader and the runner keeps no sink task
+        Field pluginField = CirculatorContext.class.getDeclaredField("plugin");
+        pluginField.setAccessible(true);
+        pluginField.set(circulatorContext, new Plugin());
+        Map<String, String> component = Collections.singletonMap(RuntimeConfigDefine.RUNNER_CLASS, "stub");
+        TargetRunnerConfig targetRunnerConfig = new TargetRunnerConfig();
+        targetRunnerConfig.setName(RUNNER_NAME);
+        targetRunnerConfig.setComponents(Collections.nCopies(2, component));
+        circulatorContext.onAddTargetRunner(targetRunnerConfig);
+        // the records marked "fatal" abort the chunk they belong to
+        circulatorContext.getTaskTransformMap().put(RUNNER_NAME,
+            new TransformEngine<ConnectRecord>(targetRunnerConfig.getComponents(), null) {
+                @Override
+                public ConnectRecord doTransforms(ConnectRecord connectRecord, boolean filterMatched) {
+                    if (connectRecord.getExtension("fatal") != null) {
+                        throw new NoClassDefFoundError("fatal record");
+                    }
+                    return connectRecord;
+                }
+            });
+        OffsetManager offsetManager = new OffsetManager() {
+            @Override
+            public void commit(List<ConnectRecord> connectRecordList) {
+                committedRecords.addAll(connectRecordList);
+            }
+        };
+        ErrorHandler errorHandler = new ErrorHandler() {
+            @Override
+            public void handle(ConnectRecord connectRecord, Throwable t) {
+                handledRecords.add(connectRecord);
+            }
+        };
+        eventRuleTransfer = new EventRuleTransfer(circulatorContext, offsetManager, errorHandler, 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        eventRuleTransfer.makeStop();
+        eventRuleTransfer.shutdown();
+        circulatorContext.releaseExecutorService();
+    }
+
+    @Test
+    public void testChunksKeepTheRecordOrder() {
+        List<ConnectRecord> connectRecords = buildRecords(40);
+        Assert.assertTrue(circulatorContext.offerEventRecords(connectRecords).isEmpty());
+        eventRuleTransfer.start();
+
+        List<ConnectRecord> targetRecords = new ArrayList<>();
+        await().atMost(Duration.ofSeconds(10)).until(() -> {
+            Map<String, List<ConnectRecord>> recordMap = circulatorContext.takeTargetRecords(100);
+            if (recordMap != null && recordMap.containsKey(RUNNER_NAME)) {
+                targetRecords.addAll(recordMap.get(RUNNER_NAME));
+            }
+            return targetRecords.size() == connectRecords.size();
+        });
+        Assert.assertEquals(connectRecords, targetRecords);
+        Assert.assertTrue(handledRecords.isEmpty());
+    }
+
+    @Test
+    public void testFailedChunkRoutesAllRecordsToErrorHandler() {
+        List<ConnectRecord> connectRecords = buildRecords(40);
+        // the first chunk is transformed by a worker and fails, the last one by the transfer thread succeeds
+        connectRecords.get(0).addExtension("fatal", "true");
+        Assert.assertTrue(circulatorContext.offerEventRecords(connectRecords).isEmpty());
+        eventRuleTransfer.start();
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> handledRecords.size() == connectRecords.size());
+        Assert.assertEquals(new HashSet<>(connectRecords), new HashSet<>(handledRecords));
+        Assert.assertTrue(committedRecords.isEmpty());
+        Assert.assertNull(circulatorContext.takeTargetRecords(100));
+    }
+
+    private static List<ConnectRecord> buildRecords(int recordNum) {
+        List<ConnectRecord> connectRecords = new ArrayList<>();
+        for (int index = 0; index < recordNum; index++) {
+            ConnectRecord connectRecord = new ConnectRecord(null, null, System.currentTimeMillis());
+            connectRecord.addExtension(RuntimeConfigDefine.RUNNER_NAME, RUNNER_NAME);
+            connectRecord.addExtension("index", String.valueOf(index));
+            connectRecords.add(connectRecord);
+        }
+        return connectRecords;
+    }
+}
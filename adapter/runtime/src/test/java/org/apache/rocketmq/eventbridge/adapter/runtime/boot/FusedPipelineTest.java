@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.boot;
+
+import io.openmessaging.KeyValue;
+import io.openmessaging.connector.api.component.task.sink.SinkTask;
+import io.openmessaging.connector.api.data.ConnectRecord;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.CirculatorContext;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.OffsetManager;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.listener.EventSubscriber;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.transfer.TransformEngine;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.entity.SubscribeRunnerKeys;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.entity.TargetRunnerConfig;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.enums.RefreshTypeEnum;
+import org.apache.rocketmq.eventbridge.adapter.runtime.config.RuntimeConfigDefine;
+import org.apache.rocketmq.eventbridge.adapter.runtime.error.ErrorHandler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.awaitility.Awaitility.await;
+
+public class FusedPipelineTest {
+
+    private static final String RUNNER_NAME = "runner";
+
+    private final StubEventSubscriber eventSubscriber = new StubEventSubscriber();
+
+    private final StubSinkTask sinkTask = new StubSinkTask();
+
+    private final List<ConnectRecord> handledRecords = new CopyOnWriteArrayList<>();
+
+    private final CirculatorContext circulatorContext = new CirculatorContext();
+
+    private FusedPipeline fusedPipeline;
+
+    @Before
+    public void setUp() {
+        Map<String, String> component = Collections.singletonMap(RuntimeConfigDefine.RUNNER_CLASS, "stub");
+        // the records marked "filtered" are dropped and the records marked "broken" fail to transform
+        circulatorContext.getTaskTransformMap().put(RUNNER_NAME,
+            new TransformEngine<ConnectRecord>(Collections.nCopies(2, component), null) {
+                @Override
+                public ConnectRecord doTransforms(ConnectRecord connectRecord) {
+                    if (connectRecord.getExtension("filtered") != null) {
+                        return null;
+                    }
+                    if (connectRecord.getExtension("broken") != null) {
+                        throw new IllegalArgumentException("broken record");
+                    }
+                    connectRecord.addExtension("transformed", "true");
+                    return connectRecord;
+                }
+            });
+        circulatorContext.getPusherTaskMap().put(RUNNER_NAME, sinkTask);
+        OffsetManager offsetManager = new OffsetManager() {
+            @Override
+            public void commit(List<ConnectRecord> connectRecordList) {
+                eventSubscriber.commit(connectRecordList);
+            }
+
+            @Override
+            public List<ConnectRecord> fence(List<ConnectRecord> connectRecordList) {
+                return eventSubscriber.fence(connectRecordList);
+            }
+        };
+        ErrorHandler errorHandler = new ErrorHandler() {
+            @Override
+            public void handle(ConnectRecord connectRecord, Throwable t) {
+                handledRecords.add(connectRecord);
+            }
+        };
+        fusedPipeline = new FusedPipeline(circulatorContext, eventSubscriber, offsetManager, errorHandler);
+        fusedPipeline.start();
+        fusedPipeline.onAddTargetRunner(buildRunnerConfig());
+    }
+
+    @After
+    public void tearDown() {
+        fusedPipeline.shutdown();
+    }
+
+    @Test
+    public void testPutAndCommitTransformedRecords() {
+        List<ConnectRecord> connectRecords = buildRecords(3, null);
+        eventSubscriber.offer(connectRecords);
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> eventSubscriber.committedRecords.size() == 3);
+        Assert.assertEquals(connectRecords, sinkTask.putRecords);
+        Assert.assertEquals(connectRecords, eventSubscriber.committedRecords);
+        sinkTask.putRecords.forEach(connectRecord -> Assert.assertEquals("true", connectRecord.getExtension("transformed")));
+        Assert.assertTrue(handledRecords.isEmpty());
+    }
+
+    @Test
+    public void testCommitFilteredRecords() {
+        List<ConnectRecord> filteredRecords = buildRecords(2, "filtered");
+        List<ConnectRecord> connectRecords = new ArrayList<>(filteredRecords);
+        connectRecords.addAll(buildRecords(1, null));
+        eventSubscriber.offer(connectRecords);
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> eventSubscriber.committedRecords.size() == 3);
+        Assert.assertEquals(1, sinkTask.putRecords.size());
+        // the filtered records are committed before the put
+        Assert.assertEquals(filteredRecords, eventSubscriber.committedRecords.subList(0, 2));
+        Assert.assertTrue(handledRecords.isEmpty());
+    }
+
+    @Test
+    public void testFailedRecordsGoToErrorHandler() {
+        List<ConnectRecord> brokenRecords = buildRecords(1, "broken");
+        eventSubscriber.offer(brokenRecords);
+        await().atMost(Duration.ofSeconds(10)).until(() -> handledRecords.size() == 1);
+        Assert.assertEquals(brokenRecords, handledRecords);
+        Assert.assertTrue(sinkTask.putRecords.isEmpty());
+
+        sinkTask.failed = true;
+        List<ConnectRecord> connectRecords = buildRecords(2, null);
+        eventSubscriber.offer(connectRecords);
+        await().atMost(Duration.ofSeconds(10)).until(() -> handledRecords.size() == 3);
+        Assert.assertEquals(connectRecords, handledRecords.subList(1, 3));
+        // the error handler commits the records it handled
+        Assert.assertTrue(eventSubscriber.committedRecords.isEmpty());
+    }
+
+    @Test
+    public void testWorkerStopsOnRunnerDelete() throws InterruptedException {
+        await().atMost(Duration.ofSeconds(10)).until(() -> eventSubscriber.pullThread != null);
+        Thread workerThread = eventSubscriber.pullThread;
+        fusedPipeline.onDeleteTargetRunner(buildRunnerConfig());
+        workerThread.join(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertFalse(workerThread.isAlive());
+
+        eventSubscriber.offer(buildRecords(1, null));
+        Thread.sleep(100);
+        Assert.assertTrue(sinkTask.putRecords.isEmpty());
+    }
+
+    private static TargetRunnerConfig buildRunnerConfig() {
+        TargetRunnerConfig targetRunnerConfig = new TargetRunnerConfig();
+        targetRunnerConfig.setName(RUNNER_NAME);
+        return targetRunnerConfig;
+    }
+
+    private static List<ConnectRecord> buildRecords(int recordNum, String mark) {
+        List<ConnectRecord> connectRecords = new ArrayList<>();
+        for (int index = 0; index < recordNum; index++) {
+            ConnectRecord connectRecord = new ConnectRecord(null, null, System.currentTimeMillis());
+            connectRecord.addExtension(RuntimeConfigDefine.RUNNER_NAME, RUNNER_NAME);
+            if (mark != null) {
+                connectRecord.addExtension(mark, "true");
+            }
+            connectRecords.add(connectRecord);
+        }
+        return connectRecords;
+    }
+
+    private static class StubEventSubscriber extends EventSubscriber {
+
+        private final BlockingQueue<List<ConnectRecord>> pullQueue = new LinkedBlockingQueue<>();
+
+        private final List<ConnectRecord> committedRecords = new CopyOnWriteArrayList<>();
+
+        private volatile Thread pullThread;
+
+        void offer(List<ConnectRecord> connectRecords) {
+            pullQueue.add(connectRecords);
+        }
+
+        @Override
+        public void refresh(SubscribeRunnerKeys subscribeRunnerKeys, RefreshTypeEnum refreshTypeEnum) {
+        }
+
+        @Override
+        public List<ConnectRecord> pull() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean supportsRunnerPull() {
+            return true;
+        }
+
+        @Override
+        public List<ConnectRecord> pull(String runnerName) {
+            pullThread = Thread.currentThread();
+            try {
+                List<ConnectRecord> connectRecords = pullQueue.poll(10, TimeUnit.MILLISECONDS);
+                return connectRecords == null ? Collections.emptyList() : connectRecords;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Collections.emptyList();
+            }
+        }
+
+        @Override
+        public void commit(List<ConnectRecord> connectRecordList) {
+            committedRecords.addAll(connectRecordList);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class StubSinkTask extends SinkTask {
+
+        private final List<ConnectRecord> putRecords = new CopyOnWriteArrayList<>();
+
+        private volatile boolean failed = false;
+
+        @Override
+        public void put(List<ConnectRecord> sinkRecords) {
+            if (failed) {
+                throw new IllegalStateException("sink failed");
+            }
+            putRecords.addAll(sinkRecords);
+        }
+
+        @Override
+        public void pause() {
+        }
+
+        @Override
+        public void resume() {
+        }
+
+        @Override
+        public void validate(KeyValue config) {
+        }
+
+        @Override
+        public void init(KeyValue config) {
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+}
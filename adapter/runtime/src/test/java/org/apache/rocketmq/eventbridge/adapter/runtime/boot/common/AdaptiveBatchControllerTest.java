@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.boot.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveBatchControllerTest {
+
+    @Test
+    public void testAdditiveIncreaseWhileLatencyFlat() {
+        AdaptiveBatchController batchController = new AdaptiveBatchController("test", 100, 1, 150);
+        for (int round = 0; round < 10; round++) {
+            batchController.onBatchComplete(batchController.getBatchSize(), 10, false);
+        }
+        Assert.assertEquals(150, batchController.getBatchSize());
+        Assert.assertEquals(5, batchController.getHistory().size());
+        Assert.assertEquals(110, batchController.getHistory().get(0).getBatchSize());
+    }
+
+    @Test
+    public void testPartialBatchKeepsSize() {
+        AdaptiveBatchController batchController = new AdaptiveBatchController("test", 100, 1, 2000);
+        batchController.onBatchComplete(20, 10, false);
+        Assert.assertEquals(100, batchController.getBatchSize());
+        Assert.assertTrue(batchController.getHistory().isEmpty());
+    }
+
+    @Test
+    public void testMultiplicativeDecrease() {
+        AdaptiveBatchController batchController = new AdaptiveBatchController("test", 100, 10, 2000);
+        batchController.onBatchComplete(100, 10, false);
+        Assert.assertEquals(110, batchController.getBatchSize());
+        batchController.onBatchComplete(110, 100, false);
+        Assert.assertEquals(82, batchController.getBatchSize());
+        batchController.onBatchComplete(82, 10, true);
+        Assert.assertEquals(41, batchController.getBatchSize());
+        for (int round = 0; round < 5; round++) {
+            batchController.onBatchComplete(41, 10, true);
+        }
+        Assert.assertEquals(10, batchController.getBatchSize());
+        Assert.assertTrue(batchController.getHistory().get(batchController.getHistory().size() - 1).isFailed());
+    }
+
+    @Test
+    public void testPartialBatchesKeepLatencyAverage() {
+        AdaptiveBatchController batchController = new AdaptiveBatchController("test", 100, 1, 2000);
+        batchController.onBatchComplete(100, 50, false);
+        Assert.assertEquals(110, batchController.getBatchSize());
+        // a quiet period of tiny batches must not make the next full batch look like a latency jump
+        for (int round = 0; round < 50; round++) {
+            batchController.onBatchComplete(2, 1, false);
+        }
+        Assert.assertEquals(50, batchController.getLatencyEwma(), 0.001);
+        batchController.onBatchComplete(110, 55, false);
+        Assert.assertEquals(120, batchController.getBatchSize());
+    }
+}
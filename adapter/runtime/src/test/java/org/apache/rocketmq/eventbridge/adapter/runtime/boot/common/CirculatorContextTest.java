@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.boot.common;
+
+import io.openmessaging.connector.api.data.ConnectRecord;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.rocketmq.eventbridge.adapter.runtime.config.RuntimeConfigDefine;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CirculatorContextTest {
+
+    @Test
+    public void testDiscardRecordsOfAbsentRunner() {
+        CirculatorContext circulatorContext = new CirculatorContext();
+        List<ConnectRecord> discardedRecords = new ArrayList<>();
+        circulatorContext.registerDiscardedRecordsHandler(discardedRecords::addAll);
+
+        List<ConnectRecord> connectRecords = new ArrayList<>();
+        for (int index = 0; index < 3; index++) {
+            ConnectRecord connectRecord = new ConnectRecord(null, null, System.currentTimeMillis());
+            connectRecord.addExtension(RuntimeConfigDefine.RUNNER_NAME, "deleted-runner");
+            connectRecords.add(connectRecord);
+        }
+        Assert.assertTrue(circulatorContext.offerEventRecords(connectRecords).isEmpty());
+        Assert.assertTrue(circulatorContext.offerTargetTaskQueue(connectRecords).isEmpty());
+        Assert.assertEquals(6, discardedRecords.size());
+    }
+}
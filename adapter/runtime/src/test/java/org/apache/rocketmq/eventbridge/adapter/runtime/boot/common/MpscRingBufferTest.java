@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.boot.common;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MpscRingBufferTest {
+
+    @Test
+    public void testOfferAndPollInOrder() {
+        MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<>(3);
+        Assert.assertEquals(4, ringBuffer.capacity());
+        for (int index = 0; index < 4; index++) {
+            Assert.assertTrue(ringBuffer.offer(index));
+        }
+        Assert.assertFalse(ringBuffer.offer(4));
+        Assert.assertEquals(4, ringBuffer.size());
+
+        List<Integer> drained = new ArrayList<>();
+        Assert.assertEquals(2, ringBuffer.drainTo(drained, 2));
+        Assert.assertTrue(ringBuffer.offer(4));
+        Assert.assertTrue(ringBuffer.offer(5));
+        ringBuffer.drainTo(drained, 10);
+        Assert.assertEquals(6, drained.size());
+        for (int index = 0; index < drained.size(); index++) {
+            Assert.assertEquals(index, drained.get(index).intValue());
+        }
+        Assert.assertTrue(ringBuffer.isEmpty());
+        Assert.assertNull(ringBuffer.poll());
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        int producerNum = 4;
+        int recordNum = 10000;
+        MpscRingBuffer<Integer> ringBuffer = new MpscRingBuffer<>(1024);
+        CountDownLatch latch = new CountDownLatch(producerNum);
+        for (int producer = 0; producer < producerNum; producer++) {
+            int base = producer * recordNum;
+            new Thread(() -> {
+                for (int index = 0; index < recordNum; index++) {
+                    while (!ringBuffer.offer(base + index)) {
+                        Thread.yield();
+                    }
+                }
+                latch.countDown();
+            }).start();
+        }
+        Set<Integer> consumed = new HashSet<>();
+        while (consumed.size() < producerNum * recordNum) {
+            Integer element = ringBuffer.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+            Assert.assertTrue(consumed.add(element));
+        }
+        latch.await();
+        Assert.assertTrue(ringBuffer.isEmpty());
+    }
+}
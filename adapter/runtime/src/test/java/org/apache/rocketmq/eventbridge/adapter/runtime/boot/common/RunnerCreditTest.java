@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.boot.common;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RunnerCreditTest {
+
+    @Test
+    public void testAcquireAndRelease() {
+        RunnerCredit runnerCredit = new RunnerCredit(10, 1000);
+        runnerCredit.acquire(4, 400);
+        runnerCredit.acquire(2, 100);
+        Assert.assertEquals(6, runnerCredit.getInflightRecords());
+        Assert.assertEquals(500, runnerCredit.getInflightBytes());
+        Assert.assertEquals(4, runnerCredit.availableRecords());
+
+        runnerCredit.release(5, 450);
+        Assert.assertEquals(1, runnerCredit.getInflightRecords());
+        Assert.assertEquals(50, runnerCredit.getInflightBytes());
+        Assert.assertEquals(9, runnerCredit.availableRecords());
+    }
+
+    @Test
+    public void testHasCreditRespectsBothLimits() {
+        RunnerCredit recordCredit = new RunnerCredit(2, 1000);
+        recordCredit.acquire(2, 10);
+        Assert.assertFalse(recordCredit.hasCredit());
+        Assert.assertEquals(0, recordCredit.availableRecords());
+
+        RunnerCredit byteCredit = new RunnerCredit(10, 100);
+        // the last acquire may overdraw the byte budget
+        byteCredit.acquire(1, 150);
+        Assert.assertFalse(byteCredit.hasCredit());
+        Assert.assertEquals(0, byteCredit.availableRecords());
+        byteCredit.release(0, 60);
+        Assert.assertTrue(byteCredit.hasCredit());
+        Assert.assertEquals(9, byteCredit.availableRecords());
+    }
+
+    @Test
+    public void testRefillListenersFireWhenCreditIsBack() {
+        RunnerCredit runnerCredit = new RunnerCredit(3, 1000);
+        AtomicInteger refillTimes = new AtomicInteger();
+        runnerCredit.registerRefillListener(refillTimes::incrementAndGet);
+
+        runnerCredit.acquire(2, 20);
+        runnerCredit.release(1, 10);
+        // the credit never ran out
+        Assert.assertEquals(0, refillTimes.get());
+
+        runnerCredit.acquire(2, 20);
+        runnerCredit.release(0, 10);
+        // still out of record credits
+        Assert.assertEquals(0, refillTimes.get());
+        runnerCredit.release(1, 10);
+        Assert.assertEquals(1, refillTimes.get());
+        runnerCredit.release(1, 10);
+        Assert.assertEquals(1, refillTimes.get());
+
+        runnerCredit.acquire(0, 2000);
+        runnerCredit.release(0, 1500);
+        Assert.assertEquals(2, refillTimes.get());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.boot.transfer;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import io.openmessaging.connector.api.data.ConnectRecord;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.entity.TargetRunnerConfig;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.enums.RefreshTypeEnum;
+import org.apache.rocketmq.eventbridge.adapter.runtime.config.RuntimeConfigDefine;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EventBusRuleIndexTest {
+
+    @Test
+    public void testMatchRunnersOfBus() {
+        EventBusRuleIndex ruleIndex = new EventBusRuleIndex();
+        ruleIndex.refresh(runnerConfig("runner-ecs", "bus-1", "{\"source\":[\"acs.ecs\"]}"), RefreshTypeEnum.ADD);
+        ruleIndex.refresh(runnerConfig("runner-acs", "bus-1", "{\"source\":[{\"prefix\":\"acs.\"}]}"), RefreshTypeEnum.ADD);
+        ruleIndex.refresh(runnerConfig("runner-other", "bus-2", "{\"source\":[\"acs.ecs\"]}"), RefreshTypeEnum.ADD);
+        ruleIndex.refresh(runnerConfig("runner-all", "bus-1", null), RefreshTypeEnum.ADD);
+
+        ConnectRecord record = new ConnectRecord(null, null, System.currentTimeMillis());
+        record.addExtension("source", "acs.ecs");
+        Assert.assertEquals(Sets.newHashSet("runner-ecs", "runner-acs"), ruleIndex.match("runner-ecs", record));
+        Assert.assertEquals(Sets.newHashSet("runner-other"), ruleIndex.match("runner-other", record));
+        Assert.assertFalse(ruleIndex.contains("runner-all"));
+        Assert.assertNull(ruleIndex.match("runner-all", record));
+
+        ruleIndex.refresh(runnerConfig("runner-ecs", "bus-1", "{\"source\":[\"acs.oss\"]}"), RefreshTypeEnum.UPDATE);
+        Assert.assertEquals(Sets.newHashSet("runner-acs"), ruleIndex.match("runner-acs", record));
+
+        ruleIndex.refresh(runnerConfig("runner-acs", "bus-1", null), RefreshTypeEnum.DELETE);
+        Assert.assertFalse(ruleIndex.contains("runner-acs"));
+        Assert.assertTrue(ruleIndex.match("runner-ecs", record).isEmpty());
+    }
+
+    private TargetRunnerConfig runnerConfig(String runnerName, String eventBusName, String filterPattern) {
+        Map<String, String> listener = new HashMap<>();
+        listener.put(RuntimeConfigDefine.ACCOUNT_ID, "account");
+        listener.put(RuntimeConfigDefine.TARGET_RUNNER_KEY, eventBusName);
+        Map<String, String> filter = new HashMap<>();
+        if (filterPattern != null) {
+            filter.put(RuntimeConfigDefine.FILTER_PATTERN, filterPattern);
+        }
+        TargetRunnerConfig targetRunnerConfig = new TargetRunnerConfig();
+        targetRunnerConfig.setName(runnerName);
+        targetRunnerConfig.setComponents(Lists.newArrayList(listener, filter, new HashMap<>()));
+        return targetRunnerConfig;
+    }
+}
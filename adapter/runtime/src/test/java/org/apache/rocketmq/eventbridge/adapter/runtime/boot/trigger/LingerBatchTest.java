@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.boot.trigger;
+
+import io.openmessaging.connector.api.data.ConnectRecord;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LingerBatchTest {
+
+    @Test
+    public void testReadyByRecordsBytesAndTime() {
+        LingerBatch lingerBatch = new LingerBatch();
+        Assert.assertFalse(lingerBatch.isReady(0, 1, 0, 10));
+        lingerBatch.addAll(buildRecords(3, "abcd"), 100);
+        Assert.assertEquals(12, lingerBatch.getBytes());
+        Assert.assertFalse(lingerBatch.isReady(105, 10, 0, 10));
+        Assert.assertTrue(lingerBatch.isReady(105, 3, 0, 10));
+        Assert.assertTrue(lingerBatch.isReady(105, 10, 12, 10));
+        Assert.assertTrue(lingerBatch.isReady(110, 10, 0, 10));
+        Assert.assertEquals(110, lingerBatch.deadline(10));
+    }
+
+    @Test
+    public void testDrainKeepsRest() {
+        LingerBatch lingerBatch = new LingerBatch();
+        List<ConnectRecord> records = buildRecords(5, "ab");
+        lingerBatch.addAll(records, 100);
+        List<ConnectRecord> drained = lingerBatch.drain(3);
+        Assert.assertEquals(records.subList(0, 3), drained);
+        Assert.assertEquals(2, lingerBatch.size());
+        Assert.assertEquals(4, lingerBatch.getBytes());
+        Assert.assertEquals(records.subList(3, 5), lingerBatch.drain(3));
+        Assert.assertTrue(lingerBatch.isEmpty());
+        Assert.assertEquals(0, lingerBatch.getBytes());
+    }
+
+    @Test
+    public void testDrainKeepsUnderMaxBytes() {
+        LingerBatch lingerBatch = new LingerBatch();
+        List<ConnectRecord> records = buildRecords(5, "abcd");
+        lingerBatch.addAll(records, 100);
+        lingerBatch.addAll(buildRecords(1, "abcdefghijklmnop"), 100);
+        // the batch holds 36 bytes, far above the max bytes, every drained batch still keeps under them
+        Assert.assertEquals(records.subList(0, 2), lingerBatch.drain(10, 10));
+        Assert.assertEquals(records.subList(2, 4), lingerBatch.drain(10, 10));
+        Assert.assertEquals(records.subList(4, 5), lingerBatch.drain(10, 10));
+        Assert.assertEquals(16, lingerBatch.getBytes());
+        // a record above the max bytes is still handed over on its own
+        Assert.assertEquals(1, lingerBatch.drain(10, 10).size());
+        Assert.assertTrue(lingerBatch.isEmpty());
+    }
+
+    private List<ConnectRecord> buildRecords(int recordNum, String data) {
+        List<ConnectRecord> records = new ArrayList<>();
+        for (int index = 0; index < recordNum; index++) {
+            records.add(new ConnectRecord(null, null, System.currentTimeMillis(), null, data));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.runtime.boot.trigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SinkSchedulerTest {
+
+    private SinkScheduler sinkScheduler;
+
+    @Before
+    public void before() {
+        sinkScheduler = new SinkScheduler(4, 2, 1, false);
+    }
+
+    @After
+    public void after() {
+        sinkScheduler.shutdown();
+    }
+
+    @Test
+    public void testRunnerMaxInflight() throws InterruptedException {
+        sinkScheduler.registerRunner("slowRunner", 1, null);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(3);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        for (int index = 0; index < 3; index++) {
+            sinkScheduler.submit("slowRunner", () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                finished.countDown();
+            });
+        }
+        Assert.assertEquals(3, sinkScheduler.pendingAndInflight("slowRunner"));
+
+        CountDownLatch otherFinished = new CountDownLatch(1);
+        sinkScheduler.submit("otherRunner", otherFinished::countDown);
+        Assert.assertTrue(otherFinished.await(5, TimeUnit.SECONDS));
+
+        release.countDown();
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    public void testOrderedLane() throws InterruptedException {
+        sinkScheduler.registerRunner("orderedRunner", 4, null);
+        int taskNum = 100;
+        List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch finished = new CountDownLatch(taskNum);
+        for (int index = 0; index < taskNum; index++) {
+            int sequence = index;
+            sinkScheduler.submitOrdered("orderedRunner", 0, () -> {
+                delivered.add(sequence);
+                finished.countDown();
+            });
+        }
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        for (int index = 0; index < taskNum; index++) {
+            Assert.assertEquals(index, delivered.get(index).intValue());
+        }
+    }
+
+    @Test
+    public void testOrderedLaneNumChangesOnceLanesDrained() throws InterruptedException {
+        sinkScheduler.registerRunner("orderedRunner", 4, null, 2);
+        Assert.assertEquals(2, sinkScheduler.getOrderedLaneNum("orderedRunner"));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        sinkScheduler.submitOrdered("orderedRunner", 1, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finished.countDown();
+        });
+        // neither the max in-flight nor a new lane number remaps the records while a lane is busy
+        sinkScheduler.registerRunner("orderedRunner", 8, null, 3);
+        Assert.assertEquals(2, sinkScheduler.getOrderedLaneNum("orderedRunner"));
+
+        release.countDown();
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        Assert.assertEquals(3, sinkScheduler.getOrderedLaneNum("orderedRunner"));
+    }
+
+    @Test
+    public void testRemoveRunnerAfterTasksFinished() throws InterruptedException {
+        sinkScheduler.registerRunner("runner", null, null);
+        CountDownLatch finished = new CountDownLatch(1);
+        sinkScheduler.submit("runner", finished::countDown);
+        sinkScheduler.removeRunner("runner");
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        Assert.assertEquals(0, sinkScheduler.pendingAndInflight("runner"));
+    }
+}
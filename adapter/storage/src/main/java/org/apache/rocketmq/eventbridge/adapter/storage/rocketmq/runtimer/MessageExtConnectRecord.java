@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer;
+
+import com.alibaba.fastjson.JSON;
+import io.openmessaging.KeyValue;
+import io.openmessaging.connector.api.data.ConnectRecord;
+import io.openmessaging.connector.api.data.Field;
+import io.openmessaging.connector.api.data.RecordOffset;
+import io.openmessaging.connector.api.data.RecordPartition;
+import io.openmessaging.connector.api.data.Schema;
+import io.openmessaging.internal.DefaultKeyValue;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.eventbridge.adapter.runtime.config.RuntimeConfigDefine;
+import org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer.QueueOwnership;
+
+/**
+ * Connect record backed by the pulled message.
+ * The body is only decoded and the schema only parsed on first access, and the extensions read through to the
+ * message properties until they are modified, so records filtered out on their extensions cost next to nothing.
+ */
+public class MessageExtConnectRecord extends ConnectRecord {
+
+    private static final int SCHEMA_CACHE_SIZE = 1024;
+
+    /**
+     * parsed schemas by their string, never handed out, every record gets its own copy since a schema is mutable
+     */
+    private static final Map<String, Schema> SCHEMA_CACHE = new ConcurrentHashMap<>();
+
+    private final MessageExt messageExt;
+
+    private final String runnerName;
+
+    /**
+     * the queue assignment the message was pulled under, null when unknown
+     */
+    private final QueueOwnership queueOwnership;
+
+    private boolean dataDecoded;
+
+    private Object data;
+
+    private boolean schemaParsed;
+
+    private Schema schema;
+
+    /**
+     * materialized on the first write or full read
+     */
+    private KeyValue extensions;
+
+    public MessageExtConnectRecord(MessageExt messageExt, String runnerName, RecordPartition recordPartition,
+        RecordOffset recordOffset) {
+        this(messageExt, runnerName, recordPartition, recordOffset, null);
+    }
+
+    public MessageExtConnectRecord(MessageExt messageExt, String runnerName, RecordPartition recordPartition,
+        RecordOffset recordOffset, QueueOwnership queueOwnership) {
+        super(recordPartition, recordOffset, parseTimestamp(messageExt));
+        this.messageExt = messageExt;
+        this.runnerName = runnerName;
+        this.queueOwnership = queueOwnership;
+    }
+
+    private static Long parseTimestamp(MessageExt messageExt) {
+        String connectTimestamp = messageExt.getProperty(RuntimeConfigDefine.CONNECT_TIMESTAMP);
+        return StringUtils.isNotEmpty(connectTimestamp) ? Long.valueOf(connectTimestamp) : null;
+    }
+
+    @Override
+    public Object getData() {
+        if (!dataDecoded) {
+            byte[] body = messageExt.getBody();
+            data = body == null ? null : new String(body, StandardCharsets.UTF_8);
+            dataDecoded = true;
+        }
+        return data;
+    }
+
+    @Override
+    public void setData(Object data) {
+        this.data = data;
+        this.dataDecoded = true;
+    }
+
+    @Override
+    public Schema getSchema() {
+        if (!schemaParsed) {
+            schema = parseSchema(messageExt.getProperty(RuntimeConfigDefine.CONNECT_SCHEMA));
+            schemaParsed = true;
+        }
+        return schema;
+    }
+
+    @Override
+    public void setSchema(Schema schema) {
+        this.schema = schema;
+        this.schemaParsed = true;
+    }
+
+    @Override
+    public String getExtension(String key) {
+        if (extensions != null) {
+            return extensions.getString(key);
+        }
+        if (RuntimeConfigDefine.RUNNER_NAME.equals(key)) {
+            return runnerName;
+        }
+        return messageExt.getProperty(key);
+    }
+
+    @Override
+    public KeyValue getExtensions() {
+        return materializeExtensions();
+    }
+
+    @Override
+    public void setExtensions(KeyValue extensions) {
+        this.extensions = extensions;
+    }
+
+    @Override
+    public void addExtension(KeyValue keyValue) {
+        KeyValue materialized = materializeExtensions();
+        for (String key : keyValue.keySet()) {
+            materialized.put(key, keyValue.getString(key));
+        }
+    }
+
+    @Override
+    public void addExtension(String key, String value) {
+        materializeExtensions().put(key, value);
+    }
+
+    public MessageExt getMessageExt() {
+        return messageExt;
+    }
+
+    public QueueOwnership getQueueOwnership() {
+        return queueOwnership;
+    }
+
+    /**
+     * @return whether the queue of the record was rebalanced away since it was pulled
+     */
+    public boolean isRevoked() {
+        return queueOwnership != null && queueOwnership.isRevoked();
+    }
+
+    private KeyValue materializeExtensions() {
+        if (extensions == null) {
+            KeyValue keyValue = new DefaultKeyValue();
+            Map<String, String> properties = messageExt.getProperties();
+            if (properties != null) {
+                for (Map.Entry<String, String> entry : properties.entrySet()) {
+                    keyValue.put(entry.getKey(), entry.getValue());
+                }
+            }
+            // the message may be shared by the runners of its topic, so the runner name is not put on it
+            keyValue.put(RuntimeConfigDefine.RUNNER_NAME, runnerName);
+            extensions = keyValue;
+        }
+        return extensions;
+    }
+
+    static Schema parseSchema(String connectSchema) {
+        if (StringUtils.isEmpty(connectSchema)) {
+            return null;
+        }
+        Schema schema = SCHEMA_CACHE.get(connectSchema);
+        if (schema == null) {
+            schema = JSON.parseObject(connectSchema, Schema.class);
+            if (SCHEMA_CACHE.size() >= SCHEMA_CACHE_SIZE || SCHEMA_CACHE.putIfAbsent(connectSchema, schema) != null) {
+                // not cached, so the parsed schema is not shared
+                return schema;
+            }
+        }
+        return copySchema(schema);
+    }
+
+    /**
+     * deep copy of the schema, much cheaper than parsing it again
+     */
+    static Schema copySchema(Schema schema) {
+        if (schema == null) {
+            return null;
+        }
+        List<Field> fields = null;
+        if (schema.getFields() != null) {
+            fields = new ArrayList<>(schema.getFields().size());
+            for (Field field : schema.getFields()) {
+                fields.add(field == null ? null : new Field(field.getIndex(), field.getName(), copySchema(field.getSchema())));
+            }
+        }
+        return new Schema(schema.getName(), schema.getFieldType(), fields);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ConnectRecord)) {
+            return false;
+        }
+        ConnectRecord that = (ConnectRecord) o;
+        return Objects.equals(getTimestamp(), that.getTimestamp())
+            && Objects.equals(getSchema(), that.getSchema())
+            && Objects.equals(getData(), that.getData())
+            && Objects.equals(getPosition(), that.getPosition());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getTimestamp(), getPosition());
+    }
+
+    @Override
+    public String toString() {
+        return "MessageExtConnectRecord{" +
+            "timestamp=" + getTimestamp() +
+            ", schema=" + getSchema() +
+            ", data=" + getData() +
+            ", position=" + getPosition() +
+            ", extensions=" + getExtensions() +
+            '}';
+    }
+}
@@ -17,40 +17,46 @@
 
 package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer;
 
-import com.alibaba.fastjson.JSON;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.gson.Gson;
-import io.openmessaging.KeyValue;
 import io.openmessaging.connector.api.data.ConnectRecord;
 import io.openmessaging.connector.api.data.RecordOffset;
 import io.openmessaging.connector.api.data.RecordPartition;
-import io.openmessaging.connector.api.data.Schema;
-import io.openmessaging.internal.DefaultKeyValue;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.rocketmq.acl.common.AclClientRPCHook;
 import org.apache.rocketmq.acl.common.SessionCredentials;
 import org.apache.rocketmq.client.AccessChannel;
 import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.message.MessageQueue;
 import org.apache.rocketmq.eventbridge.adapter.runtime.boot.listener.EventSubscriber;
 import org.apache.rocketmq.eventbridge.adapter.runtime.common.ServiceThread;
 import org.apache.rocketmq.eventbridge.adapter.runtime.common.entity.SubscribeRunnerKeys;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.entity.TargetRunnerConfig;
+import org.apache.rocketmq.eventbridge.adapter.runtime.common.enums.PipelineModeEnum;
 import org.apache.rocketmq.eventbridge.adapter.runtime.common.enums.RefreshTypeEnum;
 import org.apache.rocketmq.eventbridge.adapter.runtime.config.RuntimeConfigDefine;
 import org.apache.rocketmq.eventbridge.adapter.runtime.service.TargetRunnerConfigObserver;
 import org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer.ClientConfig;
+import org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer.ConsumeModeEnum;
+import org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer.ConsumeRequest;
 import org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer.LitePullConsumer;
 import org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer.LitePullConsumerImpl;
+import org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer.PopConsumerImpl;
+import org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer.QueueOffsets;
+import org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer.QueueOwnership;
 import org.apache.rocketmq.eventbridge.domain.storage.EventDataRepository;
 import org.apache.rocketmq.eventbridge.exception.EventBridgeException;
+import org.apache.rocketmq.eventbridge.tools.pattern.SqlFilterExpressionBuilder;
 import org.apache.rocketmq.remoting.RPCHook;
 import org.apache.rocketmq.remoting.proxy.SocksProxyConfig;
 import org.slf4j.Logger;
@@ -60,14 +66,11 @@ import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * RocketMQ implement event subscriber
@@ -87,20 +90,39 @@ public class RocketMQEventSubscriber extends EventSubscriber {
     @Autowired
     private ConfigLoader configLoader;
 
-    private final BlockingQueue<MessageExt> messageBuffer = new LinkedBlockingQueue<>(50000);
+    private final BlockingQueue<RunnerMessage> messageBuffer = new LinkedBlockingQueue<>(50000);
 
     private Integer pullTimeOut;
     private Integer pullBatchSize;
 
+    /**
+     * whether the runners are polled by the fused pipeline instead of the consume workers
+     */
+    private boolean runnerPull;
+
     private ClientConfig clientConfig;
     private SessionCredentials sessionCredentials;
     private String socksProxy;
     private Map<String, ConsumeWorker> consumeWorkerMap = new ConcurrentHashMap<>();
 
+    /**
+     * whether the runners of one topic share a fetcher, which pulls the topic once and fans it out to all of them
+     */
+    private boolean sharedFetch;
+
+    /**
+     * fetchers keyed by topic when shared, otherwise by runner name
+     */
+    private Map<String, LitePullConsumer> fetcherMap = new ConcurrentHashMap<>();
+
+    private final Map<MessageQueue, RecordPartition> recordPartitionTable = new ConcurrentHashMap<>();
+
     private static final String SEMICOLON = ";";
 
     private static final String DEFAULT_GROUP_PREFIX = "event-bridge-group";
 
+    private static final long PULL_WAIT_MILLS = 1000L;
+
     public static final String QUEUE_OFFSET = "queueOffset";
     public static final String MSG_ID = "msgId";
 
@@ -127,31 +149,93 @@ public class RocketMQEventSubscriber extends EventSubscriber {
 
     @Override
     public List<ConnectRecord> pull() {
-        ArrayList<MessageExt> messages = new ArrayList<>();
+        ArrayList<RunnerMessage> messages = new ArrayList<>();
         messageBuffer.drainTo(messages, pullBatchSize);
+        if (messages.isEmpty()) {
+            try {
+                RunnerMessage message = messageBuffer.poll(PULL_WAIT_MILLS, TimeUnit.MILLISECONDS);
+                if (message != null) {
+                    messages.add(message);
+                    messageBuffer.drainTo(messages, pullBatchSize - 1);
+                }
+            } catch (InterruptedException e) {
+                // the interrupt only wakes the caller up to check whether it is stopped, keeping the flag would
+                // make every later poll throw at once and the caller spin
+                LOGGER.info("consumer poll message interrupted.");
+            }
+        }
         if (CollectionUtils.isEmpty(messages)) {
             LOGGER.trace("consumer poll message empty.");
             return null;
         }
-        List<ConnectRecord> connectRecords = new CopyOnWriteArrayList<>();
-        List<CompletableFuture<Void>> completableFutures = Lists.newArrayList();
-        messages.forEach(item -> {
-            CompletableFuture<Void> recordCompletableFuture = CompletableFuture.supplyAsync(() -> convertToSinkRecord(item))
-                .exceptionally((exception) -> {
-                    LOGGER.error("execute completable job failed", exception);
-                    return null;
-                })
-                .thenAccept(connectRecords::add);
-            completableFutures.add(recordCompletableFuture);
-        });
+        // the records decode lazily, so converting them on the caller thread is cheaper than fanning out
+        List<ConnectRecord> connectRecords = new ArrayList<>(messages.size());
+        for (RunnerMessage message : messages) {
+            connectRecords.add(convertToSinkRecord(message.consumeRequest, message.runnerName));
+        }
+        return connectRecords;
+    }
 
-        CompletableFuture.allOf(completableFutures.toArray(new CompletableFuture[messages.size()])).join();
+    @Override
+    public boolean supportsRunnerPull() {
+        return true;
+    }
 
+    @Override
+    public List<ConnectRecord> pull(String runnerName) {
+        ConsumeWorker consumeWorker = consumeWorkerMap.get(runnerName);
+        if (consumeWorker == null) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(PULL_WAIT_MILLS);
+            } catch (InterruptedException e) {
+                // the caller checks whether it is stopped once the pull returns
+                LOGGER.info("runner {} pull interrupted.", runnerName);
+            }
+            return null;
+        }
+        List<ConsumeRequest> messages = consumeWorker.poll();
+        if (CollectionUtils.isEmpty(messages)) {
+            return null;
+        }
+        List<ConnectRecord> connectRecords = new ArrayList<>(messages.size());
+        for (ConsumeRequest message : messages) {
+            connectRecords.add(convertToSinkRecord(message, runnerName));
+        }
         return connectRecords;
     }
 
     /**
-     * group by runner name batch commit
+     * drop the records of the queues rebalanced away since they were pulled, the new owner of the queue
+     * redelivers them from its committed offset
+     *
+     * @param connectRecordList
+     * @return
+     */
+    @Override
+    public List<ConnectRecord> fence(List<ConnectRecord> connectRecordList) {
+        if (CollectionUtils.isEmpty(connectRecordList)) {
+            return connectRecordList;
+        }
+        List<ConnectRecord> ownedRecords = null;
+        for (int index = 0; index < connectRecordList.size(); index++) {
+            ConnectRecord connectRecord = connectRecordList.get(index);
+            boolean revoked = connectRecord instanceof MessageExtConnectRecord && ((MessageExtConnectRecord) connectRecord).isRevoked();
+            if (revoked && ownedRecords == null) {
+                ownedRecords = new ArrayList<>(connectRecordList.subList(0, index));
+            } else if (!revoked && ownedRecords != null) {
+                ownedRecords.add(connectRecord);
+            }
+        }
+        if (ownedRecords == null) {
+            return connectRecordList;
+        }
+        LOGGER.info("Discard the records of revoked queues, records.size={}", connectRecordList.size() - ownedRecords.size());
+        return ownedRecords;
+    }
+
+    /**
+     * group by runner name batch commit, the records are addressed by queue and queue offset and carry the
+     * generation of the queue assignment they were pulled under
      *
      * @param connectRecordList
      */
@@ -162,17 +246,41 @@ public class RocketMQEventSubscriber extends EventSubscriber {
             return;
         }
         String runnerName = connectRecordList.iterator().next().getExtension(RuntimeConfigDefine.RUNNER_NAME);
-        List<String> msgIds = connectRecordList.stream().map(item -> item.getPosition()
-            .getPartition().getPartition().get(MSG_ID).toString()).collect(Collectors.toList());
-        consumeWorkerMap.get(runnerName).commit(msgIds);
+        ConsumeWorker consumeWorker = consumeWorkerMap.get(runnerName);
+        if (consumeWorker == null) {
+            LOGGER.warn("consume worker of runner {} is absent, skip commit records.size={}", runnerName, connectRecordList.size());
+            return;
+        }
+        // the records of one assignment share their ownership instance, and the records of one queue their
+        // partition instance, so grouping by identity needs no hashing of either
+        Map<Object, QueueOffsets> queueOffsetsMap = new IdentityHashMap<>();
+        for (ConnectRecord connectRecord : connectRecordList) {
+            QueueOwnership queueOwnership = connectRecord instanceof MessageExtConnectRecord
+                ? ((MessageExtConnectRecord) connectRecord).getQueueOwnership() : null;
+            Object groupKey = queueOwnership != null ? queueOwnership : connectRecord.getPosition().getPartition();
+            QueueOffsets queueOffsets = queueOffsetsMap.get(groupKey);
+            if (queueOffsets == null) {
+                int initialCapacity = Math.min(connectRecordList.size(), 256);
+                queueOffsets = queueOwnership != null
+                    ? new QueueOffsets(queueOwnership.getMessageQueue(), queueOwnership.getGeneration(), initialCapacity)
+                    : new QueueOffsets(convertToMessageQueue(connectRecord.getPosition().getPartition()), QueueOffsets.ANY_GENERATION, initialCapacity);
+                queueOffsetsMap.put(groupKey, queueOffsets);
+            }
+            queueOffsets.add(getQueueOffset(connectRecord));
+        }
+        consumeWorker.commit(queueOffsetsMap.values());
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
         for (Map.Entry<String, ConsumeWorker> item : consumeWorkerMap.entrySet()) {
             ConsumeWorker consumeWorker = item.getValue();
             consumeWorker.shutdown();
         }
+        for (LitePullConsumer fetcher : fetcherMap.values()) {
+            fetcher.shutdown();
+        }
+        fetcherMap.clear();
     }
 
     /**
@@ -191,11 +299,46 @@ public class RocketMQEventSubscriber extends EventSubscriber {
             String socks5UserName = configLoader.getString("rocketmq.consumer.socks5UserName");
             String socks5Password = configLoader.getString("rocketmq.consumer.socks5Password");
             String socks5Endpoint = configLoader.getString("rocketmq.consumer.socks5Endpoint");
+            String creditRecords = configLoader.getString("rocketmq.consumer.creditRecords", String.valueOf(clientConfig.getRmqPullCreditRecordNums()));
+            String creditBytes = configLoader.getString("rocketmq.consumer.creditBytes", String.valueOf(clientConfig.getRmqPullCreditBytes()));
+            String queueThresholdRecords = configLoader.getString("rocketmq.consumer.queueThresholdRecords", String.valueOf(clientConfig.getRmqPullQueueThresholdRecordNums()));
+            String queueThresholdBytes = configLoader.getString("rocketmq.consumer.queueThresholdBytes", String.valueOf(clientConfig.getRmqPullQueueThresholdBytes()));
+            String backlogRecords = configLoader.getString("rocketmq.consumer.backlogRecords", String.valueOf(clientConfig.getRmqPullBacklogRecordNums()));
+            String sqlFilter = configLoader.getString("rocketmq.consumer.sqlFilter", String.valueOf(clientConfig.isSqlFilterEnable()));
+            String sqlStringFunctions = configLoader.getString("rocketmq.consumer.sqlStringFunctions", String.valueOf(clientConfig.isSqlStringFunctionEnable()));
+            String pullThreadNums = configLoader.getString("rocketmq.consumer.pullThreadNums", String.valueOf(clientConfig.getRmqPullThreadNums()));
+            String fetchBatchSize = configLoader.getString("rocketmq.consumer.fetchBatchSize", String.valueOf(clientConfig.getRmqPullMessageBatchNums()));
+            String longPolling = configLoader.getString("rocketmq.consumer.longPolling", String.valueOf(clientConfig.isLongPollingEnable()));
+            String brokerSuspendMaxTime = configLoader.getString("rocketmq.consumer.brokerSuspendMaxTimeMillis", String.valueOf(clientConfig.getBrokerSuspendMaxTimeMillis()));
+            String pullInterval = configLoader.getString("rocketmq.consumer.pullInterval", String.valueOf(clientConfig.getPullInterval()));
+            String consumeMode = configLoader.getString("rocketmq.consumer.mode", clientConfig.getConsumeMode().name());
+            String offsetFlushInterval = configLoader.getString("rocketmq.consumer.offsetFlushIntervalMillis", String.valueOf(clientConfig.getOffsetFlushIntervalMillis()));
+            String popInvisibleTime = configLoader.getString("rocketmq.consumer.popInvisibleTimeMillis", String.valueOf(clientConfig.getPopInvisibleTimeMillis()));
+            runnerPull = PipelineModeEnum.parse(configLoader.getString("runtime.pipeline.mode")) == PipelineModeEnum.FUSED;
+            // the shared group starts from consumeFromWhere, the offsets of the groups of the runners are not carried over
+            sharedFetch = Boolean.parseBoolean(configLoader.getString("rocketmq.consumer.sharedFetch", "false"));
 
             clientConfig.setNameSrvAddr(namesrvAddr);
             clientConfig.setAccessChannel(AccessChannel.CLOUD.name().equals(accessChannel) ?
                 AccessChannel.CLOUD : AccessChannel.LOCAL);
             clientConfig.setNamespace(namespace);
+            clientConfig.setRmqPullCreditRecordNums(Integer.parseInt(creditRecords));
+            clientConfig.setRmqPullCreditBytes(Long.parseLong(creditBytes));
+            clientConfig.setRmqPullQueueThresholdRecordNums(Integer.parseInt(queueThresholdRecords));
+            clientConfig.setRmqPullQueueThresholdBytes(Long.parseLong(queueThresholdBytes));
+            clientConfig.setRmqPullBacklogRecordNums(Integer.parseInt(backlogRecords));
+            clientConfig.setRmqPullThreadNums(Integer.parseInt(pullThreadNums));
+            clientConfig.setRmqPullMessageBatchNums(Integer.parseInt(fetchBatchSize));
+            clientConfig.setLongPollingEnable(Boolean.parseBoolean(longPolling));
+            clientConfig.setSqlFilterEnable(Boolean.parseBoolean(sqlFilter));
+            clientConfig.setSqlStringFunctionEnable(Boolean.parseBoolean(sqlStringFunctions));
+            clientConfig.setBrokerSuspendMaxTimeMillis(Long.parseLong(brokerSuspendMaxTime));
+            // keep the client timeout above the time the broker may hold the request
+            clientConfig.setConsumerTimeoutMillisWhenSuspend(clientConfig.getBrokerSuspendMaxTimeMillis() + 10 * 1000L);
+            clientConfig.setPullInterval(Integer.parseInt(pullInterval));
+            clientConfig.setConsumeMode(ConsumeModeEnum.parse(consumeMode));
+            clientConfig.setPopInvisibleTimeMillis(Long.parseLong(popInvisibleTime));
+            clientConfig.setOffsetFlushIntervalMillis(Long.parseLong(offsetFlushInterval));
             this.clientConfig = clientConfig;
 
             if (StringUtils.isNotBlank(accessKey) && StringUtils.isNotBlank(secretKey)) {
@@ -227,25 +370,23 @@ public class RocketMQEventSubscriber extends EventSubscriber {
             return;
         }
         for (SubscribeRunnerKeys subscribeRunnerKeys : subscribeRunnerKeysSet) {
-            LitePullConsumer litePullConsumer = initLitePullConsumer(subscribeRunnerKeys);
-            ConsumeWorker consumeWorker = new ConsumeWorker(litePullConsumer, subscribeRunnerKeys.getRunnerName());
-            consumeWorkerMap.put(subscribeRunnerKeys.getRunnerName(), consumeWorker);
-            consumeWorker.start();
+            putConsumeWorker(subscribeRunnerKeys);
         }
     }
 
     /**
-     * first init default rocketmq pull consumer
+     * init rocketmq pull consumer which fetches the topic for one runner or, when shared, for all its runners.
+     * A pop consumer always fetches for one runner, since the group it pops with belongs to the runner.
      *
      * @return
      */
-    public LitePullConsumer initLitePullConsumer(SubscribeRunnerKeys subscribeRunnerKeys) {
-        String topic = getTopicName(subscribeRunnerKeys);
+    public LitePullConsumer initLitePullConsumer(SubscribeRunnerKeys subscribeRunnerKeys, String topic) {
         RPCHook rpcHook = this.sessionCredentials != null ? new AclClientRPCHook(this.sessionCredentials) : null;
         ClientConfig consumerConfig = ClientConfig.cloneConfig(this.clientConfig);
-        String groupName = createGroupName(subscribeRunnerKeys);
+        String groupName = isSharedFetch() ? createSharedGroupName(subscribeRunnerKeys, topic) : createGroupName(subscribeRunnerKeys);
         consumerConfig.setConsumerGroup(groupName);
-        LitePullConsumerImpl pullConsumer = new LitePullConsumerImpl(consumerConfig, rpcHook);
+        LitePullConsumer pullConsumer = consumerConfig.getConsumeMode() == ConsumeModeEnum.POP
+            ? new PopConsumerImpl(consumerConfig, rpcHook) : new LitePullConsumerImpl(consumerConfig, rpcHook);
         if (StringUtils.isNotBlank(this.socksProxy)) {
             pullConsumer.setSockProxyJson(this.socksProxy);
         }
@@ -259,6 +400,10 @@ public class RocketMQEventSubscriber extends EventSubscriber {
         return pullConsumer;
     }
 
+    private boolean isSharedFetch() {
+        return sharedFetch && clientConfig.getConsumeMode() != ConsumeModeEnum.POP;
+    }
+
     private String getTopicName(SubscribeRunnerKeys subscribeRunnerKeys) {
         return eventDataRepository.getTopicNameWithOutCache(subscribeRunnerKeys.getAccountId(), subscribeRunnerKeys.getEventBusName());
     }
@@ -271,78 +416,156 @@ public class RocketMQEventSubscriber extends EventSubscriber {
         return sb.toString().replace(".", "-");
     }
 
+    private String createSharedGroupName(SubscribeRunnerKeys subscribeRunnerKeys, String topic) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(DEFAULT_GROUP_PREFIX).append("-");
+        sb.append(subscribeRunnerKeys.getAccountId()).append("-");
+        sb.append(topic);
+        return sb.toString().replace(".", "-");
+    }
+
     /**
-     * MessageExt convert to connect record
+     * MessageExt convert to connect record, which decodes the message lazily
      *
-     * @param messageExt
+     * @param consumeRequest
+     * @param runnerName
      * @return
      */
-    private ConnectRecord convertToSinkRecord(MessageExt messageExt) {
-        Map<String, String> properties = messageExt.getProperties();
-        Schema schema;
-        Long timestamp;
-        ConnectRecord sinkRecord;
-        String connectTimestamp = properties.get(RuntimeConfigDefine.CONNECT_TIMESTAMP);
-        timestamp = StringUtils.isNotEmpty(connectTimestamp) ? Long.valueOf(connectTimestamp) : null;
-        String connectSchema = properties.get(RuntimeConfigDefine.CONNECT_SCHEMA);
-        schema = StringUtils.isNotEmpty(connectSchema) ? JSON.parseObject(connectSchema, Schema.class) : null;
-        byte[] body = messageExt.getBody();
-        RecordPartition recordPartition = convertToRecordPartition(messageExt.getTopic(), messageExt.getBrokerName(), messageExt.getQueueId(), messageExt.getMsgId());
-        RecordOffset recordOffset = convertToRecordOffset(messageExt.getQueueOffset());
-        String bodyStr = new String(body, StandardCharsets.UTF_8);
-        sinkRecord = new ConnectRecord(recordPartition, recordOffset, timestamp, schema, bodyStr);
-        KeyValue keyValue = new DefaultKeyValue();
-        if (MapUtils.isNotEmpty(properties)) {
-            for (Map.Entry<String, String> entry : properties.entrySet()) {
-                keyValue.put(entry.getKey(), entry.getValue());
-            }
-        }
-        sinkRecord.addExtension(keyValue);
-        return sinkRecord;
+    private ConnectRecord convertToSinkRecord(ConsumeRequest consumeRequest, String runnerName) {
+        MessageExt messageExt = consumeRequest.getMessageExt();
+        RecordPartition recordPartition = convertToRecordPartition(messageExt.getTopic(), messageExt.getBrokerName(), messageExt.getQueueId());
+        RecordOffset recordOffset = convertToRecordOffset(messageExt.getQueueOffset(), messageExt.getMsgId());
+        return new MessageExtConnectRecord(messageExt, runnerName, recordPartition, recordOffset, consumeRequest.getQueueOwnership());
+    }
+
+    /**
+     * the partition only depends on the queue, so one instance is shared by all the records of a queue
+     */
+    private RecordPartition convertToRecordPartition(String topic, String brokerName, int queueId) {
+        return recordPartitionTable.computeIfAbsent(new MessageQueue(topic, brokerName, queueId), messageQueue -> {
+            Map<String, String> map = new HashMap<>();
+            map.put("topic", topic);
+            map.put("brokerName", brokerName);
+            map.put("queueId", queueId + "");
+            return new RecordPartition(Collections.unmodifiableMap(map));
+        });
     }
 
-    private RecordPartition convertToRecordPartition(String topic, String brokerName, int queueId, String msgId) {
-        Map<String, String> map = new HashMap<>();
-        map.put("topic", topic);
-        map.put("brokerName", brokerName);
-        map.put("queueId", queueId + "");
-        map.put(MSG_ID, msgId);
-        RecordPartition recordPartition = new RecordPartition(map);
-        return recordPartition;
+    private MessageQueue convertToMessageQueue(RecordPartition recordPartition) {
+        Map<String, ?> partition = recordPartition.getPartition();
+        return new MessageQueue(String.valueOf(partition.get("topic")), String.valueOf(partition.get("brokerName")),
+            Integer.parseInt(String.valueOf(partition.get("queueId"))));
     }
 
-    private RecordOffset convertToRecordOffset(Long offset) {
-        Map<String, String> offsetMap = new HashMap<>();
+    private long getQueueOffset(ConnectRecord connectRecord) {
+        if (connectRecord instanceof MessageExtConnectRecord) {
+            return ((MessageExtConnectRecord) connectRecord).getMessageExt().getQueueOffset();
+        }
+        // a transform may have copied the record, the position still carries the offset
+        return Long.parseLong(String.valueOf(connectRecord.getPosition().getOffset().getOffset().get(QUEUE_OFFSET)));
+    }
+
+    private RecordOffset convertToRecordOffset(Long offset, String msgId) {
+        Map<String, String> offsetMap = new HashMap<>(4);
         offsetMap.put(QUEUE_OFFSET, offset + "");
+        offsetMap.put(MSG_ID, msgId);
         RecordOffset recordOffset = new RecordOffset(offsetMap);
         return recordOffset;
     }
 
-    private void putConsumeWorker(SubscribeRunnerKeys subscribeRunnerKeys) {
+    private synchronized void putConsumeWorker(SubscribeRunnerKeys subscribeRunnerKeys) {
+        String topic = getTopicName(subscribeRunnerKeys);
+        String fetcherKey = isSharedFetch() ? topic : subscribeRunnerKeys.getRunnerName();
         ConsumeWorker consumeWorker = consumeWorkerMap.get(subscribeRunnerKeys.getRunnerName());
-        if (!Objects.isNull(consumeWorker)) {
-            consumeWorker.shutdown();
+        if (consumeWorker != null && consumeWorker.fetcherKey.equals(fetcherKey) && consumeWorker.topic.equals(topic)) {
+            // the runner keeps its subscription and the ack windows of the records in flight, only the filter changes
+            consumeWorker.pullConsumer.attachRunner(subscribeRunnerKeys.getRunnerName(), buildFilterExpression(subscribeRunnerKeys.getRunnerName()));
+            return;
+        }
+        if (consumeWorker != null) {
+            removeConsumeWorker(subscribeRunnerKeys);
         }
-        LitePullConsumer litePullConsumer = initLitePullConsumer(subscribeRunnerKeys);
-        ConsumeWorker newWorker = new ConsumeWorker(litePullConsumer, subscribeRunnerKeys.getRunnerName());
+        LitePullConsumer fetcher = fetcherMap.get(fetcherKey);
+        if (fetcher == null) {
+            fetcher = initLitePullConsumer(subscribeRunnerKeys, topic);
+            fetcherMap.put(fetcherKey, fetcher);
+        }
+        fetcher.attachRunner(subscribeRunnerKeys.getRunnerName(), buildFilterExpression(subscribeRunnerKeys.getRunnerName()));
+        ConsumeWorker newWorker = new ConsumeWorker(fetcher, fetcherKey, topic, subscribeRunnerKeys.getRunnerName());
         consumeWorkerMap.put(subscribeRunnerKeys.getRunnerName(), newWorker);
-        newWorker.start();
+        startConsumeWorker(newWorker);
+    }
+
+    /**
+     * compile the filter pattern of the runner into the broker side pre-filter
+     *
+     * @param runnerName
+     * @return null when the broker filter is off or every event may match
+     */
+    private String buildFilterExpression(String runnerName) {
+        if (!clientConfig.isSqlFilterEnable()) {
+            return null;
+        }
+        Set<TargetRunnerConfig> targetRunnerConfigs = runnerConfigObserver.getTargetRunnerConfig();
+        if (targetRunnerConfigs == null) {
+            return null;
+        }
+        for (TargetRunnerConfig targetRunnerConfig : targetRunnerConfigs) {
+            if (!runnerName.equals(targetRunnerConfig.getName()) || targetRunnerConfig.getComponents() == null) {
+                continue;
+            }
+            for (Map<String, String> component : targetRunnerConfig.getComponents()) {
+                String filterPattern = component.get(RuntimeConfigDefine.FILTER_PATTERN);
+                if (filterPattern == null) {
+                    continue;
+                }
+                try {
+                    return SqlFilterExpressionBuilder.build(filterPattern, clientConfig.isSqlStringFunctionEnable());
+                } catch (Exception exception) {
+                    LOGGER.warn("build broker filter of runner {} failed, pull without it.", runnerName, exception);
+                    return null;
+                }
+            }
+        }
+        return null;
     }
 
-    private void removeConsumeWorker(SubscribeRunnerKeys subscribeRunnerKeys) {
+    private synchronized void removeConsumeWorker(SubscribeRunnerKeys subscribeRunnerKeys) {
         ConsumeWorker consumeWorker = consumeWorkerMap.remove(subscribeRunnerKeys.getRunnerName());
-        if (!Objects.isNull(consumeWorker)) {
-            consumeWorker.shutdown();
+        if (Objects.isNull(consumeWorker)) {
+            return;
+        }
+        consumeWorker.shutdown();
+        // the fetcher is only shut down with its last runner
+        if (consumeWorker.pullConsumer.detachRunner(consumeWorker.runnerName)) {
+            fetcherMap.remove(consumeWorker.fetcherKey);
+            consumeWorker.pullConsumer.shutdown();
+        }
+    }
+
+    /**
+     * the consume worker only feeds the message buffer in the staged pipeline, the fused pipeline polls
+     * its consumer directly
+     *
+     * @param consumeWorker
+     */
+    private void startConsumeWorker(ConsumeWorker consumeWorker) {
+        if (!runnerPull) {
+            consumeWorker.start();
         }
     }
 
     class ConsumeWorker extends ServiceThread {
 
         private final LitePullConsumer pullConsumer;
+        private final String fetcherKey;
+        private final String topic;
         private final String runnerName;
 
-        public ConsumeWorker(LitePullConsumer pullConsumer, String runnerName) {
+        public ConsumeWorker(LitePullConsumer pullConsumer, String fetcherKey, String topic, String runnerName) {
             this.pullConsumer = pullConsumer;
+            this.fetcherKey = fetcherKey;
+            this.topic = topic;
             this.runnerName = runnerName;
         }
 
@@ -355,10 +578,9 @@ public class RocketMQEventSubscriber extends EventSubscriber {
         public void run() {
             while (!stopped) {
                 try {
-                    List<MessageExt> messages = pullConsumer.poll(pullBatchSize, Duration.ofMillis(pullTimeOut));
-                    for (MessageExt message : messages) {
-                        message.putUserProperty(RuntimeConfigDefine.RUNNER_NAME, runnerName);
-                        messageBuffer.put(message);
+                    List<ConsumeRequest> messages = poll();
+                    for (ConsumeRequest message : messages) {
+                        messageBuffer.put(new RunnerMessage(runnerName, message));
                     }
                 } catch (Exception exception) {
                     LOGGER.error(getServiceName() + " - RocketMQEventSubscriber pull record exception, stackTrace - ", exception);
@@ -366,14 +588,26 @@ public class RocketMQEventSubscriber extends EventSubscriber {
             }
         }
 
-        public void commit(List<String> messageIds) {
-            this.pullConsumer.commit(messageIds);
+        public List<ConsumeRequest> poll() {
+            return pullConsumer.poll(runnerName, pullBatchSize, Duration.ofMillis(pullTimeOut));
         }
 
-        @Override
-        public void shutdown() {
-            pullConsumer.shutdown();
-            super.shutdown();
+        public void commit(Collection<QueueOffsets> queueOffsetsList) {
+            this.pullConsumer.commit(runnerName, queueOffsetsList);
+        }
+    }
+
+    /**
+     * a pulled message together with the runner it was fanned out to
+     */
+    static class RunnerMessage {
+
+        private final String runnerName;
+        private final ConsumeRequest consumeRequest;
+
+        RunnerMessage(String runnerName, ConsumeRequest consumeRequest) {
+            this.runnerName = runnerName;
+            this.consumeRequest = consumeRequest;
         }
     }
 
@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Sliding ack window of one message queue.
+ * Every pulled offset sets a bit which its ack clears, in any order. The committed offset only advances over
+ * contiguous acks, so it always points at the oldest message still in flight, or past the pulled range when
+ * nothing is in flight. Offsets skipped by the broker, such as filtered messages, never set a bit.
+ * The body size of every offset in flight is kept as well, so an ack addressed by queue and offset gives back
+ * the records and bytes it held without any per message object.
+ */
+public class AckWindow {
+
+    /**
+     * the bits are compacted once the committed offset moves this far from their origin
+     */
+    private static final int COMPACT_THRESHOLD = 1 << 16;
+
+    private BitSet inflightBits = new BitSet();
+
+    /**
+     * offset of bit 0
+     */
+    private long origin;
+
+    /**
+     * all the offsets lower than it have been acked
+     */
+    private long committedOffset;
+
+    /**
+     * next offset to pull, the end of the window
+     */
+    private long maxOffset;
+
+    private final OffsetSizeTable inflightSizes = new OffsetSizeTable();
+
+    /**
+     * generation of the queue assignment the window tracks
+     */
+    private final long generation;
+
+    private int inflightCount;
+
+    private long inflightBytes;
+
+    public AckWindow(long startOffset) {
+        this(startOffset, 0L);
+    }
+
+    public AckWindow(long startOffset, long generation) {
+        this.generation = generation;
+        this.origin = startOffset;
+        this.committedOffset = startOffset;
+        this.maxOffset = startOffset;
+    }
+
+    /**
+     * add the pulled offsets to the window
+     *
+     * @param offsets pulled offsets, ascending
+     * @param nextBeginOffset next offset to pull
+     */
+    public synchronized void track(long[] offsets, long nextBeginOffset) {
+        track(offsets, null, nextBeginOffset);
+    }
+
+    /**
+     * add the pulled offsets with their body sizes to the window
+     *
+     * @param offsets pulled offsets, ascending
+     * @param sizes body sizes of the offsets, null when unknown
+     * @param nextBeginOffset next offset to pull
+     */
+    public synchronized void track(long[] offsets, int[] sizes, long nextBeginOffset) {
+        for (int i = 0; i < offsets.length; i++) {
+            long offset = offsets[i];
+            if (offset < committedOffset || inflightBits.get(index(offset))) {
+                continue;
+            }
+            int size = sizes == null ? 0 : sizes[i];
+            inflightBits.set(index(offset));
+            inflightSizes.put(offset, size);
+            inflightCount++;
+            inflightBytes += size;
+        }
+        advanceTo(nextBeginOffset);
+    }
+
+    /**
+     * move the end of the window, the skipped offsets count as acked
+     *
+     * @param nextBeginOffset
+     */
+    public synchronized void advanceTo(long nextBeginOffset) {
+        if (nextBeginOffset <= maxOffset) {
+            return;
+        }
+        maxOffset = nextBeginOffset;
+        advance();
+    }
+
+    /**
+     * ack one offset
+     *
+     * @param offset
+     * @return whether the committed offset advanced
+     */
+    public synchronized boolean ack(long offset) {
+        if (release(offset) < 0 || offset != committedOffset) {
+            return false;
+        }
+        return advance();
+    }
+
+    /**
+     * clear one offset without moving the committed offset, so a batch of acks moves it once by advance
+     *
+     * @param offset
+     * @return the body size the offset held, -1 when it is not in flight
+     */
+    public synchronized int release(long offset) {
+        if (offset < committedOffset || offset >= maxOffset || !inflightBits.get(index(offset))) {
+            return -1;
+        }
+        inflightBits.clear(index(offset));
+        int size = inflightSizes.remove(offset);
+        inflightCount--;
+        inflightBytes -= size;
+        return size;
+    }
+
+    /**
+     * move the committed offset over the released offsets
+     *
+     * @return whether the committed offset advanced
+     */
+    public synchronized boolean advance() {
+        long lastCommittedOffset = committedOffset;
+        int nextInflight = inflightBits.nextSetBit(index(committedOffset));
+        committedOffset = nextInflight < 0 ? maxOffset : Math.min(maxOffset, origin + nextInflight);
+        if (committedOffset - origin >= COMPACT_THRESHOLD) {
+            int from = index(committedOffset);
+            inflightBits = inflightBits.get(from, Math.max(from, inflightBits.length()));
+            origin = committedOffset;
+        }
+        return committedOffset != lastCommittedOffset;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @param generation
+     * @return whether acks pulled under the generation belong to this window
+     */
+    public boolean accepts(long generation) {
+        return generation == QueueOffsets.ANY_GENERATION || generation == this.generation;
+    }
+
+    public synchronized long getCommittedOffset() {
+        return committedOffset;
+    }
+
+    public synchronized long getMaxOffset() {
+        return maxOffset;
+    }
+
+    public synchronized int inflightCount() {
+        return inflightCount;
+    }
+
+    public synchronized long inflightBytes() {
+        return inflightBytes;
+    }
+
+    private int index(long offset) {
+        return (int) (offset - origin);
+    }
+
+    /**
+     * Open addressing table from offset to body size with linear probing, offsets are never negative so -1
+     * marks a free slot.
+     */
+    static class OffsetSizeTable {
+
+        private static final long FREE = -1L;
+
+        private long[] keys = newKeys(16);
+
+        private int[] values = new int[16];
+
+        private int size;
+
+        void put(long offset, int value) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize(keys.length << 1);
+            }
+            int slot = slot(offset, keys.length);
+            while (keys[slot] != FREE && keys[slot] != offset) {
+                slot = (slot + 1) & (keys.length - 1);
+            }
+            if (keys[slot] == FREE) {
+                size++;
+            }
+            keys[slot] = offset;
+            values[slot] = value;
+        }
+
+        /**
+         * @param offset
+         * @return the removed value, 0 when absent
+         */
+        int remove(long offset) {
+            int mask = keys.length - 1;
+            int slot = slot(offset, keys.length);
+            while (keys[slot] != offset) {
+                if (keys[slot] == FREE) {
+                    return 0;
+                }
+                slot = (slot + 1) & mask;
+            }
+            int value = values[slot];
+            size--;
+            // shift the following entries of the probe sequence back, so no tombstone is needed
+            int free = slot;
+            int next = (free + 1) & mask;
+            while (keys[next] != FREE) {
+                int home = slot(keys[next], keys.length);
+                if (((next - home) & mask) >= ((next - free) & mask)) {
+                    keys[free] = keys[next];
+                    values[free] = values[next];
+                    free = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[free] = FREE;
+            return value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = newKeys(capacity);
+            values = new int[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != FREE) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, FREE);
+            return keys;
+        }
+
+        private static int slot(long offset, int capacity) {
+            long hash = offset * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32) & (capacity - 1);
+        }
+    }
+}
@@ -21,19 +21,64 @@ import org.apache.rocketmq.client.AccessChannel;
 import org.apache.rocketmq.common.consumer.ConsumeFromWhere;
 
 public class ClientConfig {
+    // How the events are fetched, by pulling the assigned queues or by popping without owning queues.
+    private ConsumeModeEnum consumeMode = ConsumeModeEnum.LITE_PULL;
+    // Time a popped message stays invisible to the other consumers of the group before it is redelivered.
+    private long popInvisibleTimeMillis = 60 * 1000L;
     private int rmqPullMessageCacheCapacity = 1000;
-    private int rmqPullMessageBatchNums = 20;
+    // Max messages of one pull request, shrunk while the local cache fills up.
+    private int rmqPullMessageBatchNums = 32;
+    private int rmqPullThreadNums = 4;
+    // Long polling lets the broker hold a pull request until messages arrive, otherwise an empty
+    // pull is retried after pullInterval milliseconds.
+    private boolean longPollingEnable = true;
+    private long brokerSuspendMaxTimeMillis = 20 * 1000L;
+    private long consumerTimeoutMillisWhenSuspend = 30 * 1000L;
+    // Pre-filter the events of the rules on the broker by SQL92, which needs enablePropertyFilter=true on it.
+    private boolean sqlFilterEnable = false;
+    // STARTSWITH and ENDSWITH of the SQL92 filter are only known to RocketMQ 5 brokers, prefix and suffix
+    // conditions stay out of the broker filter unless enabled.
+    private boolean sqlStringFunctionEnable = false;
+    // Credits of records and bytes which may be in flight between pulling and committing.
+    private int rmqPullCreditRecordNums = 2000;
+    private long rmqPullCreditBytes = 64 * 1024 * 1024L;
+    // Records and bytes one queue may hold of the credits, a queue above them stops pulling until commits
+    // bring it back. Not positive means an even share of the credits over the queues of the runner.
+    private int rmqPullQueueThresholdRecordNums = -1;
+    private long rmqPullQueueThresholdBytes = -1;
+    // Records a runner of a shared fetcher may hold beyond its credits while other runners still have credits,
+    // so a slow runner only holds the fetch of the topic back once this backlog is full.
+    private int rmqPullBacklogRecordNums = 1000;
     private ConsumeFromWhere consumeFromWhere = ConsumeFromWhere.CONSUME_FROM_LAST_OFFSET;
     private long consumeTimestamp = System.currentTimeMillis();
     private String nameSrvAddr;
     private String namespace;
     private String consumerGroup;
-    private int pullInterval = 0;
+    private int pullInterval = 100;
     // All the offsets will be committed in the commit thread if enable this flag.
-    // To avoid too many rpc calls, disable it and rely on the inner offset automatic commit mechanism
+    // To avoid too many rpc calls, disable it and rely on the offset flusher
     private boolean commitSync = false;
+    // Interval the committed offsets of the dirty queues are persisted on, the longer the fewer round trips to the
+    // broker and the more messages redelivered after a crash.
+    private long offsetFlushIntervalMillis = 1000L;
     private AccessChannel accessChannel;
 
+    public ConsumeModeEnum getConsumeMode() {
+        return consumeMode;
+    }
+
+    public void setConsumeMode(final ConsumeModeEnum consumeMode) {
+        this.consumeMode = consumeMode;
+    }
+
+    public long getPopInvisibleTimeMillis() {
+        return popInvisibleTimeMillis;
+    }
+
+    public void setPopInvisibleTimeMillis(final long popInvisibleTimeMillis) {
+        this.popInvisibleTimeMillis = popInvisibleTimeMillis;
+    }
+
     public int getRmqPullMessageCacheCapacity() {
         return rmqPullMessageCacheCapacity;
     }
@@ -50,6 +95,94 @@ public class ClientConfig {
         this.rmqPullMessageBatchNums = nums;
     }
 
+    public int getRmqPullThreadNums() {
+        return rmqPullThreadNums;
+    }
+
+    public void setRmqPullThreadNums(final int nums) {
+        this.rmqPullThreadNums = nums;
+    }
+
+    public boolean isLongPollingEnable() {
+        return longPollingEnable;
+    }
+
+    public void setLongPollingEnable(final boolean longPollingEnable) {
+        this.longPollingEnable = longPollingEnable;
+    }
+
+    public long getBrokerSuspendMaxTimeMillis() {
+        return brokerSuspendMaxTimeMillis;
+    }
+
+    public void setBrokerSuspendMaxTimeMillis(final long brokerSuspendMaxTimeMillis) {
+        this.brokerSuspendMaxTimeMillis = brokerSuspendMaxTimeMillis;
+    }
+
+    public long getConsumerTimeoutMillisWhenSuspend() {
+        return consumerTimeoutMillisWhenSuspend;
+    }
+
+    public void setConsumerTimeoutMillisWhenSuspend(final long consumerTimeoutMillisWhenSuspend) {
+        this.consumerTimeoutMillisWhenSuspend = consumerTimeoutMillisWhenSuspend;
+    }
+
+    public boolean isSqlFilterEnable() {
+        return sqlFilterEnable;
+    }
+
+    public void setSqlFilterEnable(final boolean sqlFilterEnable) {
+        this.sqlFilterEnable = sqlFilterEnable;
+    }
+
+    public boolean isSqlStringFunctionEnable() {
+        return sqlStringFunctionEnable;
+    }
+
+    public void setSqlStringFunctionEnable(final boolean sqlStringFunctionEnable) {
+        this.sqlStringFunctionEnable = sqlStringFunctionEnable;
+    }
+
+    public int getRmqPullCreditRecordNums() {
+        return rmqPullCreditRecordNums;
+    }
+
+    public void setRmqPullCreditRecordNums(final int nums) {
+        this.rmqPullCreditRecordNums = nums;
+    }
+
+    public int getRmqPullQueueThresholdRecordNums() {
+        return rmqPullQueueThresholdRecordNums;
+    }
+
+    public void setRmqPullQueueThresholdRecordNums(final int nums) {
+        this.rmqPullQueueThresholdRecordNums = nums;
+    }
+
+    public long getRmqPullQueueThresholdBytes() {
+        return rmqPullQueueThresholdBytes;
+    }
+
+    public void setRmqPullQueueThresholdBytes(final long bytes) {
+        this.rmqPullQueueThresholdBytes = bytes;
+    }
+
+    public int getRmqPullBacklogRecordNums() {
+        return rmqPullBacklogRecordNums;
+    }
+
+    public void setRmqPullBacklogRecordNums(final int nums) {
+        this.rmqPullBacklogRecordNums = nums;
+    }
+
+    public long getRmqPullCreditBytes() {
+        return rmqPullCreditBytes;
+    }
+
+    public void setRmqPullCreditBytes(final long bytes) {
+        this.rmqPullCreditBytes = bytes;
+    }
+
     public ConsumeFromWhere getConsumeFromWhere() {
         return consumeFromWhere;
     }
@@ -107,6 +240,14 @@ public class ClientConfig {
         this.commitSync = commitSync;
     }
 
+    public long getOffsetFlushIntervalMillis() {
+        return offsetFlushIntervalMillis;
+    }
+
+    public void setOffsetFlushIntervalMillis(final long offsetFlushIntervalMillis) {
+        this.offsetFlushIntervalMillis = offsetFlushIntervalMillis;
+    }
+
     public AccessChannel getAccessChannel() {
         return accessChannel;
     }
@@ -117,7 +258,21 @@ public class ClientConfig {
 
     public static ClientConfig cloneConfig(ClientConfig clientConfig) {
         ClientConfig newConfig = new ClientConfig();
+        newConfig.setConsumeMode(clientConfig.getConsumeMode());
+        newConfig.setPopInvisibleTimeMillis(clientConfig.getPopInvisibleTimeMillis());
+        newConfig.setRmqPullMessageCacheCapacity(clientConfig.getRmqPullMessageCacheCapacity());
         newConfig.setRmqPullMessageBatchNums(clientConfig.getRmqPullMessageBatchNums());
+        newConfig.setRmqPullThreadNums(clientConfig.getRmqPullThreadNums());
+        newConfig.setRmqPullQueueThresholdRecordNums(clientConfig.getRmqPullQueueThresholdRecordNums());
+        newConfig.setRmqPullQueueThresholdBytes(clientConfig.getRmqPullQueueThresholdBytes());
+        newConfig.setRmqPullBacklogRecordNums(clientConfig.getRmqPullBacklogRecordNums());
+        newConfig.setLongPollingEnable(clientConfig.isLongPollingEnable());
+        newConfig.setSqlFilterEnable(clientConfig.isSqlFilterEnable());
+        newConfig.setSqlStringFunctionEnable(clientConfig.isSqlStringFunctionEnable());
+        newConfig.setBrokerSuspendMaxTimeMillis(clientConfig.getBrokerSuspendMaxTimeMillis());
+        newConfig.setConsumerTimeoutMillisWhenSuspend(clientConfig.getConsumerTimeoutMillisWhenSuspend());
+        newConfig.setRmqPullCreditRecordNums(clientConfig.getRmqPullCreditRecordNums());
+        newConfig.setRmqPullCreditBytes(clientConfig.getRmqPullCreditBytes());
         newConfig.setConsumeFromWhere(clientConfig.getConsumeFromWhere());
         newConfig.setConsumeTimestamp(clientConfig.getConsumeTimestamp());
         newConfig.setNameSrvAddr(clientConfig.getNameSrvAddr());
@@ -125,6 +280,7 @@ public class ClientConfig {
         newConfig.setConsumerGroup(clientConfig.getConsumerGroup());
         newConfig.setPullInterval(clientConfig.getPullInterval());
         newConfig.setCommitSync(clientConfig.isCommitSync());
+        newConfig.setOffsetFlushIntervalMillis(clientConfig.getOffsetFlushIntervalMillis());
         newConfig.setAccessChannel(clientConfig.getAccessChannel());
         return newConfig;
     }
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * how the subscriber fetches the events of a runner
+ */
+public enum ConsumeModeEnum {
+    /**
+     * pull the queues assigned to this node by the rebalance, the parallelism is bounded by the queues
+     */
+    LITE_PULL,
+    /**
+     * pop the messages of every queue without owning them and ack them one by one, so adding nodes adds
+     * parallelism without repartitioning
+     */
+    POP;
+
+    public static ConsumeModeEnum parse(String code) {
+        if (StringUtils.isBlank(code)) {
+            return LITE_PULL;
+        }
+        for (ConsumeModeEnum consumeModeEnum : ConsumeModeEnum.values()) {
+            if (consumeModeEnum.name().equalsIgnoreCase(code)) {
+                return consumeModeEnum;
+            }
+        }
+        return LITE_PULL;
+    }
+}
@@ -25,12 +25,14 @@ public class ConsumeRequest {
     private final MessageExt messageExt;
     private final MessageQueue messageQueue;
     private final ProcessQueue processQueue;
+    private final QueueOwnership queueOwnership;
 
-    public ConsumeRequest(final MessageExt messageExt, final MessageQueue messageQueue,
+    public ConsumeRequest(final MessageExt messageExt, final QueueOwnership queueOwnership,
                           final ProcessQueue processQueue) {
         this.messageExt = messageExt;
-        this.messageQueue = messageQueue;
+        this.messageQueue = queueOwnership.getMessageQueue();
         this.processQueue = processQueue;
+        this.queueOwnership = queueOwnership;
     }
 
     public MessageExt getMessageExt() {
@@ -44,4 +46,8 @@ public class ConsumeRequest {
     public ProcessQueue getProcessQueue() {
         return processQueue;
     }
+
+    public QueueOwnership getQueueOwnership() {
+        return queueOwnership;
+    }
 }
@@ -18,9 +18,9 @@
 package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer;
 
 import org.apache.rocketmq.client.exception.MQClientException;
-import org.apache.rocketmq.common.message.MessageExt;
 
 import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
 
 public interface LitePullConsumer {
@@ -30,9 +30,43 @@ public interface LitePullConsumer {
 
     void attachTopic(String topic, String tag);
 
-    List<MessageExt> poll(int pullBatchSize, Duration timeout);
+    /**
+     * attach a runner, every pulled message is fanned out to all the attached runners
+     *
+     * @param runnerName
+     * @param filterExpression SQL92 pre-filter of the runner, null when it accepts every message
+     */
+    void attachRunner(String runnerName, String filterExpression);
 
-    void commit(List<String> messageIdList);
+    /**
+     * @param runnerName
+     * @return whether no runner is attached any more
+     */
+    boolean detachRunner(String runnerName);
+
+    /**
+     * poll the messages of the runner, each with the queue assignment it was pulled under
+     *
+     * @param runnerName
+     * @param pullBatchSize
+     * @param timeout
+     * @return
+     */
+    List<ConsumeRequest> poll(String runnerName, int pullBatchSize, Duration timeout);
+
+    /**
+     * ack the messages of the runner, addressed by queue and queue offset
+     *
+     * @param runnerName
+     * @param queueOffsetsList
+     */
+    void commit(String runnerName, Collection<QueueOffsets> queueOffsetsList);
+
+    /**
+     * @return whether the broker rejected the SQL92 pre-filter, so every message of the topic is fetched for all
+     * the attached runners and filtered in process only
+     */
+    boolean isBrokerFilterDisabled();
 
     void setSockProxyJson(String proxyJson);
 
@@ -20,15 +20,16 @@ package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consum
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.rocketmq.client.consumer.DefaultMQPullConsumer;
+import org.apache.rocketmq.client.consumer.MessageSelector;
 import org.apache.rocketmq.client.consumer.MessageQueueListener;
 import org.apache.rocketmq.client.consumer.PullCallback;
 import org.apache.rocketmq.client.consumer.PullResult;
+import org.apache.rocketmq.client.consumer.PullStatus;
 import org.apache.rocketmq.client.consumer.rebalance.AllocateMessageQueueAveragelyByCircle;
 import org.apache.rocketmq.client.exception.MQBrokerException;
 import org.apache.rocketmq.client.exception.MQClientException;
 import org.apache.rocketmq.client.impl.consumer.ProcessQueue;
 import org.apache.rocketmq.common.ServiceState;
-import org.apache.rocketmq.common.message.MessageExt;
 import org.apache.rocketmq.common.message.MessageQueue;
 import org.apache.rocketmq.common.utils.ThreadUtils;
 import org.apache.rocketmq.remoting.RPCHook;
@@ -37,16 +38,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class LitePullConsumerImpl implements LitePullConsumer {
     private static final Logger LOGGER = LoggerFactory.getLogger(LitePullConsumerImpl.class);
@@ -54,12 +59,21 @@ public class LitePullConsumerImpl implements LitePullConsumer {
     private final LocalMessageCache localMessageCache;
     private final ClientConfig clientConfig;
     private final Map<MessageQueue, ProcessQueue> runningQueueMap = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService scheduleService = new ScheduledThreadPoolExecutor(1,
-            ThreadUtils.newThreadFactory("PullConsumerScheduleService", false));
+    private final Map<MessageQueue, QueueOwnership> queueOwnershipTable = new ConcurrentHashMap<>();
+    private final AtomicLong ownershipGeneration = new AtomicLong();
+    // Pull tasks waiting for the runner credits to be refilled by commits.
+    private final Set<PullTask> creditWaitingTasks = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduleService;
+    private final AtomicLong queueFlowControlTimes = new AtomicLong();
+    // SQL92 pre-filter of every attached runner, empty when the runner accepts every message.
+    private final Map<String, String> runnerFilterTable = new ConcurrentHashMap<>();
+    // Union of the runner pre-filters the broker applies, null to pull every message.
+    private volatile MessageSelector messageSelector;
+    private volatile boolean sqlFilterUnsupported = false;
     private static final Long PULL_TIME_DELAY_MILLS_WHEN_BROKER_FLOW_CONTROL = 30L;
+    private static final Long PULL_TIME_DELAY_MILLS_WHEN_CACHE_FLOW_CONTROL = 50L;
     private static final Long PULL_TIME_DELAY_MILLS_WHEN_EXCEPTION = TimeUnit.SECONDS.toMillis(3);
     private static final String DEFAULT_INSTANCE_NAME = "EventBridge_Consumer_INSTANCE";
-    private static final Integer PULL_BATCH_NUM = 32;
 
     public LitePullConsumerImpl(final ClientConfig clientConfig, final RPCHook rpcHook) {
         this.clientConfig = clientConfig;
@@ -73,17 +87,25 @@ public class LitePullConsumerImpl implements LitePullConsumer {
         if (StringUtils.isNotBlank(clientConfig.getNamespace())) {
             rocketmqPullConsumer.setNamespace(clientConfig.getNamespace());
         }
+        rocketmqPullConsumer.setBrokerSuspendMaxTimeMillis(clientConfig.getBrokerSuspendMaxTimeMillis());
+        rocketmqPullConsumer.setConsumerTimeoutMillisWhenSuspend(clientConfig.getConsumerTimeoutMillisWhenSuspend());
         localMessageCache = new LocalMessageCache(rocketmqPullConsumer, clientConfig);
+        // every queue has its own pull task, the pool lets a slow queue not hold back the others
+        scheduleService = new ScheduledThreadPoolExecutor(Math.max(1, clientConfig.getRmqPullThreadNums()),
+            ThreadUtils.newThreadFactory("PullConsumerScheduleService", false));
     }
 
     @Override
     public void startup() throws MQClientException {
         rocketmqPullConsumer.start();
+        localMessageCache.getOffsetFlusher().startup();
         LOGGER.info("RocketmqPullConsumer start.");
     }
 
     @Override
     public void shutdown() {
+        // the consumer persists its offset store on shutdown, so the last commits are put into it first
+        localMessageCache.getOffsetFlusher().shutdown();
         rocketmqPullConsumer.shutdown();
         shutdownThreadPool(scheduleService);
     }
@@ -126,14 +148,45 @@ public class LitePullConsumerImpl implements LitePullConsumer {
         rocketmqPullConsumer.getDefaultMQPullConsumerImpl().unsubscribe(topic);
     }
 
+    /**
+     * attach the runner, or only change its filter when it is attached already, so its subscription is kept
+     */
+    @Override
+    public void attachRunner(final String runnerName, final String filterExpression) {
+        runnerFilterTable.put(runnerName, filterExpression == null ? "" : filterExpression);
+        refreshMessageSelector();
+        if (localMessageCache.getSubscription(runnerName) != null) {
+            return;
+        }
+        RunnerSubscription subscription = localMessageCache.attach(runnerName);
+        subscription.getRunnerCredit().registerRefillListener(this::resumeCreditWaitingTasks);
+        // the pull tasks park while no runner is attached
+        resumeCreditWaitingTasks();
+    }
+
+    @Override
+    public boolean detachRunner(final String runnerName) {
+        boolean empty = localMessageCache.detach(runnerName);
+        runnerFilterTable.remove(runnerName);
+        refreshMessageSelector();
+        // the detached runner may have been the one without credits
+        resumeCreditWaitingTasks();
+        return empty;
+    }
+
+    @Override
+    public List<ConsumeRequest> poll(final String runnerName, final int pullBatchSize, final Duration timeout) {
+        return localMessageCache.poll(runnerName, pullBatchSize, timeout);
+    }
+
     @Override
-    public List<MessageExt> poll(final int pullBatchSize, final Duration timeout) {
-        return localMessageCache.poll(pullBatchSize, timeout);
+    public void commit(final String runnerName, final Collection<QueueOffsets> queueOffsetsList) {
+        localMessageCache.commit(runnerName, queueOffsetsList);
     }
 
     @Override
-    public void commit(final List<String> messageIdList) {
-        localMessageCache.commit(messageIdList);
+    public boolean isBrokerFilterDisabled() {
+        return sqlFilterUnsupported;
     }
 
     @Override
@@ -141,6 +194,43 @@ public class LitePullConsumerImpl implements LitePullConsumer {
         rocketmqPullConsumer.setSocksProxyConfig(proxyJson);
     }
 
+    /**
+     * The messages are fanned out to all the runners, so the broker may only drop the messages none of them
+     * accepts: the pre-filters are joined by OR, and a runner without one turns the broker filter off.
+     */
+    private synchronized void refreshMessageSelector() {
+        MessageSelector selector = null;
+        Set<String> filterExpressions = new TreeSet<>(runnerFilterTable.values());
+        if (clientConfig.isSqlFilterEnable() && !sqlFilterUnsupported && !filterExpressions.isEmpty()
+            && !filterExpressions.contains("")) {
+            String expression = filterExpressions.size() == 1 ? filterExpressions.iterator().next()
+                : "(" + String.join(") OR (", filterExpressions) + ")";
+            selector = MessageSelector.bySql(expression);
+        }
+        if (!Objects.equals(expressionOf(messageSelector), expressionOf(selector))) {
+            LOGGER.info("Broker filter of consumer group {} changed to {}", clientConfig.getConsumerGroup(), expressionOf(selector));
+        }
+        messageSelector = selector;
+    }
+
+    private static String expressionOf(MessageSelector selector) {
+        return selector == null ? null : selector.getExpression();
+    }
+
+    /**
+     * the broker rejects SQL92 subscriptions unless enablePropertyFilter is set, then every message is pulled
+     * and only filtered in process
+     */
+    static boolean isSqlFilterUnsupported(Throwable e) {
+        if (!(e instanceof MQBrokerException)) {
+            return false;
+        }
+        MQBrokerException brokerException = (MQBrokerException) e;
+        return brokerException.getResponseCode() == ResponseCode.SUBSCRIPTION_PARSE_FAILED
+            || brokerException.getResponseCode() == ResponseCode.SYSTEM_ERROR
+            && StringUtils.containsIgnoreCase(brokerException.getErrorMessage(), "SQL92");
+    }
+
     private void submitPullTask(String topic, String tag, Set<MessageQueue> assignedQueues) {
         Set<MessageQueue> runningQueues = runningQueueMap.keySet();
         for (MessageQueue runningQueue : runningQueues) {
@@ -149,6 +239,7 @@ public class LitePullConsumerImpl implements LitePullConsumer {
                 if (processQueue != null) {
                     processQueue.setDropped(true);
                 }
+                revokeOwnership(runningQueue);
             }
         }
         if (CollectionUtils.isEmpty(assignedQueues)) {
@@ -161,7 +252,10 @@ public class LitePullConsumerImpl implements LitePullConsumer {
                     .getProcessQueueTable().get(messageQueue);
             if (runningQueueMap.putIfAbsent(messageQueue, processQueue) == null) {
                 try {
-                    PullTask pullTask = new PullTask(messageQueue, tag);
+                    QueueOwnership queueOwnership = new QueueOwnership(messageQueue, ownershipGeneration.incrementAndGet());
+                    revokeOwnership(messageQueue);
+                    queueOwnershipTable.put(messageQueue, queueOwnership);
+                    PullTask pullTask = new PullTask(queueOwnership, tag);
                     pullImmediately(pullTask);
                     LOGGER.info("Submit pullTask:{}", messageQueue);
                 } catch (Exception e) {
@@ -173,12 +267,26 @@ public class LitePullConsumerImpl implements LitePullConsumer {
                         processQueue.setDropped(true);
                     }
                     runningQueueMap.remove(messageQueue);
+                    revokeOwnership(messageQueue);
                 }
             }
         }
 
     }
 
+    /**
+     * fence off the messages pulled under the current assignment of the queue
+     *
+     * @param messageQueue
+     */
+    private void revokeOwnership(MessageQueue messageQueue) {
+        QueueOwnership queueOwnership = queueOwnershipTable.remove(messageQueue);
+        if (queueOwnership != null) {
+            queueOwnership.revoke();
+            LOGGER.info("Revoke the ownership of {}, generation {}", messageQueue, queueOwnership.getGeneration());
+        }
+    }
+
     void pullImmediately(PullTask pullTask) {
         scheduleService.schedule(new Runnable() {
             @Override
@@ -197,13 +305,42 @@ public class LitePullConsumerImpl implements LitePullConsumer {
         }, delay, unit);
     }
 
+    /**
+     * park the pull task until commits give back enough credits to every attached runner
+     *
+     * @param pullTask
+     */
+    private void waitForCredit(PullTask pullTask) {
+        creditWaitingTasks.add(pullTask);
+        // the credits may have been refilled before the task was parked
+        if (localMessageCache.nextPullBatchNums(1) > 0 && creditWaitingTasks.remove(pullTask)) {
+            pullImmediately(pullTask);
+        } else if (!localMessageCache.isCreditExhausted() && creditWaitingTasks.remove(pullTask)) {
+            // bounded by the room of the cache or the bytes estimated in flight, which no refill reports
+            pullLater(pullTask, PULL_TIME_DELAY_MILLS_WHEN_CACHE_FLOW_CONTROL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void resumeCreditWaitingTasks() {
+        if (creditWaitingTasks.isEmpty()) {
+            return;
+        }
+        for (PullTask pullTask : creditWaitingTasks) {
+            if (creditWaitingTasks.remove(pullTask)) {
+                pullImmediately(pullTask);
+            }
+        }
+    }
+
     class PullTask implements Runnable {
 
         private final String tag;
         private final MessageQueue messageQueue;
+        private final QueueOwnership queueOwnership;
 
-        public PullTask(MessageQueue messageQueue, String tag) {
-            this.messageQueue = messageQueue;
+        public PullTask(QueueOwnership queueOwnership, String tag) {
+            this.messageQueue = queueOwnership.getMessageQueue();
+            this.queueOwnership = queueOwnership;
             this.tag = tag;
         }
 
@@ -216,13 +353,30 @@ public class LitePullConsumerImpl implements LitePullConsumer {
                 }
                 ProcessQueue processQueue = rocketmqPullConsumer.getDefaultMQPullConsumerImpl().getRebalanceImpl()
                         .getProcessQueueTable().get(messageQueue);
-                if (processQueue == null || processQueue.isDropped()) {
+                if (processQueue == null || processQueue.isDropped() || queueOwnership.isRevoked()) {
                     LOGGER.info("ProcessQueue {} dropped, pullTask exit", messageQueue);
                     return;
                 }
+                if (localMessageCache.isQueueFlowControlled(messageQueue)) {
+                    if (queueFlowControlTimes.getAndIncrement() % 1000 == 0) {
+                        LOGGER.warn("The cached messages of queue {} exceed its threshold, so do flow control, flowControlTimes={}",
+                                messageQueue, queueFlowControlTimes.get());
+                    }
+                    pullLater(PullTask.this, PULL_TIME_DELAY_MILLS_WHEN_CACHE_FLOW_CONTROL, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                int pullBatchNums = localMessageCache.nextPullBatchNums(clientConfig.getRmqPullMessageBatchNums());
+                if (pullBatchNums <= 0) {
+                    LOGGER.debug("Runner credits exhausted or no runner attached, pullTask of {} waits.", messageQueue);
+                    waitForCredit(PullTask.this);
+                    return;
+                }
                 long offset = localMessageCache.nextPullOffset(messageQueue);
+                final MessageSelector selector = messageSelector;
+                // the broker only holds tag subscriptions until messages arrive
+                final boolean longPolling = clientConfig.isLongPollingEnable() && selector == null;
 
-                rocketmqPullConsumer.pullBlockIfNotFound(this.messageQueue, this.tag, offset, PULL_BATCH_NUM, new PullCallback() {
+                PullCallback pullCallback = new PullCallback() {
                     @Override
                     public void onSuccess(PullResult pullResult) {
                         try {
@@ -235,11 +389,8 @@ public class LitePullConsumerImpl implements LitePullConsumer {
                                     .getProcessQueueTable().get(messageQueue);
                             switch (pullResult.getPullStatus()) {
                                 case FOUND:
-                                    if (pq != null && !pq.isDropped()) {
-                                        pq.putMessage(pullResult.getMsgFoundList());
-                                        for (final MessageExt messageExt : pullResult.getMsgFoundList()) {
-                                            localMessageCache.submitConsumeRequest(new ConsumeRequest(messageExt, messageQueue, pq), Long.MAX_VALUE);
-                                        }
+                                    if (pq != null && !pq.isDropped() && !queueOwnership.isRevoked()) {
+                                        localMessageCache.deliver(queueOwnership, pq, offset, pullResult.getMsgFoundList(), pullResult.getNextBeginOffset());
                                         localMessageCache.updatePullOffset(messageQueue, pullResult.getNextBeginOffset());
                                         pullImmediately(PullTask.this);
                                     } else {
@@ -252,13 +403,20 @@ public class LitePullConsumerImpl implements LitePullConsumer {
                                                     "pull result is {}, delay {} ms for next pull",
                                             offset, messageQueue, pullResult, PULL_TIME_DELAY_MILLS_WHEN_EXCEPTION);
                                     localMessageCache.updatePullOffset(messageQueue, pullResult.getNextBeginOffset());
+                                    localMessageCache.resetAckWindow(messageQueue);
                                     pullLater(PullTask.this, PULL_TIME_DELAY_MILLS_WHEN_EXCEPTION, TimeUnit.MILLISECONDS);
                                     break;
                                 case NO_NEW_MSG:
                                 case NO_MATCHED_MSG:
-                                    LOGGER.info("No NEW_MSG or MATCHED_MSG for mq:{}, pull again.", messageQueue);
+                                    LOGGER.debug("No NEW_MSG or MATCHED_MSG for mq:{}, pull again.", messageQueue);
                                     localMessageCache.updatePullOffset(messageQueue, pullResult.getNextBeginOffset());
-                                    pullImmediately(PullTask.this);
+                                    localMessageCache.deliver(queueOwnership, pq, offset, Collections.emptyList(), pullResult.getNextBeginOffset());
+                                    // more messages may follow the ones the broker filtered out
+                                    if (longPolling || pullResult.getPullStatus() == PullStatus.NO_MATCHED_MSG) {
+                                        pullImmediately(PullTask.this);
+                                    } else {
+                                        pullLater(PullTask.this, clientConfig.getPullInterval(), TimeUnit.MILLISECONDS);
+                                    }
                                     break;
                                 default:
                                     LOGGER.warn("Failed to process pullResult, mq:{} {}", messageQueue, pullResult);
@@ -272,6 +430,15 @@ public class LitePullConsumerImpl implements LitePullConsumer {
 
                     @Override
                     public void onException(Throwable e) {
+                        if (selector != null && isSqlFilterUnsupported(e)) {
+                            LOGGER.error("The broker rejects the SQL92 filter {}, the broker filter of consumer group {} is disabled "
+                                    + "for all its runners {}, enable enablePropertyFilter on the broker to restore it.",
+                                selector.getExpression(), clientConfig.getConsumerGroup(), runnerFilterTable.keySet(), e);
+                            sqlFilterUnsupported = true;
+                            refreshMessageSelector();
+                            pullImmediately(PullTask.this);
+                            return;
+                        }
                         long delayTimeMillis = 0L;
                         if (e instanceof MQBrokerException && ((MQBrokerException) e).getResponseCode() == ResponseCode.FLOW_CONTROL) {
                             delayTimeMillis = PULL_TIME_DELAY_MILLS_WHEN_BROKER_FLOW_CONTROL;
@@ -282,7 +449,14 @@ public class LitePullConsumerImpl implements LitePullConsumer {
                                 delayTimeMillis, messageQueue, e);
                         pullLater(PullTask.this, delayTimeMillis, TimeUnit.MILLISECONDS);
                     }
-                });
+                };
+                if (selector != null) {
+                    rocketmqPullConsumer.pull(this.messageQueue, selector, offset, pullBatchNums, pullCallback);
+                } else if (longPolling) {
+                    rocketmqPullConsumer.pullBlockIfNotFound(this.messageQueue, this.tag, offset, pullBatchNums, pullCallback);
+                } else {
+                    rocketmqPullConsumer.pull(this.messageQueue, this.tag, offset, pullBatchNums, pullCallback);
+                }
             } catch (Throwable t) {
                 LOGGER.error("Error occurs when pull message process, delay {} ms for message queue {}",
                         PULL_TIME_DELAY_MILLS_WHEN_EXCEPTION, messageQueue, t);
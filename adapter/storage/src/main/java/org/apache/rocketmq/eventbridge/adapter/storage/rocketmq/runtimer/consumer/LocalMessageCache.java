@@ -18,7 +18,7 @@
 package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer;
 
 import org.apache.rocketmq.client.consumer.DefaultMQPullConsumer;
-import org.apache.rocketmq.client.exception.MQClientException;
+import org.apache.rocketmq.client.impl.consumer.ProcessQueue;
 import org.apache.rocketmq.common.consumer.ConsumeFromWhere;
 import org.apache.rocketmq.common.message.MessageExt;
 import org.apache.rocketmq.common.message.MessageQueue;
@@ -27,34 +27,122 @@ import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class LocalMessageCache {
     private static final Logger log = LoggerFactory.getLogger(LocalMessageCache.class);
-    private final BlockingQueue<ConsumeRequest> consumeRequestCache;
-    private final Map<String, ConsumeRequest> consumedRequest;
     private final ConcurrentHashMap<MessageQueue, Long> pullOffsetTable;
+    private final Map<String/*RunnerName*/, RunnerSubscription> subscriptionTable;
     private final DefaultMQPullConsumer rocketmqPullConsumer;
     private final ClientConfig clientConfig;
+    private final OffsetFlusher offsetFlusher;
 
     LocalMessageCache(final DefaultMQPullConsumer rocketmqPullConsumer, final ClientConfig clientConfig) {
-        consumeRequestCache = new LinkedBlockingQueue<>(clientConfig.getRmqPullMessageCacheCapacity());
-        this.consumedRequest = new ConcurrentHashMap<>();
+        this(rocketmqPullConsumer, clientConfig, new OffsetFlusher(
+            () -> rocketmqPullConsumer.getDefaultMQPullConsumerImpl().getOffsetStore(), clientConfig.getOffsetFlushIntervalMillis()));
+    }
+
+    LocalMessageCache(final DefaultMQPullConsumer rocketmqPullConsumer, final ClientConfig clientConfig,
+        final OffsetFlusher offsetFlusher) {
         this.pullOffsetTable = new ConcurrentHashMap<>();
+        this.subscriptionTable = new ConcurrentHashMap<>();
         this.rocketmqPullConsumer = rocketmqPullConsumer;
         this.clientConfig = clientConfig;
+        this.offsetFlusher = offsetFlusher;
+    }
+
+    OffsetFlusher getOffsetFlusher() {
+        return offsetFlusher;
+    }
+
+    RunnerSubscription attach(String runnerName) {
+        return subscriptionTable.computeIfAbsent(runnerName, key -> new RunnerSubscription(key, clientConfig));
+    }
+
+    /**
+     * @param runnerName
+     * @return whether no runner is attached any more
+     */
+    boolean detach(String runnerName) {
+        subscriptionTable.remove(runnerName);
+        return subscriptionTable.isEmpty();
+    }
+
+    RunnerSubscription getSubscription(String runnerName) {
+        return subscriptionTable.get(runnerName);
+    }
+
+    Collection<RunnerSubscription> getSubscriptions() {
+        return subscriptionTable.values();
+    }
+
+    /**
+     * A pull is fanned out to every runner, so it is bounded by the runner with the least room, and shrinks
+     * with the free share of that runner, so the queues share the room left instead of racing for it. A runner
+     * which used up its credits takes the messages into its bounded backlog while some other runner still has
+     * credits, so one slow runner does not hold the fetch of the topic back before its backlog is full.
+     *
+     * @param maxPullNums
+     * @return 0 when every runner used up its credits, some backlog is full or no runner is attached
+     */
+    int nextPullBatchNums(int maxPullNums) {
+        if (subscriptionTable.isEmpty()) {
+            return 0;
+        }
+        int pullNums = maxPullNums;
+        boolean credited = false;
+        for (RunnerSubscription subscription : subscriptionTable.values()) {
+            int availableNums = subscription.availablePullNums();
+            if (availableNums <= 0) {
+                int backlogNums = subscription.backlogPullNums();
+                if (backlogNums <= 0) {
+                    return 0;
+                }
+                pullNums = Math.min(pullNums, backlogNums);
+                continue;
+            }
+            credited = true;
+            int capacityNums = Math.max(1, subscription.capacityPullNums());
+            int adaptiveNums = (int) Math.max(1, (long) maxPullNums * availableNums / capacityNums);
+            pullNums = Math.min(pullNums, Math.min(availableNums, adaptiveNums));
+        }
+        return credited ? pullNums : 0;
+    }
+
+    /**
+     * @return whether no runner is attached or some runner used up its credits, which the refill of its credits
+     * reports
+     */
+    boolean isCreditExhausted() {
+        if (subscriptionTable.isEmpty()) {
+            return true;
+        }
+        for (RunnerSubscription subscription : subscriptionTable.values()) {
+            if (!subscription.getRunnerCredit().hasCredit()) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    int nextPullBatchNums() {
-        return Math.min(clientConfig.getRmqPullMessageBatchNums(), consumeRequestCache.remainingCapacity());
+    /**
+     * @param messageQueue
+     * @return whether some runner holds more than the share of the queue, so pulling it should pause, a
+     * lagging runner is bounded by its backlog instead
+     */
+    boolean isQueueFlowControlled(MessageQueue messageQueue) {
+        for (RunnerSubscription subscription : subscriptionTable.values()) {
+            if (!subscription.isLagging() && subscription.exceedsQueueThreshold(messageQueue)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     long nextPullOffset(MessageQueue remoteQueue) {
@@ -114,59 +202,96 @@ public class LocalMessageCache {
 
     void removePullOffset(MessageQueue remoteQueue) {
         pullOffsetTable.remove(remoteQueue);
+        for (RunnerSubscription subscription : subscriptionTable.values()) {
+            subscription.resetAckWindow(remoteQueue);
+        }
     }
 
+    /**
+     * forget the queues no longer assigned, their ownership is revoked already. The ack windows are dropped
+     * before the offsets are flushed, so no commit moves an offset of them once it is persisted for the new owner.
+     *
+     * @param mqDivided queues still assigned
+     */
     void shrinkPullOffsetTable(Set<MessageQueue> mqDivided) {
+        for (RunnerSubscription subscription : subscriptionTable.values()) {
+            subscription.shrinkAckWindows(mqDivided);
+        }
+        offsetFlusher.flushOnRebalance(mqDivided);
         pullOffsetTable.entrySet().removeIf(next -> !mqDivided.contains(next.getKey()));
     }
 
-    boolean submitConsumeRequest(ConsumeRequest consumeRequest, Long timeout) {
-        try {
-            return consumeRequestCache.offer(consumeRequest, timeout, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            log.warn("put consumeRequestCache failed", e);
+    /**
+     * drop the ack windows when the pull offset is corrected by the broker, the next pull opens new ones
+     *
+     * @param remoteQueue
+     */
+    void resetAckWindow(MessageQueue remoteQueue) {
+        for (RunnerSubscription subscription : subscriptionTable.values()) {
+            subscription.resetAckWindow(remoteQueue);
         }
-        return false;
     }
 
-    public List<MessageExt> poll(final int pullBatchSize, final Duration timeout) {
-        List<MessageExt> messageList = new ArrayList<>();
-        try {
-            List<ConsumeRequest> consumeRequestList = new ArrayList<>();
-            consumeRequestCache.drainTo(consumeRequestList, pullBatchSize);
-            if (consumeRequestList.size() == 0) {
-                final ConsumeRequest consumeRequest = consumeRequestCache.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
-                if (consumeRequest != null) {
-                    consumeRequestList.add(consumeRequest);
-                    // drainTo again
-                    consumeRequestCache.drainTo(consumeRequestList, pullBatchSize - 1);
-                }
-            }
-            for (final ConsumeRequest consumeRequest : consumeRequestList) {
-                MessageExt messageExt = consumeRequest.getMessageExt();
-                consumedRequest.put(messageExt.getMsgId(), consumeRequest);
-                messageList.add(messageExt);
-            }
-        } catch (InterruptedException e) {
-            log.warn("Poll from local cache interrupted.", e);
+    /**
+     * fan the pulled messages out to every attached runner
+     *
+     * @param queueOwnership the assignment of the queue the messages were pulled under
+     * @param processQueue
+     * @param pullOffset offset the pull started from
+     * @param messageExts pulled messages, empty when nothing matched
+     * @param nextBeginOffset
+     */
+    void deliver(QueueOwnership queueOwnership, ProcessQueue processQueue, long pullOffset, List<MessageExt> messageExts,
+        long nextBeginOffset) {
+        List<ConsumeRequest> consumeRequests = new ArrayList<>(messageExts.size());
+        for (MessageExt messageExt : messageExts) {
+            consumeRequests.add(new ConsumeRequest(messageExt, queueOwnership, processQueue));
+        }
+        for (RunnerSubscription subscription : subscriptionTable.values()) {
+            subscription.deliver(queueOwnership, pullOffset, consumeRequests, nextBeginOffset);
+        }
+    }
+
+    public List<ConsumeRequest> poll(final String runnerName, final int pullBatchSize, final Duration timeout) {
+        RunnerSubscription subscription = subscriptionTable.get(runnerName);
+        if (subscription == null) {
+            log.warn("Runner {} is not attached, poll nothing.", runnerName);
+            return Collections.emptyList();
         }
-        return messageList;
+        return subscription.poll(pullBatchSize, timeout);
     }
 
-    public void commit(final List<String> messageList) {
-        for (final String msgId : messageList) {
-            ConsumeRequest consumeRequest = consumedRequest.remove(msgId);
-            if (consumeRequest != null) {
-                long offset = consumeRequest.getProcessQueue().removeMessage(Collections.singletonList(consumeRequest.getMessageExt()));
-                try {
-                    rocketmqPullConsumer.updateConsumeOffset(consumeRequest.getMessageQueue(), offset);
-                } catch (MQClientException e) {
-                    log.error("A error occurred in update consume offset process.", e);
+    /**
+     * ack the messages of the runner, then move the offset of every queue whose committed offset advanced to
+     * the lowest committed offset of all the runners, once per queue, and persist them once for the whole batch
+     *
+     * @param runnerName
+     * @param queueOffsetsList
+     */
+    public void commit(final String runnerName, final Collection<QueueOffsets> queueOffsetsList) {
+        RunnerSubscription subscription = subscriptionTable.get(runnerName);
+        if (subscription == null) {
+            return;
+        }
+        Map<MessageQueue, QueueOwnership> advancedQueues = subscription.commit(queueOffsetsList);
+        if (advancedQueues.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<MessageQueue, QueueOwnership> entry : advancedQueues.entrySet()) {
+            MessageQueue messageQueue = entry.getKey();
+            Long offset = null;
+            for (RunnerSubscription other : subscriptionTable.values()) {
+                Long committedOffset = other.committedOffset(messageQueue);
+                if (committedOffset != null && (offset == null || committedOffset < offset)) {
+                    offset = committedOffset;
                 }
             }
+            if (offset != null) {
+                offsetFlusher.update(entry.getValue(), offset);
+            }
         }
         if (clientConfig.isCommitSync()) {
-            rocketmqPullConsumer.getDefaultMQPullConsumerImpl().persistConsumerOffset();
+            offsetFlusher.flush();
         }
     }
 }
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.rocketmq.client.consumer.store.OffsetStore;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.apache.rocketmq.common.utils.ThreadUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persists the committed offsets of a consumer on its own interval. A commit only records the offset of the queue
+ * in memory and marks the queue dirty, the flusher coalesces all the commits of a queue since the last round into a
+ * single update to the broker. The interval trades the round trips to the broker against the messages redelivered
+ * after a crash.
+ */
+public class OffsetFlusher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OffsetFlusher.class);
+    private final Supplier<OffsetStore> offsetStoreSupplier;
+    private final long flushIntervalMillis;
+    private final Map<MessageQueue, Long> offsetTable = new ConcurrentHashMap<>();
+    private final Set<MessageQueue> dirtyQueues = ConcurrentHashMap.newKeySet();
+    // orders the commits against the rebalance forgetting the queues, so no commit lands after it
+    private final Object rebalanceLock = new Object();
+    private ScheduledExecutorService flushService;
+
+    /**
+     * @param offsetStoreSupplier the offset store of the consumer, which only exists once it is started
+     * @param flushIntervalMillis
+     */
+    public OffsetFlusher(Supplier<OffsetStore> offsetStoreSupplier, long flushIntervalMillis) {
+        this.offsetStoreSupplier = offsetStoreSupplier;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public synchronized void startup() {
+        if (flushService != null || flushIntervalMillis <= 0) {
+            return;
+        }
+        flushService = new ScheduledThreadPoolExecutor(1, ThreadUtils.newThreadFactory("OffsetFlushService", true));
+        flushService.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * stop the flush round and flush what is left
+     */
+    public synchronized void shutdown() {
+        if (flushService != null) {
+            flushService.shutdown();
+            try {
+                flushService.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flushService = null;
+        }
+        flush();
+    }
+
+    /**
+     * record the committed offset of the queue, which is persisted by the next flush, a commit made under a
+     * revoked assignment is dropped, the queue may be owned by another consumer already
+     *
+     * @param queueOwnership the assignment the committed messages were pulled under
+     * @param offset
+     * @return whether the offset was recorded
+     */
+    public boolean update(QueueOwnership queueOwnership, long offset) {
+        synchronized (rebalanceLock) {
+            if (queueOwnership.isRevoked()) {
+                return false;
+            }
+            offsetTable.put(queueOwnership.getMessageQueue(), offset);
+            dirtyQueues.add(queueOwnership.getMessageQueue());
+            return true;
+        }
+    }
+
+    /**
+     * persist the offsets of all the dirty queues
+     */
+    public void flush() {
+        for (MessageQueue messageQueue : dirtyQueues) {
+            flush(messageQueue);
+        }
+    }
+
+    /**
+     * persist the offsets of the dirty queues right away and forget the queues no longer assigned, so their new
+     * owners resume from the last commits made here. The assignments of the queues taken away must be revoked
+     * before, so no commit is recorded for them after they are forgotten.
+     *
+     * @param mqDivided queues still assigned
+     */
+    public void flushOnRebalance(Set<MessageQueue> mqDivided) {
+        flush();
+        synchronized (rebalanceLock) {
+            for (MessageQueue messageQueue : offsetTable.keySet()) {
+                if (!mqDivided.contains(messageQueue)) {
+                    // a commit recorded since the flush above is given up, its messages are redelivered
+                    offsetTable.remove(messageQueue);
+                    dirtyQueues.remove(messageQueue);
+                }
+            }
+        }
+    }
+
+    public boolean isDirty(MessageQueue messageQueue) {
+        return dirtyQueues.contains(messageQueue);
+    }
+
+    private void flush(MessageQueue messageQueue) {
+        // the flag is cleared before the offset is read, so a commit racing with the flush marks the queue again
+        if (!dirtyQueues.remove(messageQueue)) {
+            return;
+        }
+        Long offset = offsetTable.get(messageQueue);
+        OffsetStore offsetStore = offsetStoreSupplier.get();
+        if (offset == null || offsetStore == null) {
+            return;
+        }
+        try {
+            offsetStore.updateOffset(messageQueue, offset, false);
+            offsetStore.persist(messageQueue);
+        } catch (Exception e) {
+            dirtyQueues.add(messageQueue);
+            LOGGER.error("A error occurred in persist consume offset process, {}", messageQueue, e);
+        }
+    }
+}
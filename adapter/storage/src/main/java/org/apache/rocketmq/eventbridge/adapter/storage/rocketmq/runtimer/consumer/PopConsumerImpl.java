@@ -0,0 +1,539 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.rocketmq.client.consumer.AckCallback;
+import org.apache.rocketmq.client.consumer.AckResult;
+import org.apache.rocketmq.client.consumer.AckStatus;
+import org.apache.rocketmq.client.consumer.DefaultMQPullConsumer;
+import org.apache.rocketmq.client.consumer.PopCallback;
+import org.apache.rocketmq.client.consumer.PopResult;
+import org.apache.rocketmq.client.consumer.PopStatus;
+import org.apache.rocketmq.client.exception.MQClientException;
+import org.apache.rocketmq.client.impl.FindBrokerResult;
+import org.apache.rocketmq.client.impl.MQClientManager;
+import org.apache.rocketmq.client.impl.factory.MQClientInstance;
+import org.apache.rocketmq.common.MixAll;
+import org.apache.rocketmq.common.constant.ConsumeInitMode;
+import org.apache.rocketmq.common.consumer.ConsumeFromWhere;
+import org.apache.rocketmq.common.filter.ExpressionType;
+import org.apache.rocketmq.common.message.MessageConst;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.apache.rocketmq.common.utils.ThreadUtils;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.RunnerCredit;
+import org.apache.rocketmq.remoting.RPCHook;
+import org.apache.rocketmq.remoting.protocol.header.AckMessageRequestHeader;
+import org.apache.rocketmq.remoting.protocol.header.ExtraInfoUtil;
+import org.apache.rocketmq.remoting.protocol.header.PopMessageRequestHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumer of one runner built on the POP consumption of RocketMQ 5. Every broker of the topic is popped without
+ * owning its queues, so the nodes of the runtime share the messages of a single queue, and every message is
+ * acked on its own once committed. A message which is not acked within the invisible time is popped again.
+ * The pops and acks are sent by the client API of the client instance, the pop batches are bounded by the credits
+ * of the runner and by the room left in the cache.
+ */
+public class PopConsumerImpl implements LitePullConsumer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PopConsumerImpl.class);
+    private final DefaultMQPullConsumer rocketmqPullConsumer;
+    private final RPCHook rpcHook;
+    // The client instance of the pull consumer, which resolves the brokers and sends the pops and acks.
+    private volatile MQClientInstance clientFactory;
+    private volatile boolean running = false;
+    private final ClientConfig clientConfig;
+    private final ScheduledExecutorService scheduleService;
+    // Pop tasks by broker name, a broker which leaves the route ends its task.
+    private final Map<String, PopTask> popTaskTable = new ConcurrentHashMap<>();
+    // The queues are never owned, so the assignment the messages are handed out under is never revoked.
+    private final Map<MessageQueue, QueueOwnership> queueOwnershipTable = new ConcurrentHashMap<>();
+    // Pop checkpoints of the messages handed out by queue and queue offset, which their acks carry.
+    private final Map<MessageQueue, Map<Long, PopCheckpoint>> popCheckpointTable = new ConcurrentHashMap<>();
+    private final BlockingQueue<ConsumeRequest> consumeRequestCache;
+    // Credits of the messages popped and not committed yet, the messages of the pops in flight included.
+    private final RunnerCredit runnerCredit;
+    // Cache slots held by the pops in flight, so the pops of all the brokers together never overfill the cache.
+    private int reservedCacheNums;
+    // Bumped on every detach, so the pops sent for a detached runner are dropped when they return.
+    private volatile long attachGeneration;
+    private volatile String topic;
+    private volatile String tag;
+    private volatile String runnerName;
+    // SQL92 pre-filter of the runner, null when the runner accepts every message.
+    private volatile String filterExpression;
+    private volatile boolean sqlFilterUnsupported = false;
+    private static final int MAX_POP_BATCH_NUMS = 32;
+    private static final long POP_TIME_DELAY_MILLS_WHEN_POLLING_FULL = 1000L;
+    private static final long POP_TIME_DELAY_MILLS_WHEN_CACHE_FLOW_CONTROL = 50L;
+    private static final long POP_TIME_DELAY_MILLS_WHEN_EXCEPTION = TimeUnit.SECONDS.toMillis(3);
+    private static final long ROUTE_REFRESH_INTERVAL_MILLS = TimeUnit.SECONDS.toMillis(30);
+    private static final long ACK_TIMEOUT_MILLS = TimeUnit.SECONDS.toMillis(3);
+    private static final String DEFAULT_INSTANCE_NAME = "EventBridge_Consumer_INSTANCE";
+
+    public PopConsumerImpl(final ClientConfig clientConfig, final RPCHook rpcHook) {
+        this.clientConfig = clientConfig;
+        this.rpcHook = rpcHook;
+        this.consumeRequestCache = new LinkedBlockingQueue<>(clientConfig.getRmqPullMessageCacheCapacity());
+        this.runnerCredit = new RunnerCredit(clientConfig.getRmqPullCreditRecordNums(), clientConfig.getRmqPullCreditBytes());
+        // the pull consumer is only used for its client instance, which resolves the brokers and sends the requests
+        rocketmqPullConsumer = new DefaultMQPullConsumer(clientConfig.getConsumerGroup(), rpcHook);
+        rocketmqPullConsumer.setNamesrvAddr(clientConfig.getNameSrvAddr());
+        rocketmqPullConsumer.setInstanceName(DEFAULT_INSTANCE_NAME);
+        if (clientConfig.getAccessChannel() != null) {
+            rocketmqPullConsumer.setAccessChannel(clientConfig.getAccessChannel());
+        }
+        if (StringUtils.isNotBlank(clientConfig.getNamespace())) {
+            rocketmqPullConsumer.setNamespace(clientConfig.getNamespace());
+        }
+        scheduleService = new ScheduledThreadPoolExecutor(Math.max(1, clientConfig.getRmqPullThreadNums()),
+            ThreadUtils.newThreadFactory("PopConsumerScheduleService", false));
+    }
+
+    @Override
+    public void startup() throws MQClientException {
+        rocketmqPullConsumer.start();
+        // the started consumer registered its client instance, which is shared by the client id
+        clientFactory = MQClientManager.getInstance().getOrCreateMQClientInstance(rocketmqPullConsumer, rpcHook);
+        running = true;
+        scheduleService.scheduleWithFixedDelay(this::refreshPopTasks, 0, ROUTE_REFRESH_INTERVAL_MILLS, TimeUnit.MILLISECONDS);
+        LOGGER.info("RocketmqPopConsumer start.");
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        popTaskTable.clear();
+        rocketmqPullConsumer.shutdown();
+        shutdownThreadPool(scheduleService);
+    }
+
+    private void shutdownThreadPool(ExecutorService executor) {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(60, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                LOGGER.error("Shutdown threadPool failed", e);
+            }
+            if (!executor.isTerminated()) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Override
+    public void attachTopic(final String topic, final String tag) {
+        this.topic = topic;
+        this.tag = tag;
+    }
+
+    @Override
+    public void subscribe(final String topic) {
+    }
+
+    @Override
+    public void unsubscribe(final String topic) {
+    }
+
+    /**
+     * the consumer group belongs to the runner, so only one runner is attached
+     */
+    @Override
+    public void attachRunner(final String runnerName, final String filterExpression) {
+        this.runnerName = runnerName;
+        this.filterExpression = clientConfig.isSqlFilterEnable() ? filterExpression : null;
+    }
+
+    @Override
+    public synchronized boolean detachRunner(final String runnerName) {
+        if (runnerName.equals(this.runnerName)) {
+            this.runnerName = null;
+            attachGeneration++;
+            // the messages not acked are popped again after the invisible time, their credits are given back
+            consumeRequestCache.clear();
+            int records = 0;
+            long bytes = 0;
+            for (Map<Long, PopCheckpoint> popCheckpoints : popCheckpointTable.values()) {
+                for (PopCheckpoint popCheckpoint : popCheckpoints.values()) {
+                    records++;
+                    bytes += popCheckpoint.bodySize;
+                }
+            }
+            popCheckpointTable.clear();
+            runnerCredit.release(records, bytes);
+        }
+        return this.runnerName == null;
+    }
+
+    @Override
+    public List<ConsumeRequest> poll(final String runnerName, final int pullBatchSize, final Duration timeout) {
+        List<ConsumeRequest> consumeRequestList = new ArrayList<>();
+        try {
+            consumeRequestCache.drainTo(consumeRequestList, pullBatchSize);
+            if (consumeRequestList.isEmpty()) {
+                ConsumeRequest consumeRequest = consumeRequestCache.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+                if (consumeRequest != null) {
+                    consumeRequestList.add(consumeRequest);
+                    consumeRequestCache.drainTo(consumeRequestList, pullBatchSize - 1);
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.warn("Poll from local cache interrupted.", e);
+        }
+        return consumeRequestList;
+    }
+
+    /**
+     * ack every committed message with the checkpoint it was popped with
+     */
+    @Override
+    public void commit(final String runnerName, final Collection<QueueOffsets> queueOffsetsList) {
+        int releasedRecords = 0;
+        long releasedBytes = 0;
+        for (QueueOffsets queueOffsets : queueOffsetsList) {
+            Map<Long, PopCheckpoint> popCheckpoints = popCheckpointTable.get(queueOffsets.getMessageQueue());
+            if (popCheckpoints == null) {
+                continue;
+            }
+            for (int index = 0; index < queueOffsets.size(); index++) {
+                PopCheckpoint popCheckpoint = popCheckpoints.remove(queueOffsets.get(index));
+                if (popCheckpoint != null) {
+                    releasedRecords++;
+                    releasedBytes += popCheckpoint.bodySize;
+                    ack(queueOffsets.getMessageQueue(), popCheckpoint.extraInfo);
+                }
+            }
+        }
+        if (releasedRecords > 0) {
+            runnerCredit.release(releasedRecords, releasedBytes);
+        }
+    }
+
+    RunnerCredit getRunnerCredit() {
+        return runnerCredit;
+    }
+
+    @Override
+    public boolean isBrokerFilterDisabled() {
+        return sqlFilterUnsupported;
+    }
+
+    @Override
+    public void setSockProxyJson(final String proxyJson) {
+        rocketmqPullConsumer.setSocksProxyConfig(proxyJson);
+    }
+
+    /**
+     * start popping the brokers which joined the route of the topic, the tasks of the brokers which left it
+     * exit on their next round
+     */
+    private void refreshPopTasks() {
+        if (topic == null) {
+            return;
+        }
+        try {
+            Set<String> brokerNames = new HashSet<>();
+            for (MessageQueue messageQueue : rocketmqPullConsumer.fetchSubscribeMessageQueues(topic)) {
+                brokerNames.add(messageQueue.getBrokerName());
+            }
+            popTaskTable.keySet().retainAll(brokerNames);
+            for (String brokerName : brokerNames) {
+                if (!popTaskTable.containsKey(brokerName)) {
+                    PopTask popTask = new PopTask(brokerName);
+                    popTaskTable.put(brokerName, popTask);
+                    popImmediately(popTask);
+                    LOGGER.info("Submit popTask:{}, {}", topic, brokerName);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Refresh the brokers of topic {} failed, retry later.", topic, e);
+        }
+    }
+
+    void ack(MessageQueue messageQueue, String popCheckpoint) {
+        String[] extraInfo = ExtraInfoUtil.split(popCheckpoint);
+        String brokerName = ExtraInfoUtil.getBrokerName(extraInfo);
+        try {
+            FindBrokerResult findBrokerResult = clientFactory.findBrokerAddressInSubscribe(brokerName, MixAll.MASTER_ID, true);
+            if (findBrokerResult == null) {
+                clientFactory.updateTopicRouteInfoFromNameServer(messageQueue.getTopic());
+                findBrokerResult = clientFactory.findBrokerAddressInSubscribe(brokerName, MixAll.MASTER_ID, true);
+            }
+            if (findBrokerResult == null) {
+                LOGGER.warn("Broker {} of the popped message is absent, it is redelivered after the invisible time.", brokerName);
+                return;
+            }
+            AckMessageRequestHeader requestHeader = new AckMessageRequestHeader();
+            requestHeader.setConsumerGroup(clientConfig.getConsumerGroup());
+            requestHeader.setTopic(ExtraInfoUtil.getRealTopic(extraInfo, messageQueue.getTopic(), clientConfig.getConsumerGroup()));
+            requestHeader.setQueueId(ExtraInfoUtil.getQueueId(extraInfo));
+            requestHeader.setOffset(ExtraInfoUtil.getQueueOffset(extraInfo));
+            requestHeader.setExtraInfo(popCheckpoint);
+            clientFactory.getMQClientAPIImpl().ackMessageAsync(findBrokerResult.getBrokerAddr(), ACK_TIMEOUT_MILLS, new AckCallback() {
+                @Override
+                public void onSuccess(AckResult ackResult) {
+                    if (ackResult.getStatus() != AckStatus.OK) {
+                        LOGGER.warn("Ack popped message not ok, {}, {}", messageQueue, ackResult);
+                    }
+                }
+
+                @Override
+                public void onException(Throwable e) {
+                    LOGGER.warn("Ack popped message failed, it is redelivered after the invisible time, {}", messageQueue, e);
+                }
+            }, requestHeader);
+        } catch (Exception e) {
+            LOGGER.warn("Ack popped message failed, it is redelivered after the invisible time, {}", messageQueue, e);
+        }
+    }
+
+    /**
+     * take the credits and cache slots of the next pop
+     *
+     * @return the messages the pop may return, 0 when the runner has no credits or the cache no room
+     */
+    synchronized int reservePopNums() {
+        int popNums = Math.min(Math.min(clientConfig.getRmqPullMessageBatchNums(), MAX_POP_BATCH_NUMS),
+            Math.min(runnerCredit.availableRecords(), consumeRequestCache.remainingCapacity() - reservedCacheNums));
+        if (popNums <= 0) {
+            return 0;
+        }
+        reservedCacheNums += popNums;
+        runnerCredit.acquire(popNums, 0);
+        return popNums;
+    }
+
+    /**
+     * give back the credits and cache slots a pop reserved but did not fill, the messages handed out beyond the
+     * reservation take their credits here
+     *
+     * @param reservedNums
+     * @param deliveredNums
+     */
+    synchronized void releasePopNums(int reservedNums, int deliveredNums) {
+        reservedCacheNums -= reservedNums;
+        if (reservedNums > deliveredNums) {
+            runnerCredit.release(reservedNums - deliveredNums, 0);
+        } else if (deliveredNums > reservedNums) {
+            runnerCredit.acquire(deliveredNums - reservedNums, 0);
+        }
+    }
+
+    /**
+     * hand the popped messages to the runner, they hold the credits reserved for them until committed. The messages
+     * which are not handed out are popped again after the invisible time.
+     *
+     * @param generation the attach generation the pop was sent under
+     * @param messageExts
+     * @return the messages handed out, none when the runner detached while the pop was in flight
+     */
+    synchronized int deliver(long generation, List<MessageExt> messageExts) {
+        if (generation != attachGeneration || runnerName == null) {
+            return 0;
+        }
+        int deliveredNums = 0;
+        for (MessageExt messageExt : messageExts) {
+            QueueOwnership queueOwnership = queueOwnershipOf(messageExt);
+            long queueOffset = messageExt.getQueueOffset();
+            PopCheckpoint popCheckpoint = new PopCheckpoint(messageExt.getProperty(MessageConst.PROPERTY_POP_CK), bodySize(messageExt));
+            Map<Long, PopCheckpoint> popCheckpoints = popCheckpointTable.computeIfAbsent(queueOwnership.getMessageQueue(),
+                key -> new ConcurrentHashMap<>());
+            runnerCredit.acquire(0, popCheckpoint.bodySize);
+            PopCheckpoint formerCheckpoint = popCheckpoints.put(queueOffset, popCheckpoint);
+            if (!consumeRequestCache.offer(new ConsumeRequest(messageExt, queueOwnership, null))) {
+                // the checkpoint is put back unless a commit took it meanwhile
+                if (formerCheckpoint == null) {
+                    popCheckpoints.remove(queueOffset, popCheckpoint);
+                } else {
+                    popCheckpoints.replace(queueOffset, popCheckpoint, formerCheckpoint);
+                }
+                runnerCredit.release(0, popCheckpoint.bodySize);
+                LOGGER.warn("The cache of runner {} is full, the popped message is redelivered after the invisible time, {}",
+                    runnerName, queueOwnership.getMessageQueue());
+                continue;
+            }
+            if (formerCheckpoint != null) {
+                // popped again after the invisible time, the copy in flight is acked with the latest checkpoint
+                runnerCredit.release(1, formerCheckpoint.bodySize);
+            }
+            deliveredNums++;
+        }
+        return deliveredNums;
+    }
+
+    private void popAsync(String brokerName, String expression, int popNums, PopCallback popCallback) throws Exception {
+        FindBrokerResult findBrokerResult = clientFactory.findBrokerAddressInSubscribe(brokerName, MixAll.MASTER_ID, true);
+        if (findBrokerResult == null) {
+            clientFactory.updateTopicRouteInfoFromNameServer(topic);
+            findBrokerResult = clientFactory.findBrokerAddressInSubscribe(brokerName, MixAll.MASTER_ID, true);
+        }
+        if (findBrokerResult == null) {
+            throw new MQClientException("The broker[" + brokerName + "] not exist", null);
+        }
+        PopMessageRequestHeader requestHeader = new PopMessageRequestHeader();
+        requestHeader.setConsumerGroup(clientConfig.getConsumerGroup());
+        requestHeader.setTopic(topic);
+        // a queue id of -1 lets the broker pop any of its queues of the topic
+        requestHeader.setQueueId(-1);
+        requestHeader.setMaxMsgNums(popNums);
+        requestHeader.setInvisibleTime(clientConfig.getPopInvisibleTimeMillis());
+        requestHeader.setInitMode(clientConfig.getConsumeFromWhere() == ConsumeFromWhere.CONSUME_FROM_FIRST_OFFSET
+            ? ConsumeInitMode.MIN : ConsumeInitMode.MAX);
+        requestHeader.setExpType(expression == null ? ExpressionType.TAG : ExpressionType.SQL92);
+        requestHeader.setExp(expression == null ? tag : expression);
+        requestHeader.setOrder(false);
+        // long polling, the broker holds the request until messages arrive or the poll time passes
+        requestHeader.setPollTime(clientConfig.getBrokerSuspendMaxTimeMillis());
+        requestHeader.setBornTime(System.currentTimeMillis());
+        clientFactory.getMQClientAPIImpl().popMessageAsync(brokerName, findBrokerResult.getBrokerAddr(), requestHeader,
+            clientConfig.getConsumerTimeoutMillisWhenSuspend(), popCallback);
+    }
+
+    private static int bodySize(MessageExt messageExt) {
+        return messageExt.getBody() == null ? 0 : messageExt.getBody().length;
+    }
+
+    private QueueOwnership queueOwnershipOf(MessageExt messageExt) {
+        MessageQueue messageQueue = new MessageQueue(messageExt.getTopic(), messageExt.getBrokerName(), messageExt.getQueueId());
+        return queueOwnershipTable.computeIfAbsent(messageQueue, key -> new QueueOwnership(key, 0L));
+    }
+
+    void popImmediately(PopTask popTask) {
+        popLater(popTask, 0);
+    }
+
+    void popLater(PopTask popTask, long delay) {
+        if (!scheduleService.isShutdown()) {
+            scheduleService.schedule(popTask, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static class PopCheckpoint {
+        private final String extraInfo;
+        private final int bodySize;
+
+        PopCheckpoint(String extraInfo, int bodySize) {
+            this.extraInfo = extraInfo;
+            this.bodySize = bodySize;
+        }
+    }
+
+    public class PopTask implements Runnable {
+        private final String brokerName;
+
+        public PopTask(String brokerName) {
+            this.brokerName = brokerName;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!running || popTaskTable.get(brokerName) != this) {
+                    LOGGER.info("Broker {} left, popTask exit", brokerName);
+                    return;
+                }
+                if (runnerName == null) {
+                    popLater(this, POP_TIME_DELAY_MILLS_WHEN_CACHE_FLOW_CONTROL);
+                    return;
+                }
+                long generation = attachGeneration;
+                int popNums = reservePopNums();
+                if (popNums <= 0) {
+                    popLater(this, POP_TIME_DELAY_MILLS_WHEN_CACHE_FLOW_CONTROL);
+                    return;
+                }
+                String expression = sqlFilterUnsupported ? null : filterExpression;
+                try {
+                    popAsync(brokerName, expression, popNums, new PopCallback() {
+                        @Override
+                        public void onSuccess(PopResult popResult) {
+                            onPopped(generation, popNums, popResult);
+                        }
+
+                        @Override
+                        public void onException(Throwable e) {
+                            onPopFailed(expression, popNums, e);
+                        }
+                    });
+                } catch (Throwable t) {
+                    releasePopNums(popNums, 0);
+                    throw t;
+                }
+            } catch (Throwable t) {
+                LOGGER.error("Error occurs when pop message.", t);
+                popLater(this, POP_TIME_DELAY_MILLS_WHEN_EXCEPTION);
+            }
+        }
+
+        void onPopped(long generation, int popNums, PopResult popResult) {
+            List<MessageExt> messageExts = popResult.getPopStatus() == PopStatus.FOUND
+                ? popResult.getMsgFoundList() : Collections.emptyList();
+            int deliveredNums = 0;
+            try {
+                deliveredNums = deliver(generation, messageExts);
+            } finally {
+                releasePopNums(popNums, deliveredNums);
+            }
+            switch (popResult.getPopStatus()) {
+                case FOUND:
+                    popImmediately(this);
+                    break;
+                case POLLING_FULL:
+                    popLater(this, POP_TIME_DELAY_MILLS_WHEN_POLLING_FULL);
+                    break;
+                default:
+                    // the broker held the request until the poll time passed
+                    popImmediately(this);
+                    break;
+            }
+        }
+
+        void onPopFailed(String expression, int popNums, Throwable e) {
+            releasePopNums(popNums, 0);
+            if (expression != null && LitePullConsumerImpl.isSqlFilterUnsupported(e)) {
+                LOGGER.error("The broker rejects the SQL92 filter {}, the broker filter of consumer group {} is disabled, "
+                        + "enable enablePropertyFilter on the broker to restore it.",
+                    expression, clientConfig.getConsumerGroup(), e);
+                sqlFilterUnsupported = true;
+                popImmediately(this);
+                return;
+            }
+            LOGGER.error("An error occurred in pop message process.", e);
+            popLater(this, POP_TIME_DELAY_MILLS_WHEN_EXCEPTION);
+        }
+    }
+}
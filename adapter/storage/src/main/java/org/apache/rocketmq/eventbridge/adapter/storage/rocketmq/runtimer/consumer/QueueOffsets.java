@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer;
+
+import java.util.Arrays;
+import org.apache.rocketmq.common.message.MessageQueue;
+
+/**
+ * The offsets of one queue committed together, kept as primitives, with the generation of the assignment they
+ * were pulled under.
+ */
+public class QueueOffsets {
+
+    /**
+     * the generation is unknown, the offsets are acked in whatever assignment the queue currently has
+     */
+    public static final long ANY_GENERATION = -1L;
+
+    private final MessageQueue messageQueue;
+
+    private final long generation;
+
+    private long[] offsets;
+
+    private int size;
+
+    public QueueOffsets(MessageQueue messageQueue, long generation) {
+        this(messageQueue, generation, 16);
+    }
+
+    public QueueOffsets(MessageQueue messageQueue, long generation, int initialCapacity) {
+        this.messageQueue = messageQueue;
+        this.generation = generation;
+        this.offsets = new long[Math.max(1, initialCapacity)];
+    }
+
+    public void add(long offset) {
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size << 1);
+        }
+        offsets[size++] = offset;
+    }
+
+    public MessageQueue getMessageQueue() {
+        return messageQueue;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public long get(int index) {
+        return offsets[index];
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer;
+
+import org.apache.rocketmq.common.message.MessageQueue;
+
+/**
+ * One assignment of a queue to this consumer. Every assignment gets a new generation, and is revoked once the
+ * rebalance takes the queue away. The messages pulled under it keep a reference to it, so the runtime can
+ * discard them without delivery once it is revoked, and their commits are fenced off from later assignments.
+ */
+public class QueueOwnership {
+
+    private final MessageQueue messageQueue;
+
+    private final long generation;
+
+    private volatile boolean revoked;
+
+    public QueueOwnership(MessageQueue messageQueue, long generation) {
+        this.messageQueue = messageQueue;
+        this.generation = generation;
+    }
+
+    public MessageQueue getMessageQueue() {
+        return messageQueue;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public boolean isRevoked() {
+        return revoked;
+    }
+
+    void revoke() {
+        this.revoked = true;
+    }
+
+    @Override
+    public String toString() {
+        return "QueueOwnership{" +
+            "messageQueue=" + messageQueue +
+            ", generation=" + generation +
+            ", revoked=" + revoked +
+            '}';
+    }
+}
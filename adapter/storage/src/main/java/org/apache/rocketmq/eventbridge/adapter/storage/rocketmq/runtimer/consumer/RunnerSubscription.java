@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.apache.rocketmq.eventbridge.adapter.runtime.boot.common.RunnerCredit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The view of one runner on a shared topic fetcher: the messages fanned out to it, its credits and its own
+ * ack windows, so every runner acknowledges at its own pace.
+ */
+public class RunnerSubscription {
+    private static final Logger log = LoggerFactory.getLogger(RunnerSubscription.class);
+    private final String runnerName;
+    private final BlockingQueue<ConsumeRequest> consumeRequestCache;
+    private final Map<MessageQueue, AckWindow> ackWindowTable = new ConcurrentHashMap<>();
+    // the assignment every ack window was opened under
+    private final Map<MessageQueue, QueueOwnership> ownershipTable = new ConcurrentHashMap<>();
+    private final RunnerCredit runnerCredit;
+    private final int queueThresholdRecordNums;
+    private final long queueThresholdBytes;
+    private final int backlogRecordNums;
+
+    RunnerSubscription(final String runnerName, final ClientConfig clientConfig) {
+        this.runnerName = runnerName;
+        this.consumeRequestCache = new LinkedBlockingQueue<>(clientConfig.getRmqPullMessageCacheCapacity());
+        this.runnerCredit = new RunnerCredit(clientConfig.getRmqPullCreditRecordNums(), clientConfig.getRmqPullCreditBytes());
+        this.queueThresholdRecordNums = clientConfig.getRmqPullQueueThresholdRecordNums();
+        this.queueThresholdBytes = clientConfig.getRmqPullQueueThresholdBytes();
+        this.backlogRecordNums = Math.max(0, clientConfig.getRmqPullBacklogRecordNums());
+    }
+
+    public String getRunnerName() {
+        return runnerName;
+    }
+
+    RunnerCredit getRunnerCredit() {
+        return runnerCredit;
+    }
+
+    /**
+     * @return how many messages may be fanned out to this runner now
+     */
+    int availablePullNums() {
+        int availableNums = Math.min(runnerCredit.availableRecords(), consumeRequestCache.remainingCapacity());
+        long inflightRecords = runnerCredit.getInflightRecords();
+        long inflightBytes = runnerCredit.getInflightBytes();
+        if (availableNums <= 0 || inflightRecords <= 0 || inflightBytes <= 0) {
+            return availableNums;
+        }
+        // estimate the records the byte budget still holds from the average size in flight, so large
+        // messages do not overdraw it by a whole batch
+        long averageBytes = Math.max(1, inflightBytes / inflightRecords);
+        long bytesNums = (runnerCredit.getMaxBytes() - inflightBytes) / averageBytes;
+        return (int) Math.max(0, Math.min(availableNums, bytesNums));
+    }
+
+    /**
+     * @return how many messages may still be fanned out to this runner beyond its credits
+     */
+    int backlogPullNums() {
+        long backlogNums = runnerCredit.getMaxRecords() + backlogRecordNums - runnerCredit.getInflightRecords();
+        return (int) Math.max(0, Math.min(consumeRequestCache.remainingCapacity(), backlogNums));
+    }
+
+    /**
+     * @return whether the runner used up its credits, so the fetch goes on for the others into its backlog
+     */
+    boolean isLagging() {
+        return availablePullNums() <= 0;
+    }
+
+    /**
+     * @return how many messages may be fanned out to this runner when nothing is in flight
+     */
+    int capacityPullNums() {
+        return (int) Math.min(runnerCredit.getMaxRecords(), consumeRequestCache.size() + consumeRequestCache.remainingCapacity());
+    }
+
+    /**
+     * hand the pulled messages of a queue to this runner, acquiring its credits and tracking their offsets
+     *
+     * @param queueOwnership the assignment the messages were pulled under
+     * @param pullOffset offset the pull started from
+     * @param consumeRequests pulled messages, empty when nothing matched
+     * @param nextBeginOffset
+     */
+    void deliver(QueueOwnership queueOwnership, long pullOffset, List<ConsumeRequest> consumeRequests, long nextBeginOffset) {
+        MessageQueue messageQueue = queueOwnership.getMessageQueue();
+        AckWindow ackWindow = ackWindowTable.get(messageQueue);
+        if (ackWindow == null || ackWindow.getGeneration() != queueOwnership.getGeneration()) {
+            // the queue was assigned again, the window of the former assignment no longer takes acks
+            ackWindow = new AckWindow(pullOffset, queueOwnership.getGeneration());
+            ownershipTable.put(messageQueue, queueOwnership);
+            releaseAckWindow(ackWindowTable.put(messageQueue, ackWindow));
+        }
+        long[] offsets = new long[consumeRequests.size()];
+        int[] sizes = new int[offsets.length];
+        long bytes = 0;
+        for (int index = 0; index < offsets.length; index++) {
+            MessageExt messageExt = consumeRequests.get(index).getMessageExt();
+            offsets[index] = messageExt.getQueueOffset();
+            sizes[index] = bodySize(messageExt);
+            bytes += sizes[index];
+        }
+        ackWindow.track(offsets, sizes, nextBeginOffset);
+        if (consumeRequests.isEmpty()) {
+            return;
+        }
+        runnerCredit.acquire(consumeRequests.size(), bytes);
+        for (ConsumeRequest consumeRequest : consumeRequests) {
+            try {
+                consumeRequestCache.offer(consumeRequest, Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                log.warn("put consumeRequestCache failed", e);
+            }
+        }
+    }
+
+    /**
+     * the committed offset of the queue, null before anything of the queue was delivered
+     *
+     * @param messageQueue
+     * @return
+     */
+    Long committedOffset(MessageQueue messageQueue) {
+        AckWindow ackWindow = ackWindowTable.get(messageQueue);
+        return ackWindow == null ? null : ackWindow.getCommittedOffset();
+    }
+
+    /**
+     * Whether the queue holds more than its share of the records or bytes of this runner. Without configured
+     * thresholds every queue the runner received messages of gets an even share of its credits, so a hot queue
+     * cannot take the whole budget and starve the others.
+     *
+     * @param messageQueue
+     * @return
+     */
+    boolean exceedsQueueThreshold(MessageQueue messageQueue) {
+        AckWindow ackWindow = ackWindowTable.get(messageQueue);
+        if (ackWindow == null) {
+            return false;
+        }
+        int queueNum = Math.max(1, ackWindowTable.size());
+        long thresholdRecords = queueThresholdRecordNums > 0 ? queueThresholdRecordNums : Math.max(1, runnerCredit.getMaxRecords() / queueNum);
+        long thresholdBytes = queueThresholdBytes > 0 ? queueThresholdBytes : Math.max(1, runnerCredit.getMaxBytes() / queueNum);
+        return ackWindow.inflightCount() >= thresholdRecords || ackWindow.inflightBytes() >= thresholdBytes;
+    }
+
+    AckWindow getAckWindow(MessageQueue messageQueue) {
+        return ackWindowTable.get(messageQueue);
+    }
+
+    void resetAckWindow(MessageQueue messageQueue) {
+        ownershipTable.remove(messageQueue);
+        releaseAckWindow(ackWindowTable.remove(messageQueue));
+    }
+
+    void shrinkAckWindows(Set<MessageQueue> mqDivided) {
+        ackWindowTable.entrySet().removeIf(next -> {
+            if (mqDivided.contains(next.getKey())) {
+                return false;
+            }
+            releaseAckWindow(next.getValue());
+            return true;
+        });
+        ownershipTable.keySet().retainAll(mqDivided);
+        // another consumer owns them now, their credits were given back with the windows
+        consumeRequestCache.removeIf(consumeRequest -> consumeRequest.getQueueOwnership().isRevoked());
+    }
+
+    /**
+     * the commits of a dropped window are ignored, so the credits its messages held are given back at once
+     */
+    private void releaseAckWindow(AckWindow ackWindow) {
+        if (ackWindow == null) {
+            return;
+        }
+        int records;
+        long bytes;
+        synchronized (ackWindow) {
+            records = ackWindow.inflightCount();
+            bytes = ackWindow.inflightBytes();
+        }
+        if (records > 0) {
+            runnerCredit.release(records, bytes);
+        }
+    }
+
+    /**
+     * poll the messages fanned out to this runner, the ones of revoked queues are discarded
+     *
+     * @param pullBatchSize
+     * @param timeout
+     * @return
+     */
+    public List<ConsumeRequest> poll(final int pullBatchSize, final Duration timeout) {
+        List<ConsumeRequest> messageList = new ArrayList<>();
+        try {
+            List<ConsumeRequest> consumeRequestList = new ArrayList<>();
+            consumeRequestCache.drainTo(consumeRequestList, pullBatchSize);
+            if (consumeRequestList.size() == 0) {
+                final ConsumeRequest consumeRequest = consumeRequestCache.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+                if (consumeRequest != null) {
+                    consumeRequestList.add(consumeRequest);
+                    // drainTo again
+                    consumeRequestCache.drainTo(consumeRequestList, pullBatchSize - 1);
+                }
+            }
+            for (final ConsumeRequest consumeRequest : consumeRequestList) {
+                if (!consumeRequest.getQueueOwnership().isRevoked()) {
+                    messageList.add(consumeRequest);
+                }
+            }
+        } catch (InterruptedException e) {
+            log.warn("Poll from local cache interrupted.", e);
+        }
+        return messageList;
+    }
+
+    /**
+     * ack the offsets in the windows of their queues and give back the credits they held
+     *
+     * @param queueOffsetsList
+     * @return the queues whose committed offset advanced, with the assignment their windows were opened under
+     */
+    Map<MessageQueue, QueueOwnership> commit(final Collection<QueueOffsets> queueOffsetsList) {
+        int releasedRecords = 0;
+        long releasedBytes = 0;
+        Map<MessageQueue, QueueOwnership> advancedQueues = null;
+        for (QueueOffsets queueOffsets : queueOffsetsList) {
+            AckWindow ackWindow = ackWindowTable.get(queueOffsets.getMessageQueue());
+            // the window is gone or replaced once the queue is rebalanced away, its offset is not ours to move
+            if (ackWindow == null || !ackWindow.accepts(queueOffsets.getGeneration())) {
+                continue;
+            }
+            boolean advanced;
+            synchronized (ackWindow) {
+                for (int index = 0; index < queueOffsets.size(); index++) {
+                    int size = ackWindow.release(queueOffsets.get(index));
+                    if (size >= 0) {
+                        releasedRecords++;
+                        releasedBytes += size;
+                    }
+                }
+                advanced = ackWindow.advance();
+            }
+            QueueOwnership queueOwnership = ownershipTable.get(queueOffsets.getMessageQueue());
+            if (advanced && queueOwnership != null && queueOwnership.getGeneration() == ackWindow.getGeneration()) {
+                if (advancedQueues == null) {
+                    advancedQueues = new HashMap<>();
+                }
+                advancedQueues.put(queueOffsets.getMessageQueue(), queueOwnership);
+            }
+        }
+        if (releasedRecords > 0) {
+            runnerCredit.release(releasedRecords, releasedBytes);
+        }
+        return advancedQueues == null ? Collections.emptyMap() : advancedQueues;
+    }
+
+    private static int bodySize(MessageExt messageExt) {
+        return messageExt.getBody() == null ? 0 : messageExt.getBody().length;
+    }
+}
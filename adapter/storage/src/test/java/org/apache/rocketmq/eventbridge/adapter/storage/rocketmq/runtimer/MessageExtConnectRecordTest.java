@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer;
+
+import io.openmessaging.connector.api.data.Field;
+import io.openmessaging.connector.api.data.RecordOffset;
+import io.openmessaging.connector.api.data.RecordPartition;
+import io.openmessaging.connector.api.data.Schema;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.eventbridge.adapter.runtime.config.RuntimeConfigDefine;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MessageExtConnectRecordTest {
+
+    @Test
+    public void testReadThroughAndDecodeLazily() {
+        MessageExt messageExt = new MessageExt();
+        messageExt.setBody("{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+        messageExt.putUserProperty("source", "demo");
+        messageExt.putUserProperty(RuntimeConfigDefine.CONNECT_TIMESTAMP, "1000");
+        MessageExtConnectRecord connectRecord = new MessageExtConnectRecord(messageExt, "runner",
+            new RecordPartition(Collections.emptyMap()), new RecordOffset(Collections.emptyMap()));
+
+        Assert.assertEquals(1000L, connectRecord.getTimestamp().longValue());
+        Assert.assertEquals("demo", connectRecord.getExtension("source"));
+        Assert.assertEquals("runner", connectRecord.getExtension(RuntimeConfigDefine.RUNNER_NAME));
+        Assert.assertNull(connectRecord.getSchema());
+        Assert.assertEquals("{\"id\":1}", connectRecord.getData());
+
+        connectRecord.addExtension("subject", "order");
+        Assert.assertEquals("order", connectRecord.getExtension("subject"));
+        Assert.assertEquals("demo", connectRecord.getExtensions().getString("source"));
+        Assert.assertEquals("runner", connectRecord.getExtensions().getString(RuntimeConfigDefine.RUNNER_NAME));
+        Assert.assertNull(messageExt.getProperty("subject"));
+
+        connectRecord.setData("changed");
+        Assert.assertEquals("changed", connectRecord.getData());
+    }
+
+    @Test
+    public void testSchemaCachedByString() {
+        String connectSchema = "{\"name\":\"demo\",\"fields\":[{\"index\":0,\"name\":\"id\"}]}";
+        Schema schema = MessageExtConnectRecord.parseSchema(connectSchema);
+        Assert.assertNotSame(schema, MessageExtConnectRecord.parseSchema(connectSchema));
+        Assert.assertNull(MessageExtConnectRecord.parseSchema(""));
+
+        // a schema changed by one record is not seen by the others
+        schema.setName("changed");
+        schema.getFields().get(0).setName("changed");
+        schema.addField(new Field(1, "added", null));
+        Schema otherSchema = MessageExtConnectRecord.parseSchema(connectSchema);
+        Assert.assertEquals("demo", otherSchema.getName());
+        Assert.assertEquals(1, otherSchema.getFields().size());
+        Assert.assertEquals("id", otherSchema.getFields().get(0).getName());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AckWindowTest {
+
+    @Test
+    public void testCommitOnlyContiguousAcks() {
+        AckWindow ackWindow = new AckWindow(10);
+        ackWindow.track(new long[] {10, 11, 12, 13}, 14);
+        Assert.assertEquals(10, ackWindow.getCommittedOffset());
+        Assert.assertFalse(ackWindow.ack(12));
+        Assert.assertFalse(ackWindow.ack(11));
+        Assert.assertEquals(10, ackWindow.getCommittedOffset());
+        Assert.assertTrue(ackWindow.ack(10));
+        Assert.assertEquals(13, ackWindow.getCommittedOffset());
+        Assert.assertTrue(ackWindow.ack(13));
+        Assert.assertEquals(14, ackWindow.getCommittedOffset());
+        Assert.assertEquals(0, ackWindow.inflightCount());
+        Assert.assertFalse(ackWindow.ack(13));
+    }
+
+    @Test
+    public void testSkippedOffsetsCountAsAcked() {
+        AckWindow ackWindow = new AckWindow(0);
+        ackWindow.track(new long[] {2, 5}, 8);
+        Assert.assertEquals(2, ackWindow.getCommittedOffset());
+        Assert.assertTrue(ackWindow.ack(2));
+        Assert.assertEquals(5, ackWindow.getCommittedOffset());
+        Assert.assertTrue(ackWindow.ack(5));
+        Assert.assertEquals(8, ackWindow.getCommittedOffset());
+        ackWindow.advanceTo(20);
+        Assert.assertEquals(20, ackWindow.getCommittedOffset());
+    }
+
+    @Test
+    public void testCompactKeepsInflightOffsets() {
+        AckWindow ackWindow = new AckWindow(0);
+        int total = 200000;
+        long[] offsets = new long[total];
+        for (int index = 0; index < total; index++) {
+            offsets[index] = index;
+        }
+        ackWindow.track(offsets, total);
+        for (int index = 0; index < total - 1; index++) {
+            ackWindow.ack(index);
+        }
+        Assert.assertEquals(total - 1, ackWindow.getCommittedOffset());
+        Assert.assertEquals(1, ackWindow.inflightCount());
+        ackWindow.track(new long[] {total, total + 1}, total + 2);
+        Assert.assertTrue(ackWindow.ack(total - 1));
+        Assert.assertEquals(total, ackWindow.getCommittedOffset());
+        Assert.assertTrue(ackWindow.ack(total));
+        Assert.assertFalse(ackWindow.ack(total + 5));
+        Assert.assertEquals(total + 1, ackWindow.getCommittedOffset());
+    }
+
+    @Test
+    public void testReleaseGivesBackSizes() {
+        AckWindow ackWindow = new AckWindow(0);
+        int total = 1000;
+        long[] offsets = new long[total];
+        int[] sizes = new int[total];
+        for (int index = 0; index < total; index++) {
+            offsets[index] = index * 2;
+            sizes[index] = index;
+        }
+        ackWindow.track(offsets, sizes, total * 2);
+        Assert.assertEquals(total, ackWindow.inflightCount());
+        Assert.assertEquals(total * (total - 1) / 2, ackWindow.inflightBytes());
+        Assert.assertEquals(-1, ackWindow.release(1));
+        for (int index = total - 1; index > 0; index--) {
+            Assert.assertEquals(index, ackWindow.release(index * 2));
+        }
+        Assert.assertEquals(-1, ackWindow.release(2));
+        Assert.assertFalse(ackWindow.advance());
+        Assert.assertEquals(0, ackWindow.release(0));
+        Assert.assertTrue(ackWindow.advance());
+        Assert.assertEquals(total * 2, ackWindow.getCommittedOffset());
+        Assert.assertEquals(0, ackWindow.inflightCount());
+        Assert.assertEquals(0, ackWindow.inflightBytes());
+    }
+}
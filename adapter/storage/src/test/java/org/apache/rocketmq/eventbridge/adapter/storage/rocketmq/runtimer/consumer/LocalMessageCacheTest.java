@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LocalMessageCacheTest {
+
+    private final MessageQueue messageQueue = new MessageQueue("topic", "broker", 0);
+
+    private final QueueOwnership queueOwnership = new QueueOwnership(messageQueue, 1);
+
+    @Test
+    public void testPullBatchShrinksWithCacheFullness() {
+        ClientConfig clientConfig = new ClientConfig();
+        clientConfig.setRmqPullMessageCacheCapacity(100);
+        clientConfig.setRmqPullCreditRecordNums(100);
+        LocalMessageCache localMessageCache = new LocalMessageCache(null, clientConfig);
+        Assert.assertEquals(0, localMessageCache.nextPullBatchNums(32));
+
+        localMessageCache.attach("runner");
+        Assert.assertEquals(32, localMessageCache.nextPullBatchNums(32));
+
+        localMessageCache.deliver(queueOwnership, null, 0, buildMessages(0, 50), 50);
+        Assert.assertEquals(16, localMessageCache.nextPullBatchNums(32));
+
+        localMessageCache.deliver(queueOwnership, null, 50, buildMessages(50, 48), 98);
+        Assert.assertEquals(1, localMessageCache.nextPullBatchNums(32));
+
+        localMessageCache.deliver(queueOwnership, null, 98, buildMessages(98, 2), 100);
+        Assert.assertEquals(0, localMessageCache.nextPullBatchNums(32));
+    }
+
+    @Test
+    public void testSlowRunnerHoldsThePullBackOnlyOnceItsBacklogIsFull() {
+        ClientConfig clientConfig = new ClientConfig();
+        clientConfig.setRmqPullMessageCacheCapacity(100);
+        clientConfig.setRmqPullCreditRecordNums(10);
+        clientConfig.setRmqPullBacklogRecordNums(20);
+        LocalMessageCache localMessageCache = new LocalMessageCache(null, clientConfig, new OffsetFlusher(() -> null, 0));
+        localMessageCache.attach("fast");
+        localMessageCache.attach("slow");
+        localMessageCache.deliver(queueOwnership, null, 0, buildMessages(0, 10), 10);
+        // no runner has credits left
+        Assert.assertEquals(0, localMessageCache.nextPullBatchNums(32));
+
+        // the slow runner takes the next messages into its backlog
+        localMessageCache.commit("fast", Collections.singletonList(buildQueueOffsets(0, 10)));
+        Assert.assertEquals(10, localMessageCache.nextPullBatchNums(32));
+        localMessageCache.deliver(queueOwnership, null, 10, buildMessages(10, 10), 20);
+        localMessageCache.commit("fast", Collections.singletonList(buildQueueOffsets(10, 10)));
+        Assert.assertEquals(10, localMessageCache.nextPullBatchNums(32));
+        Assert.assertFalse(localMessageCache.isQueueFlowControlled(messageQueue));
+
+        // its backlog is full
+        localMessageCache.deliver(queueOwnership, null, 20, buildMessages(20, 10), 30);
+        localMessageCache.commit("fast", Collections.singletonList(buildQueueOffsets(20, 10)));
+        Assert.assertEquals(0, localMessageCache.nextPullBatchNums(32));
+    }
+
+    private QueueOffsets buildQueueOffsets(long startOffset, int messageNum) {
+        QueueOffsets queueOffsets = new QueueOffsets(messageQueue, queueOwnership.getGeneration());
+        for (int index = 0; index < messageNum; index++) {
+            queueOffsets.add(startOffset + index);
+        }
+        return queueOffsets;
+    }
+
+    private List<MessageExt> buildMessages(long startOffset, int messageNum) {
+        List<MessageExt> messages = new ArrayList<>();
+        for (int index = 0; index < messageNum; index++) {
+            MessageExt messageExt = new MessageExt();
+            messageExt.setQueueOffset(startOffset + index);
+            messageExt.setMsgId("msg" + (startOffset + index));
+            messageExt.setBody(new byte[8]);
+            messages.add(messageExt);
+        }
+        return messages;
+    }
+}
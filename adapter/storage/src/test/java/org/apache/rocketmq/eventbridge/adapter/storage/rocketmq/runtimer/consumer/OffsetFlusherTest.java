@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.rocketmq.client.consumer.store.OffsetStore;
+import org.apache.rocketmq.client.consumer.store.ReadOffsetType;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OffsetFlusherTest {
+
+    private final MessageQueue messageQueue = new MessageQueue("topic", "broker", 0);
+
+    private final MessageQueue revokedQueue = new MessageQueue("topic", "broker", 1);
+
+    private final QueueOwnership queueOwnership = new QueueOwnership(messageQueue, 1);
+
+    private final QueueOwnership revokedOwnership = new QueueOwnership(revokedQueue, 2);
+
+    @Test
+    public void testCommitsAreCoalescedUntilFlush() {
+        RecordingOffsetStore offsetStore = new RecordingOffsetStore();
+        OffsetFlusher offsetFlusher = new OffsetFlusher(() -> offsetStore, 0);
+        offsetFlusher.update(queueOwnership, 10);
+        offsetFlusher.update(queueOwnership, 20);
+        offsetFlusher.update(queueOwnership, 30);
+        Assert.assertTrue(offsetStore.persistedQueues.isEmpty());
+        Assert.assertTrue(offsetFlusher.isDirty(messageQueue));
+
+        offsetFlusher.flush();
+        Assert.assertEquals(Collections.singletonList(messageQueue), offsetStore.persistedQueues);
+        Assert.assertEquals(30L, offsetStore.offsetTable.get(messageQueue).longValue());
+        Assert.assertFalse(offsetFlusher.isDirty(messageQueue));
+
+        // a clean queue is not persisted again
+        offsetFlusher.flush();
+        Assert.assertEquals(1, offsetStore.persistedQueues.size());
+    }
+
+    @Test
+    public void testRebalanceFlushesAndForgetsRevokedQueues() {
+        RecordingOffsetStore offsetStore = new RecordingOffsetStore();
+        OffsetFlusher offsetFlusher = new OffsetFlusher(() -> offsetStore, 0);
+        offsetFlusher.update(queueOwnership, 10);
+        offsetFlusher.update(revokedOwnership, 5);
+
+        offsetFlusher.flushOnRebalance(Collections.singleton(messageQueue));
+        Assert.assertEquals(5L, offsetStore.offsetTable.get(revokedQueue).longValue());
+        Assert.assertEquals(10L, offsetStore.offsetTable.get(messageQueue).longValue());
+
+        offsetFlusher.update(queueOwnership, 11);
+        offsetFlusher.shutdown();
+        Assert.assertEquals(11L, offsetStore.offsetTable.get(messageQueue).longValue());
+        Assert.assertEquals(3, offsetStore.persistedQueues.size());
+    }
+
+    @Test
+    public void testCommitOfRevokedQueueIsDropped() {
+        RecordingOffsetStore offsetStore = new RecordingOffsetStore();
+        OffsetFlusher offsetFlusher = new OffsetFlusher(() -> offsetStore, 0);
+        Assert.assertTrue(offsetFlusher.update(revokedOwnership, 5));
+        revokedOwnership.revoke();
+        offsetFlusher.flushOnRebalance(Collections.emptySet());
+        Assert.assertEquals(5L, offsetStore.offsetTable.get(revokedQueue).longValue());
+
+        // a commit racing with the rebalance must not move the offset the new owner resumes from
+        Assert.assertFalse(offsetFlusher.update(revokedOwnership, 8));
+        offsetFlusher.flush();
+        Assert.assertFalse(offsetFlusher.isDirty(revokedQueue));
+        Assert.assertEquals(5L, offsetStore.offsetTable.get(revokedQueue).longValue());
+    }
+
+    private static class RecordingOffsetStore implements OffsetStore {
+
+        private final Map<MessageQueue, Long> offsetTable = new HashMap<>();
+
+        private final List<MessageQueue> persistedQueues = new ArrayList<>();
+
+        @Override
+        public void load() {
+        }
+
+        @Override
+        public void updateOffset(MessageQueue mq, long offset, boolean increaseOnly) {
+            offsetTable.put(mq, offset);
+        }
+
+        @Override
+        public long readOffset(MessageQueue mq, ReadOffsetType type) {
+            Long offset = offsetTable.get(mq);
+            return offset == null ? -1 : offset;
+        }
+
+        @Override
+        public void persistAll(Set<MessageQueue> mqs) {
+            persistedQueues.addAll(mqs);
+        }
+
+        @Override
+        public void persist(MessageQueue mq) {
+            persistedQueues.add(mq);
+        }
+
+        @Override
+        public void removeOffset(MessageQueue mq) {
+            offsetTable.remove(mq);
+        }
+
+        @Override
+        public Map<MessageQueue, Long> cloneOffsetTable(String topic) {
+            return new HashMap<>(offsetTable);
+        }
+
+        @Override
+        public void updateConsumeOffsetToBroker(MessageQueue mq, long offset, boolean isOneway) {
+            offsetTable.put(mq, offset);
+        }
+    }
+}
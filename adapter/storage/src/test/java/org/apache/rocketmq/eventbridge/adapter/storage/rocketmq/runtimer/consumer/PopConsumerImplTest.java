@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.rocketmq.client.consumer.PopResult;
+import org.apache.rocketmq.client.consumer.PopStatus;
+import org.apache.rocketmq.client.exception.MQBrokerException;
+import org.apache.rocketmq.common.message.MessageAccessor;
+import org.apache.rocketmq.common.message.MessageConst;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.apache.rocketmq.remoting.protocol.ResponseCode;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PopConsumerImplTest {
+
+    private final MessageQueue messageQueue = new MessageQueue("topic", "broker", 0);
+
+    private final List<String> ackedCheckpoints = new ArrayList<>();
+
+    private PopConsumerImpl popConsumer;
+
+    @Before
+    public void setUp() {
+        ClientConfig clientConfig = new ClientConfig();
+        clientConfig.setConsumerGroup("group");
+        clientConfig.setRmqPullMessageCacheCapacity(8);
+        clientConfig.setRmqPullMessageBatchNums(5);
+        clientConfig.setRmqPullCreditRecordNums(6);
+        clientConfig.setRmqPullCreditBytes(1000);
+        popConsumer = new PopConsumerImpl(clientConfig, null) {
+            @Override
+            void ack(MessageQueue messageQueue, String popCheckpoint) {
+                ackedCheckpoints.add(popCheckpoint);
+            }
+        };
+        popConsumer.attachTopic("topic", "*");
+        popConsumer.attachRunner("runner", null);
+    }
+
+    @After
+    public void tearDown() {
+        popConsumer.shutdown();
+    }
+
+    @Test
+    public void testReservationIsBoundedByCreditsAndCache() {
+        Assert.assertEquals(5, popConsumer.reservePopNums());
+        // one record credit is left to the second pop
+        Assert.assertEquals(1, popConsumer.reservePopNums());
+        Assert.assertEquals(0, popConsumer.reservePopNums());
+        Assert.assertEquals(6, popConsumer.getRunnerCredit().getInflightRecords());
+
+        popConsumer.releasePopNums(5, 2);
+        Assert.assertEquals(3, popConsumer.getRunnerCredit().getInflightRecords());
+        popConsumer.releasePopNums(1, 0);
+        // two of the eight cache slots are kept for the popped messages, the runner credits bound the pop
+        Assert.assertEquals(4, popConsumer.reservePopNums());
+    }
+
+    @Test
+    public void testCommitAcksWithThePopCheckpoint() {
+        PopConsumerImpl.PopTask popTask = popConsumer.new PopTask("broker");
+        int popNums = popConsumer.reservePopNums();
+        popTask.onPopped(0, popNums, foundResult(buildMessage(10, "ck-10"), buildMessage(11, "ck-11")));
+        Assert.assertEquals(2, popConsumer.getRunnerCredit().getInflightRecords());
+        Assert.assertEquals(20, popConsumer.getRunnerCredit().getInflightBytes());
+
+        List<ConsumeRequest> consumeRequests = popConsumer.poll("runner", 10, Duration.ofMillis(10));
+        Assert.assertEquals(2, consumeRequests.size());
+        popConsumer.commit("runner", Collections.singletonList(toQueueOffsets(consumeRequests)));
+        Assert.assertEquals(2, ackedCheckpoints.size());
+        Assert.assertTrue(ackedCheckpoints.contains("ck-10"));
+        Assert.assertTrue(ackedCheckpoints.contains("ck-11"));
+        Assert.assertEquals(0, popConsumer.getRunnerCredit().getInflightRecords());
+        Assert.assertEquals(0, popConsumer.getRunnerCredit().getInflightBytes());
+
+        // a message committed twice is acked once
+        popConsumer.commit("runner", Collections.singletonList(toQueueOffsets(consumeRequests)));
+        Assert.assertEquals(2, ackedCheckpoints.size());
+    }
+
+    @Test
+    public void testPopAgainReplacesTheCheckpoint() {
+        PopConsumerImpl.PopTask popTask = popConsumer.new PopTask("broker");
+        popTask.onPopped(0, popConsumer.reservePopNums(), foundResult(buildMessage(10, "ck-first")));
+        popTask.onPopped(0, popConsumer.reservePopNums(), foundResult(buildMessage(10, "ck-second")));
+        Assert.assertEquals(1, popConsumer.getRunnerCredit().getInflightRecords());
+        Assert.assertEquals(10, popConsumer.getRunnerCredit().getInflightBytes());
+
+        List<ConsumeRequest> consumeRequests = popConsumer.poll("runner", 10, Duration.ofMillis(10));
+        Assert.assertEquals(2, consumeRequests.size());
+        popConsumer.commit("runner", Collections.singletonList(toQueueOffsets(consumeRequests)));
+        Assert.assertEquals(Collections.singletonList("ck-second"), ackedCheckpoints);
+        Assert.assertEquals(0, popConsumer.getRunnerCredit().getInflightRecords());
+    }
+
+    @Test
+    public void testFullCacheRejectsTheMessage() {
+        PopConsumerImpl.PopTask popTask = popConsumer.new PopTask("broker");
+        List<MessageExt> messageExts = new ArrayList<>();
+        for (int index = 0; index < 5; index++) {
+            messageExts.add(buildMessage(index, "ck-" + index));
+        }
+        popTask.onPopped(0, popConsumer.reservePopNums(), new PopResult(PopStatus.FOUND, messageExts));
+        // the broker returns more messages than the pop asked for, the one the cache has no room for is
+        // redelivered after the invisible time
+        messageExts = new ArrayList<>();
+        for (int index = 5; index < 9; index++) {
+            messageExts.add(buildMessage(index, "ck-" + index));
+        }
+        popTask.onPopped(0, popConsumer.reservePopNums(), new PopResult(PopStatus.FOUND, messageExts));
+        Assert.assertEquals(8, popConsumer.getRunnerCredit().getInflightRecords());
+        Assert.assertEquals(80, popConsumer.getRunnerCredit().getInflightBytes());
+
+        List<ConsumeRequest> consumeRequests = popConsumer.poll("runner", 10, Duration.ofMillis(10));
+        Assert.assertEquals(8, consumeRequests.size());
+        QueueOffsets queueOffsets = toQueueOffsets(consumeRequests);
+        queueOffsets.add(8);
+        popConsumer.commit("runner", Collections.singletonList(queueOffsets));
+        Assert.assertEquals(8, ackedCheckpoints.size());
+        Assert.assertFalse(ackedCheckpoints.contains("ck-8"));
+        Assert.assertEquals(0, popConsumer.getRunnerCredit().getInflightRecords());
+        Assert.assertEquals(0, popConsumer.getRunnerCredit().getInflightBytes());
+    }
+
+    @Test
+    public void testDeliveryAfterDetachIsDropped() {
+        PopConsumerImpl.PopTask popTask = popConsumer.new PopTask("broker");
+        popTask.onPopped(0, popConsumer.reservePopNums(), foundResult(buildMessage(10, "ck-10")));
+        int popNums = popConsumer.reservePopNums();
+        Assert.assertEquals(6, popConsumer.getRunnerCredit().getInflightRecords());
+
+        Assert.assertTrue(popConsumer.detachRunner("runner"));
+        Assert.assertEquals(5, popConsumer.getRunnerCredit().getInflightRecords());
+        popConsumer.attachRunner("runner", null);
+        // the pop was sent before the detach
+        popTask.onPopped(0, popNums, foundResult(buildMessage(11, "ck-11")));
+        Assert.assertEquals(0, popConsumer.getRunnerCredit().getInflightRecords());
+        Assert.assertEquals(0, popConsumer.getRunnerCredit().getInflightBytes());
+        Assert.assertTrue(popConsumer.poll("runner", 10, Duration.ofMillis(10)).isEmpty());
+    }
+
+    @Test
+    public void testSqlFilterRejectionDisablesTheBrokerFilter() {
+        PopConsumerImpl.PopTask popTask = popConsumer.new PopTask("broker");
+        Assert.assertFalse(popConsumer.isBrokerFilterDisabled());
+        int popNums = popConsumer.reservePopNums();
+        popTask.onPopFailed("a = 'b'", popNums,
+            new MQBrokerException(ResponseCode.SUBSCRIPTION_PARSE_FAILED, "parse failed"));
+        Assert.assertTrue(popConsumer.isBrokerFilterDisabled());
+        Assert.assertEquals(0, popConsumer.getRunnerCredit().getInflightRecords());
+    }
+
+    private static PopResult foundResult(MessageExt... messageExts) {
+        List<MessageExt> messageExtList = new ArrayList<>();
+        Collections.addAll(messageExtList, messageExts);
+        return new PopResult(PopStatus.FOUND, messageExtList);
+    }
+
+    private MessageExt buildMessage(long queueOffset, String popCheckpoint) {
+        MessageExt messageExt = new MessageExt();
+        messageExt.setTopic(messageQueue.getTopic());
+        messageExt.setBrokerName(messageQueue.getBrokerName());
+        messageExt.setQueueId(messageQueue.getQueueId());
+        messageExt.setQueueOffset(queueOffset);
+        messageExt.setBody(new byte[10]);
+        MessageAccessor.putProperty(messageExt, MessageConst.PROPERTY_POP_CK, popCheckpoint);
+        return messageExt;
+    }
+
+    private QueueOffsets toQueueOffsets(List<ConsumeRequest> consumeRequests) {
+        QueueOffsets queueOffsets = new QueueOffsets(messageQueue, 0);
+        for (ConsumeRequest consumeRequest : consumeRequests) {
+            queueOffsets.add(consumeRequest.getMessageExt().getQueueOffset());
+        }
+        return queueOffsets;
+    }
+}
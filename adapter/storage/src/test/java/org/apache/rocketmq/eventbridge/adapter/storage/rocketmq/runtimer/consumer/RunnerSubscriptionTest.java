@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.adapter.storage.rocketmq.runtimer.consumer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.message.MessageQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RunnerSubscriptionTest {
+
+    private final MessageQueue messageQueue = new MessageQueue("topic", "broker", 0);
+
+    private final QueueOwnership queueOwnership = new QueueOwnership(messageQueue, 1);
+
+    @Test
+    public void testRunnersAckAtTheirOwnPace() {
+        ClientConfig clientConfig = new ClientConfig();
+        RunnerSubscription fastRunner = new RunnerSubscription("fast", clientConfig);
+        RunnerSubscription slowRunner = new RunnerSubscription("slow", clientConfig);
+        List<ConsumeRequest> consumeRequests = buildConsumeRequests(queueOwnership, 100, 3);
+        fastRunner.deliver(queueOwnership, 100, consumeRequests, 103);
+        slowRunner.deliver(queueOwnership, 100, consumeRequests, 103);
+        Assert.assertEquals(3, fastRunner.getRunnerCredit().getInflightRecords());
+
+        List<ConsumeRequest> fastMessages = fastRunner.poll(10, Duration.ofMillis(10));
+        Assert.assertEquals(3, fastMessages.size());
+        Assert.assertEquals(3, slowRunner.poll(10, Duration.ofMillis(10)).size());
+
+        QueueOffsets queueOffsets = toQueueOffsets(fastMessages);
+        Assert.assertEquals(Collections.singleton(messageQueue), fastRunner.commit(Collections.singletonList(queueOffsets)).keySet());
+        Assert.assertEquals(103L, fastRunner.committedOffset(messageQueue).longValue());
+        Assert.assertEquals(0, fastRunner.getRunnerCredit().getInflightRecords());
+        Assert.assertEquals(100L, slowRunner.committedOffset(messageQueue).longValue());
+        Assert.assertEquals(3, slowRunner.getRunnerCredit().getInflightRecords());
+
+        QueueOffsets middleOffset = new QueueOffsets(messageQueue, 1);
+        middleOffset.add(queueOffsets.get(1));
+        Assert.assertTrue(slowRunner.commit(Collections.singletonList(middleOffset)).isEmpty());
+        Assert.assertEquals(100L, slowRunner.committedOffset(messageQueue).longValue());
+    }
+
+    @Test
+    public void testHotQueueIsFlowControlledByItsShare() {
+        ClientConfig clientConfig = new ClientConfig();
+        clientConfig.setRmqPullCreditRecordNums(100);
+        clientConfig.setRmqPullCreditBytes(1000);
+        RunnerSubscription subscription = new RunnerSubscription("runner", clientConfig);
+        MessageQueue idleQueue = new MessageQueue("topic", "broker", 1);
+        subscription.deliver(new QueueOwnership(idleQueue, 2), 0, Collections.emptyList(), 0);
+        subscription.deliver(queueOwnership, 100, buildConsumeRequests(queueOwnership, 100, 40), 140);
+        Assert.assertFalse(subscription.exceedsQueueThreshold(messageQueue));
+
+        // 50 records of 8 bytes are the share of one of the two queues in bytes
+        subscription.deliver(queueOwnership, 140, buildConsumeRequests(queueOwnership, 140, 22), 162);
+        Assert.assertTrue(subscription.exceedsQueueThreshold(messageQueue));
+        Assert.assertFalse(subscription.exceedsQueueThreshold(idleQueue));
+        // the byte budget holds (1000 - 496) / 8 more records of the same size
+        Assert.assertEquals(38, subscription.availablePullNums());
+
+        subscription.commit(Collections.singletonList(toQueueOffsets(subscription.poll(20, Duration.ofMillis(10)))));
+        Assert.assertEquals(42, subscription.getAckWindow(messageQueue).inflightCount());
+        Assert.assertEquals(42, subscription.getRunnerCredit().getInflightRecords());
+        Assert.assertFalse(subscription.exceedsQueueThreshold(messageQueue));
+    }
+
+    @Test
+    public void testRevokedAssignmentIsFenced() {
+        RunnerSubscription subscription = new RunnerSubscription("runner", new ClientConfig());
+        subscription.deliver(queueOwnership, 100, buildConsumeRequests(queueOwnership, 100, 3), 103);
+        List<ConsumeRequest> formerRequests = subscription.poll(1, Duration.ofMillis(10));
+        Assert.assertEquals(1, formerRequests.size());
+
+        // the queue is rebalanced away and assigned back, the former assignment must not move the new offset
+        queueOwnership.revoke();
+        QueueOwnership reassigned = new QueueOwnership(messageQueue, 2);
+        subscription.deliver(reassigned, 100, buildConsumeRequests(reassigned, 100, 3), 103);
+        Assert.assertEquals(3, subscription.getRunnerCredit().getInflightRecords());
+        Assert.assertTrue(subscription.commit(Collections.singletonList(toQueueOffsets(formerRequests))).isEmpty());
+        Assert.assertEquals(100L, subscription.committedOffset(messageQueue).longValue());
+
+        List<ConsumeRequest> requests = subscription.poll(10, Duration.ofMillis(10));
+        Assert.assertEquals(3, requests.size());
+        for (ConsumeRequest request : requests) {
+            Assert.assertSame(reassigned, request.getQueueOwnership());
+        }
+        Assert.assertEquals(Collections.singleton(messageQueue), subscription.commit(Collections.singletonList(toQueueOffsets(requests))).keySet());
+        Assert.assertEquals(103L, subscription.committedOffset(messageQueue).longValue());
+        Assert.assertEquals(0, subscription.getRunnerCredit().getInflightRecords());
+    }
+
+    private QueueOffsets toQueueOffsets(List<ConsumeRequest> requests) {
+        QueueOwnership ownership = requests.get(0).getQueueOwnership();
+        QueueOffsets queueOffsets = new QueueOffsets(ownership.getMessageQueue(), ownership.getGeneration());
+        for (ConsumeRequest request : requests) {
+            queueOffsets.add(request.getMessageExt().getQueueOffset());
+        }
+        return queueOffsets;
+    }
+
+    private List<ConsumeRequest> buildConsumeRequests(QueueOwnership ownership, long startOffset, int messageNum) {
+        List<ConsumeRequest> consumeRequests = new ArrayList<>();
+        for (int index = 0; index < messageNum; index++) {
+            MessageExt messageExt = new MessageExt();
+            messageExt.setQueueOffset(startOffset + index);
+            messageExt.setMsgId("msg" + (startOffset + index));
+            messageExt.setBody(new byte[8]);
+            consumeRequests.add(new ConsumeRequest(messageExt, ownership, null));
+        }
+        return consumeRequests;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.enums;
+
+import com.google.common.base.Strings;
+
+/**
+ * The ordering guarantee when delivering events to the target.
+ */
+public enum DeliveryOrderingEnum {
+
+    /**
+     * No ordering, batches of a runner may be delivered concurrently.
+     */
+    NONE,
+
+    /**
+     * Events of the same message queue are delivered in order.
+     */
+    QUEUE,
+
+    /**
+     * Events with the same ordering key, such as subject, are delivered in order.
+     */
+    KEY;
+
+    public static DeliveryOrderingEnum parse(String code) {
+        if (Strings.isNullOrEmpty(code)) {
+            return NONE;
+        }
+        for (DeliveryOrderingEnum orderingEnum : DeliveryOrderingEnum.values()) {
+            if (orderingEnum.name()
+                .equals(code)) {
+                return orderingEnum;
+            }
+        }
+        return NONE;
+    }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.tools.pattern;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The data pattern entries compiled into a trie of their paths, which is matched in one pass over the data.
+ * <p>
+ * The pass reads the data with a pull parser, skips the subtrees no entry references without building them and only
+ * materializes the values the entries test. A key may occur more than once in an object, and like the Gson tree the
+ * json-path read and the rule index walk, the last occurrence wins, so the entries are only tested once the whole
+ * object is read. The entries whose path is absent are tested against null at the end, as the json-path read does.
+ */
+class DataPatternMatcher {
+    /**
+     * a path segment json-path reads as a plain property, anything else keeps the json-path evaluation
+     */
+    private static final Pattern PROPERTY_SEGMENT = Pattern.compile("[^.\\[\\]()*'\"@?\\s]+");
+
+    private static final String PATH_PREFIX = "$.";
+
+    private final PathNode root = new PathNode();
+
+    private final PatternEntry[] patternEntries;
+
+    private DataPatternMatcher(List<PatternEntry> patternEntries) {
+        this.patternEntries = patternEntries.toArray(new PatternEntry[0]);
+    }
+
+    /**
+     * Compiles the data pattern entries into a matcher
+     *
+     * @param dataPatternList the data pattern entries built by {@link PatternEvaluatorBuilder}
+     * @return the matcher, or null if any path is not a plain property path
+     */
+    static DataPatternMatcher compile(List<PatternEntry> dataPatternList) {
+        DataPatternMatcher matcher = new DataPatternMatcher(dataPatternList);
+        for (int index = 0; index < matcher.patternEntries.length; index++) {
+            String patternPath = matcher.patternEntries[index].getPatternPath();
+            if (patternPath == null || !patternPath.startsWith(PATH_PREFIX)) {
+                return null;
+            }
+            PathNode node = matcher.root;
+            for (String segment : patternPath.substring(PATH_PREFIX.length()).split("\\.", -1)) {
+                if (!PROPERTY_SEGMENT.matcher(segment).matches()) {
+                    return null;
+                }
+                node = node.children.computeIfAbsent(segment, key -> new PathNode());
+            }
+            node.entryIndexes.add(index);
+        }
+        return matcher;
+    }
+
+    /**
+     * Tests the data in json format in one streaming pass
+     *
+     * @param jsonData the data in json format
+     * @return true if every entry matches
+     * @throws JsonSyntaxException if the data read before the decision is not valid json
+     */
+    boolean match(String jsonData) {
+        JsonObject referenced = null;
+        try {
+            JsonReader reader = new JsonReader(new StringReader(jsonData));
+            reader.setLenient(true);
+            if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                referenced = readReferenced(reader, root);
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+        return match(referenced);
+    }
+
+    /**
+     * Tests the data already parsed, only visiting the paths the entries reference
+     *
+     * @param data the data element
+     * @return true if every entry matches
+     */
+    boolean match(JsonElement data) {
+        MatchState state = new MatchState(patternEntries.length);
+        if (data != null && data.isJsonObject() && !matchTree(data.getAsJsonObject(), root, state)) {
+            return false;
+        }
+        return matchAbsent(state);
+    }
+
+    /**
+     * Reads an object keeping only the values the entries reference, a later occurrence of a key replaces the
+     * former one
+     *
+     * @param reader the reader positioned at the beginning of the object
+     * @param node the node of the object
+     * @return the object of the referenced values
+     */
+    private JsonObject readReferenced(JsonReader reader, PathNode node) throws IOException {
+        JsonObject referenced = new JsonObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            PathNode child = node.children.get(name);
+            if (child == null) {
+                reader.skipValue();
+            } else if (!child.entryIndexes.isEmpty()) {
+                referenced.add(name, JsonParser.parseReader(reader));
+            } else if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+                referenced.add(name, readReferenced(reader, child));
+            } else {
+                // json-path finds no property below a value which is not an object, it still hides a former object
+                reader.skipValue();
+                referenced.add(name, JsonNull.INSTANCE);
+            }
+        }
+        reader.endObject();
+        return referenced;
+    }
+
+    private boolean matchTree(JsonObject jsonObject, PathNode node, MatchState state) {
+        for (Map.Entry<String, PathNode> childEntry : node.children.entrySet()) {
+            JsonElement value = jsonObject.get(childEntry.getKey());
+            if (value == null) {
+                continue;
+            }
+            PathNode child = childEntry.getValue();
+            if (!child.entryIndexes.isEmpty()) {
+                if (!matchValue(value, child, state)) {
+                    return false;
+                }
+            } else if (value.isJsonObject() && !matchTree(value.getAsJsonObject(), child, state)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchValue(JsonElement value, PathNode node, MatchState state) {
+        for (int index = 0; index < node.entryIndexes.size(); index++) {
+            int entryIndex = node.entryIndexes.get(index);
+            if (state.tested[entryIndex]) {
+                continue;
+            }
+            state.tested[entryIndex] = true;
+            state.untested--;
+            if (!patternEntries[entryIndex].match(value)) {
+                return false;
+            }
+        }
+        // a key of the pattern may contain a dot, so a path may both end at a node and continue below it
+        return node.children.isEmpty() || !value.isJsonObject() || matchTree(value.getAsJsonObject(), node, state);
+    }
+
+    private boolean matchAbsent(MatchState state) {
+        for (int index = 0; state.untested > 0 && index < patternEntries.length; index++) {
+            if (!state.tested[index]) {
+                state.untested--;
+                if (!patternEntries[index].match(null)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static class PathNode {
+        private final Map<String, PathNode> children = new HashMap<>();
+
+        private final List<Integer> entryIndexes = new ArrayList<>(1);
+    }
+
+    private static class MatchState {
+        private final boolean[] tested;
+
+        private int untested;
+
+        private MatchState(int entryNum) {
+            this.tested = new boolean[entryNum];
+            this.untested = entryNum;
+        }
+    }
+}
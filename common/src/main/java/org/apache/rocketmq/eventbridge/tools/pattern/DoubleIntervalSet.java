@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.tools.pattern;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of doubles made of sorted, disjoint and non adjacent closed intervals, which tells whether a number
+ * is in the set by a binary search over the lower bounds.
+ * <p>
+ * NaN is treated as positive infinity, as {@link Double#compare(double, double)} orders it above every number.
+ */
+final class DoubleIntervalSet {
+    static final DoubleIntervalSet EMPTY = new DoubleIntervalSet(new double[0], new double[0]);
+
+    static final DoubleIntervalSet ALL = of(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+    private final double[] lowerBounds;
+
+    private final double[] upperBounds;
+
+    private DoubleIntervalSet(double[] lowerBounds, double[] upperBounds) {
+        this.lowerBounds = lowerBounds;
+        this.upperBounds = upperBounds;
+    }
+
+    /**
+     * @param lowerBound the inclusive lower bound
+     * @param upperBound the inclusive upper bound
+     * @return the set of the single interval, empty if the lower bound is above the upper bound
+     */
+    static DoubleIntervalSet of(double lowerBound, double upperBound) {
+        if (lowerBound > upperBound) {
+            return EMPTY;
+        }
+        return new DoubleIntervalSet(new double[] {lowerBound}, new double[] {upperBound});
+    }
+
+    boolean contains(double value) {
+        double key = Double.isNaN(value) ? Double.POSITIVE_INFINITY : value;
+        int low = 0;
+        int high = lowerBounds.length - 1;
+        // Finds the last interval whose lower bound isn't above the key
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (lowerBounds[middle] <= key) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high >= 0 && key <= upperBounds[high];
+    }
+
+    boolean isEmpty() {
+        return lowerBounds.length == 0;
+    }
+
+    int size() {
+        return lowerBounds.length;
+    }
+
+    DoubleIntervalSet complement() {
+        double[] lows = new double[lowerBounds.length + 1];
+        double[] highs = new double[lowerBounds.length + 1];
+        int count = 0;
+        double next = Double.NEGATIVE_INFINITY;
+        for (int index = 0; index < lowerBounds.length; index++) {
+            if (lowerBounds[index] > next) {
+                lows[count] = next;
+                highs[count++] = Math.nextDown(lowerBounds[index]);
+            }
+            next = Math.nextUp(upperBounds[index]);
+        }
+        if (lowerBounds.length == 0 || upperBounds[lowerBounds.length - 1] < Double.POSITIVE_INFINITY) {
+            lows[count] = next;
+            highs[count++] = Double.POSITIVE_INFINITY;
+        }
+        return new DoubleIntervalSet(Arrays.copyOf(lows, count), Arrays.copyOf(highs, count));
+    }
+
+    DoubleIntervalSet intersect(DoubleIntervalSet other) {
+        int capacity = lowerBounds.length + other.lowerBounds.length;
+        double[] lows = new double[capacity];
+        double[] highs = new double[capacity];
+        int count = 0;
+        int index = 0;
+        int otherIndex = 0;
+        while (index < lowerBounds.length && otherIndex < other.lowerBounds.length) {
+            double low = Math.max(lowerBounds[index], other.lowerBounds[otherIndex]);
+            double high = Math.min(upperBounds[index], other.upperBounds[otherIndex]);
+            if (low <= high) {
+                lows[count] = low;
+                highs[count++] = high;
+            }
+            if (upperBounds[index] < other.upperBounds[otherIndex]) {
+                index++;
+            } else {
+                otherIndex++;
+            }
+        }
+        return new DoubleIntervalSet(Arrays.copyOf(lows, count), Arrays.copyOf(highs, count));
+    }
+
+    /**
+     * Unites the sets, merging the intervals which overlap or are adjacent
+     */
+    DoubleIntervalSet union(DoubleIntervalSet other) {
+        int capacity = lowerBounds.length + other.lowerBounds.length;
+        double[] lows = new double[capacity];
+        double[] highs = new double[capacity];
+        int count = 0;
+        int index = 0;
+        int otherIndex = 0;
+        while (index < lowerBounds.length || otherIndex < other.lowerBounds.length) {
+            double low;
+            double high;
+            if (otherIndex == other.lowerBounds.length
+                || index < lowerBounds.length && lowerBounds[index] <= other.lowerBounds[otherIndex]) {
+                low = lowerBounds[index];
+                high = upperBounds[index++];
+            } else {
+                low = other.lowerBounds[otherIndex];
+                high = other.upperBounds[otherIndex++];
+            }
+            if (count > 0 && low <= Math.nextUp(highs[count - 1])) {
+                highs[count - 1] = Math.max(highs[count - 1], high);
+            } else {
+                lows[count] = low;
+                highs[count++] = high;
+            }
+        }
+        return new DoubleIntervalSet(Arrays.copyOf(lows, count), Arrays.copyOf(highs, count));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int index = 0; index < lowerBounds.length; index++) {
+            builder.append(index == 0 ? "" : ", ").append('[').append(lowerBounds[index]).append(", ")
+                .append(upperBounds[index]).append(']');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.tools.pattern;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The conditions of an OR {@link PatternEntry} folded into lookup structures when the pattern is built: the equal
+ * values into a hash set, the prefixes and suffixes into tries, every anything-but list of values into a negative
+ * set, the numeric ranges into one merged interval set and the cidr blocks into a radix tree. The conditions which
+ * can't be folded are still evaluated one by one.
+ * <p>
+ * The folded conditions match as {@link AbstractPatternCondition} does: a primitive or null is tested directly, an
+ * array of primitives and nulls matches if any element matches, anything else never matches.
+ */
+class FoldedConditions {
+    /**
+     * Below this many folded values, evaluating the conditions one by one is as cheap as a lookup
+     */
+    static final int FOLD_THRESHOLD = 4;
+
+    private final Set<String> equalValues = new HashSet<>();
+
+    private boolean equalNull;
+
+    private final StringTrie prefixes = new StringTrie(false);
+
+    private final StringTrie suffixes = new StringTrie(true);
+
+    private final List<NegativeSet> anythingButSets = new ArrayList<>();
+
+    private DoubleIntervalSet numericIntervals = DoubleIntervalSet.EMPTY;
+
+    private final IpPrefixTree ipPrefixes = new IpPrefixTree();
+
+    private final List<PatternCondition> remainingConditions = new ArrayList<>();
+
+    private FoldedConditions() {
+    }
+
+    /**
+     * Folds the conditions of an OR entry
+     *
+     * @param conditionList the conditions of the entry
+     * @return the folded conditions, or null if too few of them can be folded to pay off
+     */
+    static FoldedConditions fold(List<PatternCondition> conditionList) {
+        FoldedConditions folded = new FoldedConditions();
+        int foldedValues = 0;
+        for (PatternCondition condition : conditionList) {
+            if (condition instanceof EqualCondition) {
+                folded.addEqual(((EqualCondition) condition).getVal());
+                foldedValues++;
+            } else if (condition instanceof PrefixCondition) {
+                folded.prefixes.add(((PrefixCondition) condition).getPrefix());
+                foldedValues++;
+            } else if (condition instanceof SuffixCondition) {
+                folded.suffixes.add(((SuffixCondition) condition).getSuffix());
+                foldedValues++;
+            } else if (condition instanceof AnythingButCondition && NegativeSet.isFoldable((AnythingButCondition) condition)) {
+                NegativeSet negativeSet = new NegativeSet((AnythingButCondition) condition);
+                folded.anythingButSets.add(negativeSet);
+                foldedValues += negativeSet.values.size();
+            } else if (condition instanceof NumericCondition) {
+                folded.numericIntervals = folded.numericIntervals.union(((NumericCondition) condition).getIntervalSet());
+                foldedValues++;
+            } else if (condition instanceof CIDRCondition && folded.ipPrefixes.add((CIDRCondition) condition)) {
+                foldedValues++;
+            } else {
+                folded.remainingConditions.add(condition);
+            }
+        }
+        return foldedValues >= FOLD_THRESHOLD ? folded : null;
+    }
+
+    private void addEqual(JsonElement val) {
+        if (val.isJsonNull()) {
+            equalNull = true;
+        } else {
+            equalValues.add(val.getAsString());
+        }
+    }
+
+    boolean match(JsonElement jsonData) {
+        if (jsonData != null && matchFolded(jsonData)) {
+            return true;
+        }
+        for (final PatternCondition condition : remainingConditions) {
+            if (condition.match(jsonData)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchFolded(JsonElement jsonData) {
+        if (jsonData.isJsonPrimitive()) {
+            return matchPrimitive(jsonData.getAsJsonPrimitive());
+        }
+        if (jsonData.isJsonNull()) {
+            return matchNull();
+        }
+        if (!jsonData.isJsonArray()) {
+            return false;
+        }
+        for (final JsonElement element : jsonData.getAsJsonArray()) {
+            if (!(element.isJsonPrimitive() || element.isJsonNull())) {
+                return false;
+            }
+        }
+        for (final JsonElement element : jsonData.getAsJsonArray()) {
+            if (element.isJsonPrimitive() ? matchPrimitive(element.getAsJsonPrimitive()) : matchNull()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchPrimitive(JsonPrimitive jsonPrimitive) {
+        // Number matching is at the string representation level, as EqualCondition does
+        String value = jsonPrimitive.getAsString();
+        if (equalValues.contains(value)) {
+            return true;
+        }
+        if (jsonPrimitive.isString() && (!prefixes.isEmpty() && prefixes.matchesAny(value)
+            || !suffixes.isEmpty() && suffixes.matchesAny(value) || !ipPrefixes.isEmpty() && ipPrefixes.matches(value))) {
+            return true;
+        }
+        if (jsonPrimitive.isNumber() && numericIntervals.contains(jsonPrimitive.getAsDouble())) {
+            return true;
+        }
+        for (NegativeSet anythingButSet : anythingButSets) {
+            if (!anythingButSet.values.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchNull() {
+        if (equalNull) {
+            return true;
+        }
+        for (NegativeSet anythingButSet : anythingButSets) {
+            if (!anythingButSet.excludesNull) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * An anything-but list of values, matching everything not in it
+     */
+    private static class NegativeSet {
+        private final Set<String> values = new HashSet<>();
+
+        private boolean excludesNull;
+
+        private NegativeSet(AnythingButCondition condition) {
+            for (PatternCondition anythingBut : condition.getAnythingButs()) {
+                JsonElement val = ((EqualCondition) anythingBut).getVal();
+                if (val.isJsonNull()) {
+                    excludesNull = true;
+                } else {
+                    values.add(val.getAsString());
+                }
+            }
+        }
+
+        private static boolean isFoldable(AnythingButCondition condition) {
+            for (PatternCondition anythingBut : condition.getAnythingButs()) {
+                if (!(anythingBut instanceof EqualCondition)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
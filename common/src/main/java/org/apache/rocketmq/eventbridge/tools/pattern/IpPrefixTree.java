@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.tools.pattern;
+
+import com.google.common.net.InetAddresses;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.net.util.SubnetUtils;
+
+/**
+ * A binary radix tree of the IPv4 and IPv6 prefixes of {@link CIDRCondition}s, which tells whether an address
+ * matches any of them in one walk over the bits of the address.
+ * <p>
+ * A subnet matches as {@link SubnetUtils.SubnetInfo#isInRange(String)} does, so the network and broadcast addresses
+ * of a subnet don't match and a /31 or /32 subnet matches nothing. A single address matches an equal address. A
+ * value which isn't an ip literal is compared with the single addresses by resolving it, as the conditions do.
+ */
+class IpPrefixTree {
+    private static final int IPV4_BITS = 32;
+
+    private final Node ipv4Root = new Node();
+
+    private final Node ipv6Root = new Node();
+
+    private final List<CIDRCondition> addressConditions = new ArrayList<>();
+
+    private int size;
+
+    /**
+     * Adds the condition to the tree
+     *
+     * @param condition the condition
+     * @return false if the condition can't be folded and needs to be evaluated on its own
+     */
+    boolean add(CIDRCondition condition) {
+        String cidrExp = condition.getCidrExp();
+        if (cidrExp.contains("/")) {
+            SubnetUtils.SubnetInfo subnetInfo = parseSubnet(cidrExp);
+            if (subnetInfo == null) {
+                return false;
+            }
+            int prefixLength = Integer.bitCount(subnetInfo.asInteger(subnetInfo.getNetmask()));
+            if (prefixLength < IPV4_BITS - 1) {
+                int network = subnetInfo.asInteger(subnetInfo.getNetworkAddress());
+                insert(ipv4Root, new byte[] {(byte) (network >>> 24), (byte) (network >>> 16), (byte) (network >>> 8),
+                    (byte) network}, prefixLength).subnet = true;
+            }
+            size++;
+            return true;
+        }
+        InetAddress address = parseLiteral(cidrExp);
+        if (address == null) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        insert(bytes.length == 4 ? ipv4Root : ipv6Root, bytes, bytes.length * 8).address = true;
+        addressConditions.add(condition);
+        size++;
+        return true;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean matches(String value) {
+        long ipv4 = parseDottedQuad(value);
+        if (ipv4 >= 0 && matchesSubnet((int) ipv4)) {
+            return true;
+        }
+        if (addressConditions.isEmpty()) {
+            return false;
+        }
+        InetAddress literal = parseLiteral(value);
+        if (literal != null) {
+            byte[] bytes = literal.getAddress();
+            Node node = walk(bytes.length == 4 ? ipv4Root : ipv6Root, bytes, bytes.length * 8);
+            return node != null && node.address;
+        }
+        for (CIDRCondition condition : addressConditions) {
+            if (condition.matchIpAddress(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesSubnet(int ipv4) {
+        Node node = ipv4Root;
+        for (int depth = 0; node != null; depth++) {
+            if (node.subnet) {
+                int hostMask = (int) ((1L << (IPV4_BITS - depth)) - 1);
+                int host = ipv4 & hostMask;
+                if (host != 0 && host != hostMask) {
+                    return true;
+                }
+            }
+            if (depth == IPV4_BITS) {
+                return false;
+            }
+            node = (ipv4 >>> (IPV4_BITS - 1 - depth) & 1) == 0 ? node.zero : node.one;
+        }
+        return false;
+    }
+
+    private static Node insert(Node root, byte[] bytes, int bits) {
+        Node node = root;
+        for (int depth = 0; depth < bits; depth++) {
+            if (bit(bytes, depth) == 0) {
+                node = node.zero != null ? node.zero : (node.zero = new Node());
+            } else {
+                node = node.one != null ? node.one : (node.one = new Node());
+            }
+        }
+        return node;
+    }
+
+    private static Node walk(Node root, byte[] bytes, int bits) {
+        Node node = root;
+        for (int depth = 0; node != null && depth < bits; depth++) {
+            node = bit(bytes, depth) == 0 ? node.zero : node.one;
+        }
+        return node;
+    }
+
+    private static int bit(byte[] bytes, int index) {
+        return bytes[index >>> 3] >>> (7 - (index & 7)) & 1;
+    }
+
+    /**
+     * @return the subnet of the cidr expression, null if it's not valid
+     */
+    static SubnetUtils.SubnetInfo parseSubnet(String cidrExp) {
+        try {
+            return new SubnetUtils(cidrExp).getInfo();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses an ip literal without resolving it
+     *
+     * @return the address, null if the value is not a plain ip literal
+     */
+    static InetAddress parseLiteral(String value) {
+        if (value.indexOf('%') >= 0 || !InetAddresses.isInetAddress(value)) {
+            return null;
+        }
+        return InetAddresses.forString(value);
+    }
+
+    /**
+     * Parses an IPv4 address in the dotted form {@link SubnetUtils} accepts, four decimal numbers of up to three
+     * digits and at most 255
+     *
+     * @return the address as an unsigned int, -1 if the value isn't in that form
+     */
+    static long parseDottedQuad(String value) {
+        long address = 0;
+        int octets = 0;
+        int index = 0;
+        while (index <= value.length() && octets < 4) {
+            int start = index;
+            int octet = 0;
+            while (index < value.length() && index - start < 4 && value.charAt(index) >= '0' && value.charAt(index) <= '9') {
+                octet = octet * 10 + value.charAt(index++) - '0';
+            }
+            if (index == start || index - start > 3 || octet > 255) {
+                return -1;
+            }
+            address = address << 8 | octet;
+            octets++;
+            if (octets < 4) {
+                if (index == value.length() || value.charAt(index) != '.') {
+                    return -1;
+                }
+                index++;
+            }
+        }
+        return octets == 4 && index == value.length() ? address : -1;
+    }
+
+    private static class Node {
+        private Node zero;
+
+        private Node one;
+
+        /**
+         * Whether a subnet ends at the node
+         */
+        private boolean subnet;
+
+        /**
+         * Whether a single address ends at the node
+         */
+        private boolean address;
+    }
+}
@@ -94,6 +94,59 @@ public enum NumericOperators {
         }
     }
 
+    /**
+     * Translates the operator into the set of numbers it matches, with bounds found by the threshold comparison itself,
+     * so a lookup in the set agrees with {@link #match(double, double)} on every double
+     *
+     * @param dst the number to compare with
+     * @return the numbers matching the operator
+     */
+    DoubleIntervalSet toIntervalSet(double dst) {
+        switch (this) {
+            case EQUAL:
+                return DoubleIntervalSet.of(lowestEqual(dst), highestEqual(dst));
+            case NOT_EQUAL:
+                return DoubleIntervalSet.of(lowestEqual(dst), highestEqual(dst))
+                    .complement();
+            case GREATER_THAN:
+                return DoubleIntervalSet.of(Math.nextUp(highestEqual(dst)), Double.POSITIVE_INFINITY);
+            case GREATER_THAN_EQUAL:
+                return DoubleIntervalSet.of(lowestEqual(dst), Double.POSITIVE_INFINITY);
+            case LESS_THAN:
+                return DoubleIntervalSet.of(Double.NEGATIVE_INFINITY, Math.nextDown(lowestEqual(dst)));
+            case LESS_THAN_EQUAL:
+                return DoubleIntervalSet.of(Double.NEGATIVE_INFINITY, highestEqual(dst));
+            default: // Never be here
+                return DoubleIntervalSet.EMPTY;
+        }
+    }
+
+    /**
+     * The equality holds on a contiguous range of doubles around dst, the threshold bound is only off by the rounding
+     * of the subtraction, which a few steps correct
+     */
+    private static double lowestEqual(double dst) {
+        double src = dst - THRESHOLD;
+        while (!EQUAL.match(src, dst)) {
+            src = Math.nextUp(src);
+        }
+        while (EQUAL.match(Math.nextDown(src), dst)) {
+            src = Math.nextDown(src);
+        }
+        return src;
+    }
+
+    private static double highestEqual(double dst) {
+        double src = dst + THRESHOLD;
+        while (!EQUAL.match(src, dst)) {
+            src = Math.nextDown(src);
+        }
+        while (EQUAL.match(Math.nextUp(src), dst)) {
+            src = Math.nextUp(src);
+        }
+        return src;
+    }
+
     private int compareDouble(double src, double dst) {
         if (Math.abs(src - dst) <= THRESHOLD) {
             return 0;
@@ -92,6 +92,18 @@ abstract class AbstractPatternCondition implements PatternCondition {
     abstract boolean matchPrimitive(JsonPrimitive jsonPrimitive);
 
     abstract boolean matchNull(JsonNull jsonNull);
+
+    /**
+     * Translates the condition on a string attribute into a RocketMQ SQL92 expression, which accepts at least
+     * every value the condition matches. A missing attribute evaluates to false in SQL92, as it does here.
+     *
+     * @param attributeName the name of the message property holding the attribute
+     * @param stringFunctions whether the broker supports STARTSWITH and ENDSWITH, which need RocketMQ 5
+     * @return the expression, or null if the condition can't be translated
+     */
+    String toSqlExpression(String attributeName, boolean stringFunctions) {
+        return null;
+    }
 }
 
 /**
@@ -107,6 +119,10 @@ class EqualCondition extends AbstractPatternCondition {
         this.val = val;
     }
 
+    JsonElement getVal() {
+        return val;
+    }
+
     @Override
     boolean matchPrimitive(final JsonPrimitive jsonPrimitive) {
         // JsonNull is not equal to "null"
@@ -124,6 +140,15 @@ class EqualCondition extends AbstractPatternCondition {
     boolean matchNull(final JsonNull jsonNull) {
         return val.equals(jsonNull);
     }
+
+    @Override
+    String toSqlExpression(String attributeName, boolean stringFunctions) {
+        // Properties are never empty, so an empty value can't be compared on the broker
+        if (!val.isJsonPrimitive() || val.getAsString().isEmpty()) {
+            return null;
+        }
+        return attributeName + " = " + SqlFilterExpressionBuilder.quote(val.getAsString());
+    }
 }
 
 class PrefixCondition extends AbstractPatternCondition {
@@ -136,6 +161,10 @@ class PrefixCondition extends AbstractPatternCondition {
         this.prefix = prefix;
     }
 
+    String getPrefix() {
+        return prefix;
+    }
+
     @Override
     boolean matchPrimitive(final JsonPrimitive jsonPrimitive) {
         return jsonPrimitive.isString() && jsonPrimitive.getAsString()
@@ -146,6 +175,11 @@ class PrefixCondition extends AbstractPatternCondition {
     boolean matchNull(final JsonNull jsonNull) {
         return false;
     }
+
+    @Override
+    String toSqlExpression(String attributeName, boolean stringFunctions) {
+        return stringFunctions ? attributeName + " STARTSWITH " + SqlFilterExpressionBuilder.quote(prefix) : null;
+    }
 }
 
 class SuffixCondition extends AbstractPatternCondition {
@@ -158,6 +192,10 @@ class SuffixCondition extends AbstractPatternCondition {
         this.suffix = suffix;
     }
 
+    String getSuffix() {
+        return suffix;
+    }
+
     @Override
     boolean matchPrimitive(final JsonPrimitive jsonPrimitive) {
         return jsonPrimitive.isString() && jsonPrimitive.getAsString()
@@ -168,6 +206,11 @@ class SuffixCondition extends AbstractPatternCondition {
     boolean matchNull(final JsonNull jsonNull) {
         return false;
     }
+
+    @Override
+    String toSqlExpression(String attributeName, boolean stringFunctions) {
+        return stringFunctions ? attributeName + " ENDSWITH " + SqlFilterExpressionBuilder.quote(suffix) : null;
+    }
 }
 
 /**
@@ -181,6 +224,10 @@ class AnythingButCondition extends AbstractPatternCondition {
         anythingButs.add(patternCondition);
     }
 
+    List<PatternCondition> getAnythingButs() {
+        return anythingButs;
+    }
+
     @Override
     boolean matchPrimitive(final JsonPrimitive jsonPrimitive) {
         return matchJsonElement(jsonPrimitive);
@@ -199,30 +246,31 @@ class AnythingButCondition extends AbstractPatternCondition {
         }
         return true;
     }
+
+    @Override
+    String toSqlExpression(String attributeName, boolean stringFunctions) {
+        String anyOf = SqlFilterExpressionBuilder.or(anythingButs, attributeName, stringFunctions);
+        return anyOf == null ? null : "NOT (" + anyOf + ")";
+    }
 }
 
 class NumericCondition extends AbstractPatternCondition {
-    private List<Double> dataList = new ArrayList<>();
-    private List<NumericOperators> operatorList = new ArrayList<>();
+    /**
+     * The numbers matching all the operators, looked up once per value instead of comparing with every operator
+     */
+    private DoubleIntervalSet intervalSet = DoubleIntervalSet.ALL;
 
     public void addOperatorAndData(NumericOperators operator, double data) {
-        dataList.add(data);
-        operatorList.add(operator);
+        intervalSet = intervalSet.intersect(operator.toIntervalSet(data));
+    }
+
+    DoubleIntervalSet getIntervalSet() {
+        return intervalSet;
     }
 
     @Override
     boolean matchPrimitive(final JsonPrimitive jsonPrimitive) {
-        if (!jsonPrimitive.isNumber()) {
-            return false;
-        }
-
-        for (int i = 0; i < operatorList.size(); i++) {
-            if (!operatorList.get(i)
-                .match(jsonPrimitive.getAsDouble(), dataList.get(i))) {
-                return false;
-            }
-        }
-        return true;
+        return jsonPrimitive.isNumber() && intervalSet.contains(jsonPrimitive.getAsDouble());
     }
 
     @Override
@@ -237,20 +285,39 @@ class NumericCondition extends AbstractPatternCondition {
 class CIDRCondition extends AbstractPatternCondition {
     private final String cidrExp;
 
+    private final boolean subnet;
+
+    /**
+     * The subnet of the expression parsed once, null if it's a single address or not valid
+     */
+    private final SubnetUtils.SubnetInfo subnetInfo;
+
+    /**
+     * The single address of the expression parsed once, null if it's a subnet or a host name, which is resolved on
+     * every match
+     */
+    private final InetAddress address;
+
     public CIDRCondition(final String cidrExp) {
         this.cidrExp = cidrExp;
+        this.subnet = cidrExp.contains("/");
+        this.subnetInfo = subnet ? IpPrefixTree.parseSubnet(cidrExp) : null;
+        this.address = subnet ? null : IpPrefixTree.parseLiteral(cidrExp);
+    }
+
+    String getCidrExp() {
+        return cidrExp;
     }
 
-    private boolean matchIpAddress(final String data) {
+    boolean matchIpAddress(final String data) {
         boolean flag;
         try {
-            if (cidrExp.contains("/")) {
-                SubnetUtils snu = new SubnetUtils(cidrExp);
-                flag = snu.getInfo()
-                    .isInRange(data);
+            if (subnet) {
+                flag = subnetInfo != null && subnetInfo.isInRange(data);
             } else {
-                flag = InetAddress.getByName(data)
-                    .equals(InetAddress.getByName(cidrExp));
+                InetAddress dataAddress = IpPrefixTree.parseLiteral(data);
+                flag = (dataAddress != null ? dataAddress : InetAddress.getByName(data))
+                    .equals(address != null ? address : InetAddress.getByName(cidrExp));
             }
         } catch (Exception e) {
             flag = false;
@@ -286,4 +353,9 @@ class ExistsCondition extends AbstractPatternCondition {
     boolean matchNull(final JsonNull jsonNull) {
         return exists == (jsonNull != null);
     }
+
+    @Override
+    String toSqlExpression(String attributeName, boolean stringFunctions) {
+        return attributeName + (exists ? " IS NOT NULL" : " IS NULL");
+    }
 }
@@ -50,6 +50,11 @@ public class PatternEntry {
      */
     private List<PatternCondition> conditionList = new ArrayList<>();
 
+    /**
+     * The conditions folded into lookup structures, null if they are evaluated one by one
+     */
+    private FoldedConditions foldedConditions;
+
     public PatternEntry(final String patternName, final String patternPath) {
         this.patternName = patternName;
         this.patternPath = patternPath;
@@ -57,6 +62,21 @@ public class PatternEntry {
 
     public void addRuleCondition(PatternCondition patternCondition) {
         this.conditionList.add(patternCondition);
+        this.foldedConditions = null;
+    }
+
+    /**
+     * Folds the conditions of an OR entry into lookup structures, so a long list of conditions isn't evaluated one by
+     * one
+     */
+    public void foldConditions() {
+        if (patternType == PatternType.OR) {
+            this.foldedConditions = FoldedConditions.fold(conditionList);
+        }
+    }
+
+    boolean isConditionsFolded() {
+        return foldedConditions != null;
     }
 
     public String getPatternName() {
@@ -67,8 +87,16 @@ public class PatternEntry {
         return patternPath;
     }
 
+    PatternType getPatternType() {
+        return patternType;
+    }
+
     public boolean match(JsonElement jsonElement) {
         if (patternType == PatternType.OR) {
+            FoldedConditions folded = this.foldedConditions;
+            if (folded != null) {
+                return folded.match(jsonElement);
+            }
             for (final PatternCondition patternCondition : conditionList) {
                 if (patternCondition.match(jsonElement)) {
                     return true;
@@ -91,6 +119,19 @@ public class PatternEntry {
         return false;
     }
 
+    /**
+     * Translates the entry into a RocketMQ SQL92 expression on the message property of the same name
+     *
+     * @param stringFunctions whether the broker supports STARTSWITH and ENDSWITH
+     * @return the expression, or null if any condition can't be translated
+     */
+    String toSqlExpression(boolean stringFunctions) {
+        if (patternType != PatternType.OR) {
+            return null;
+        }
+        return SqlFilterExpressionBuilder.or(conditionList, patternName, stringFunctions);
+    }
+
     /**
      * Returns the condition list for test only
      *
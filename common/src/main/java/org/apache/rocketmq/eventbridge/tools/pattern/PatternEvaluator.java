@@ -26,11 +26,11 @@ import com.jayway.jsonpath.PathNotFoundException;
 import com.jayway.jsonpath.ReadContext;
 import com.jayway.jsonpath.spi.json.GsonJsonProvider;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import org.apache.rocketmq.eventbridge.config.AppConfig;
-import org.apache.rocketmq.eventbridge.event.EventBridgeEvent;
+import java.util.function.Supplier;
 
 /**
  * PatternEvaluator has three {@link PatternEntry} groups:
@@ -41,8 +41,17 @@ import org.apache.rocketmq.eventbridge.event.EventBridgeEvent;
  *     CloudEvents</li>
  *     <li>{@link #dataPatternList} contains pattern entries to filter data of CloudEvents, only support json type</li>
  * </ul>
+ * The entries of a group, and the groups themselves, are evaluated in a {@link SelectivityOrder} adapted to the
+ * events evaluated so far, so the cheap entries which reject the most run first.
+ * <p>
+ * The attributes the spec and extensions attribute patterns refer to are given fixed slots when the patterns are
+ * added, so an event can be evaluated against an array of its attributes indexed by these slots.
  */
 public class PatternEvaluator {
+    private static final int SPEC_ATTR_GROUP = 0;
+    private static final int EXTENSIONS_ATTR_GROUP = 1;
+    private static final int DATA_GROUP = 2;
+
     Configuration jsonPathConf = Configuration.builder()
         .jsonProvider(new GsonJsonProvider())
         .build();
@@ -51,6 +60,31 @@ public class PatternEvaluator {
     private List<PatternEntry> extensionsAttrPatternList = new ArrayList<>();
     private List<PatternEntry> dataPatternList = new ArrayList<>();
 
+    /**
+     * The data patterns compiled into a path trie, null if they are not compiled or need json-path
+     */
+    private DataPatternMatcher dataPatternMatcher;
+
+    /**
+     * The statistics of a group start over once its entries change
+     */
+    private SelectivityOrder specAttrOrder = new SelectivityOrder(0);
+    private SelectivityOrder extensionsAttrOrder = new SelectivityOrder(0);
+    private SelectivityOrder dataOrder = new SelectivityOrder(0);
+    private final SelectivityOrder groupOrder = new SelectivityOrder(3);
+
+    /**
+     * The attributes of the event {@link #testEventPattern(JsonObject)} evaluates on the current thread, emptied
+     * after every event
+     */
+    private static final ThreadLocal<JsonElement[]> EVENT_ATTRIBUTES =
+        ThreadLocal.withInitial(() -> new JsonElement[0]);
+
+    private final Map<String, Integer> attributeSlots = new HashMap<>();
+    private final List<String> attributeNames = new ArrayList<>();
+    private int[] specAttrSlots = new int[0];
+    private int[] extensionsAttrSlots = new int[0];
+
     /**
      * Evaluates the provided json string whether matches the event pattern
      *
@@ -61,23 +95,81 @@ public class PatternEvaluator {
         if (Strings.isNullOrEmpty(jsonData)) {
             return false;
         }
+        DataPatternMatcher matcher = this.dataPatternMatcher;
+        if (matcher != null) {
+            return matcher.match(jsonData);
+        }
         final ReadContext jsonContext = JsonPath.using(jsonPathConf)
             .parse(jsonData);
 
-        for (final PatternEntry patternEntry : dataPatternList) {
+        SelectivityOrder order = this.dataOrder;
+        boolean timed = order.startEvaluation();
+        for (int index : order.order()) {
+            long start = timed ? System.nanoTime() : 0L;
+            PatternEntry patternEntry = dataPatternList.get(index);
             JsonElement jsonElement = null;
             try {
                 jsonElement = jsonContext.read(patternEntry.getPatternPath());
             } catch (PathNotFoundException ignored) {
             }
 
-            if (!patternEntry.match(jsonElement)) {
+            boolean matched = patternEntry.match(jsonElement);
+            order.record(index, matched, timed ? System.nanoTime() - start : -1L);
+            if (!matched) {
                 return false;
             }
         }
         return true;
     }
 
+    /**
+     * Evaluates the provided event whether matches the event pattern, the spec attributes, extensions attributes and
+     * data are evaluated in the order which rejected the most for the least cost so far. The data is only serialized
+     * when there are data patterns, and not at all if the event is rejected by its attributes first.
+     *
+     * @param jsonData supplies the data of the event in json format
+     * @param specAttrs the spec attributes of the event in map format
+     * @param extensionsAttrs the extensions attributes of the event in map format
+     * @return true if the event matches the pattern, false otherwise
+     */
+    public boolean evaluate(Supplier<String> jsonData, Map<String, JsonElement> specAttrs,
+        Map<String, JsonElement> extensionsAttrs) {
+        return evaluateGroups(specAttrs, extensionsAttrs, null, jsonData, null);
+    }
+
+    /**
+     * Evaluates the provided event whether matches the event pattern like {@link #evaluate(Supplier, Map, Map)},
+     * with the attributes of the event at their slots
+     *
+     * @param jsonData supplies the data of the event in json format
+     * @param attributes the spec and extensions attributes of the event indexed by {@link #getAttributeSlot(String)},
+     * null if the event has no such attribute
+     * @return true if the event matches the pattern, false otherwise
+     */
+    public boolean evaluate(Supplier<String> jsonData, JsonElement[] attributes) {
+        return evaluateGroups(null, null, attributes, jsonData, null);
+    }
+
+    /**
+     * @param attributeName the name of a spec or extensions attribute
+     * @return the slot of the attribute, -1 if no pattern refers to it
+     */
+    public int getAttributeSlot(String attributeName) {
+        Integer slot = attributeSlots.get(attributeName);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * @return the number of attribute slots, the length of the attribute arrays to evaluate
+     */
+    public int getAttributeSlotCount() {
+        return attributeNames.size();
+    }
+
+    public String getAttributeName(int slot) {
+        return attributeNames.get(slot);
+    }
+
     /**
      * Evaluates the provided spec attributes whether matches the event pattern
      *
@@ -85,7 +177,7 @@ public class PatternEvaluator {
      * @return true if matches the pattern, false otherwise
      */
     public boolean evaluateSpecAttr(Map<String, JsonElement> specAttrs) {
-        return evaluateAttrMap(specAttrs, specAttrPatternList);
+        return evaluateAttrs(specAttrs, null, specAttrPatternList, specAttrSlots, specAttrOrder);
     }
 
     /**
@@ -95,7 +187,8 @@ public class PatternEvaluator {
      * @return true if matches the pattern, false otherwise
      */
     public boolean evaluateExtensionAttr(Map<String, JsonElement> extensionsAttrs) {
-        return evaluateAttrMap(extensionsAttrs, extensionsAttrPatternList);
+        return evaluateAttrs(extensionsAttrs, null, extensionsAttrPatternList, extensionsAttrSlots,
+            extensionsAttrOrder);
     }
 
     /**
@@ -105,52 +198,76 @@ public class PatternEvaluator {
      * @return true if match
      */
     public boolean testEventPattern(JsonObject eventObject) {
-        Map<String, JsonElement> specAttrs = new HashMap<>();
-        Map<String, JsonElement> extensionsAttrs = new HashMap<>();
-        Object dataObj = null;
-
-        for (final Map.Entry<String, JsonElement> eventEntry : eventObject.entrySet()) {
-            String key = eventEntry.getKey();
+        int slotCount = attributeNames.size();
+        JsonElement[] attributes = EVENT_ATTRIBUTES.get();
+        if (attributes.length < slotCount) {
+            attributes = new JsonElement[slotCount];
+            EVENT_ATTRIBUTES.set(attributes);
+        }
+        JsonElement dataObj = null;
 
-            if (PatternEvaluatorBuilder.CLOUDEVENTS_DATA_KEY.equals(key)) {
-                dataObj = eventEntry.getValue();
-                continue;
-            }
+        try {
+            for (final Map.Entry<String, JsonElement> eventEntry : eventObject.entrySet()) {
+                String key = eventEntry.getKey();
 
-            if (EventBridgeEvent.getAttributeKeys()
-                .contains(key)) {
-                specAttrs.put(key, eventEntry.getValue());
-                continue;
-            }
+                if (PatternEvaluatorBuilder.CLOUDEVENTS_DATA_KEY.equals(key)) {
+                    dataObj = eventEntry.getValue();
+                    continue;
+                }
 
-            if (AppConfig.getGlobalConfig()
-                .getEventExtensionKeys()
-                .contains(key)) {
-                extensionsAttrs.put(key, eventEntry.getValue());
-                continue;
+                // The slots only hold the spec and extensions attributes the patterns refer to, no need to handle
+                // other fields, since we have already validate the event format
+                Integer slot = attributeSlots.get(key);
+                if (slot != null) {
+                    attributes[slot] = eventEntry.getValue();
+                }
             }
 
-            // No need to handle other fields, since we have already validate the event format
-        }
-
-        if (!evaluateSpecAttr(specAttrs)) {
-            return false;
-        }
-
-        if (!evaluateExtensionAttr(extensionsAttrs)) {
-            return false;
+            return evaluateGroups(null, null, attributes, null, dataObj);
+        } finally {
+            Arrays.fill(attributes, 0, slotCount, null);
         }
+    }
 
-        if (!hasDataPattern()) {
-            // No need to filter by data
-            return true;
+    private boolean evaluateGroups(Map<String, JsonElement> specAttrs, Map<String, JsonElement> extensionsAttrs,
+        JsonElement[] attributes, Supplier<String> jsonData, JsonElement dataObj) {
+        boolean timed = groupOrder.startEvaluation();
+        for (int group : groupOrder.order()) {
+            long start = timed ? System.nanoTime() : 0L;
+            boolean matched;
+            switch (group) {
+                case SPEC_ATTR_GROUP:
+                    matched = evaluateAttrs(specAttrs, attributes, specAttrPatternList, specAttrSlots,
+                        specAttrOrder);
+                    break;
+                case EXTENSIONS_ATTR_GROUP:
+                    matched = evaluateAttrs(extensionsAttrs, attributes, extensionsAttrPatternList,
+                        extensionsAttrSlots, extensionsAttrOrder);
+                    break;
+                default:
+                    // No need to filter by data without data patterns
+                    matched = !hasDataPattern() || (jsonData != null ? evaluateData(jsonData.get()) :
+                        evaluateDataElement(dataObj));
+            }
+            groupOrder.record(group, matched, timed ? System.nanoTime() - start : -1L);
+            if (!matched) {
+                return false;
+            }
         }
+        return true;
+    }
 
+    private boolean evaluateDataElement(JsonElement dataObj) {
         if (dataObj == null) {
             // No data can be used to match the data rule
             return false;
         }
 
+        DataPatternMatcher matcher = this.dataPatternMatcher;
+        if (matcher != null) {
+            // The data is already parsed, so it is matched as it is instead of being serialized and parsed again
+            return matcher.match(dataObj);
+        }
         return evaluateData(dataObj.toString());
     }
 
@@ -175,26 +292,69 @@ public class PatternEvaluator {
 
     public void addSpecAttrPatternEntry(PatternEntry patternEntry) {
         this.specAttrPatternList.add(patternEntry);
+        this.specAttrOrder = new SelectivityOrder(specAttrPatternList.size());
+        this.specAttrSlots = appendSlot(specAttrSlots, patternEntry.getPatternName());
     }
 
     public void addExtensionsAttrPatternEntry(PatternEntry patternEntry) {
         this.extensionsAttrPatternList.add(patternEntry);
+        this.extensionsAttrOrder = new SelectivityOrder(extensionsAttrPatternList.size());
+        this.extensionsAttrSlots = appendSlot(extensionsAttrSlots, patternEntry.getPatternName());
     }
 
     public void addDataPatternEntry(PatternEntry patternEntry) {
         this.dataPatternList.add(patternEntry);
+        this.dataOrder = new SelectivityOrder(dataPatternList.size());
+        this.dataPatternMatcher = null;
+    }
+
+    /**
+     * Compiles the data patterns into a path trie matched in one streaming pass, the data patterns whose paths
+     * need json-path keep being evaluated by it
+     */
+    public void compileDataPatterns() {
+        this.dataPatternMatcher = DataPatternMatcher.compile(dataPatternList);
+    }
+
+    boolean isDataPatternCompiled() {
+        return dataPatternMatcher != null;
     }
 
-    private boolean evaluateAttrMap(Map<String, JsonElement> attr, List<PatternEntry> ruleEntries) {
-        for (final PatternEntry patternEntry : ruleEntries) {
-            JsonElement val = attr.get(patternEntry.getPatternName());
-            if (!patternEntry.match(val)) {
+    private int[] appendSlot(int[] slots, String attributeName) {
+        Integer slot = attributeSlots.get(attributeName);
+        if (slot == null) {
+            slot = attributeNames.size();
+            attributeNames.add(attributeName);
+            attributeSlots.put(attributeName, slot);
+        }
+        int[] appended = Arrays.copyOf(slots, slots.length + 1);
+        appended[slots.length] = slot;
+        return appended;
+    }
+
+    /**
+     * Evaluates the attributes in the map, or in the slots of the array if it is not null
+     */
+    private boolean evaluateAttrs(Map<String, JsonElement> attr, JsonElement[] attributes,
+        List<PatternEntry> ruleEntries, int[] slots, SelectivityOrder order) {
+        boolean timed = order.startEvaluation();
+        for (int index : order.order()) {
+            long start = timed ? System.nanoTime() : 0L;
+            PatternEntry patternEntry = ruleEntries.get(index);
+            JsonElement val = attributes != null ? attributes[slots[index]] : attr.get(patternEntry.getPatternName());
+            boolean matched = patternEntry.match(val);
+            order.record(index, matched, timed ? System.nanoTime() - start : -1L);
+            if (!matched) {
                 return false;
             }
         }
         return true;
     }
 
+    SelectivityOrder getGroupOrder() {
+        return groupOrder;
+    }
+
     // Below three getters only for test
 
     List<PatternEntry> getSpecAttrPatternList() {
@@ -135,6 +135,7 @@ public class PatternEvaluatorBuilder {
                     throw new InvalidEventPatternException(PatternErrorMessages.NO_DATA_PATTERN_KEY);
                 }
             }
+            patternEvaluator.compileDataPatterns();
         }
         return patternEvaluator;
     }
@@ -198,6 +199,7 @@ public class PatternEvaluatorBuilder {
             throw new InvalidEventPatternException(PatternErrorMessages.NESTED_PATTERN_VALUE + ruleName);
         }
 
+        patternEntry.foldConditions();
         return patternEntry;
     }
 
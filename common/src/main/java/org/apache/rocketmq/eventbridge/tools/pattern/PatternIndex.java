@@ -0,0 +1,554 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.tools.pattern;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * PatternIndex finds all the rules an event matches in one pass over the event, instead of evaluating the
+ * {@link PatternEvaluator} of every rule one after another.
+ * <p>
+ * Every {@link PatternEntry} of every rule is indexed by the attribute name or data path it tests. The entries which
+ * only test equal values are looked up by the value in the event, the other entries are tested one by one, but only
+ * for the fields the event contains. So the cost of a match grows with the fields of the event and the entries they
+ * touch, not with the number of rules. As {@link PatternEvaluator} does, a rule matches when all its entries match,
+ * and an entry whose field is absent from the event is tested against null.
+ * <p>
+ * Rules are put and removed one at a time, a change only recompiles the changed rule and copies the fields it
+ * touches. Matches run concurrently with changes, on the snapshot published by the last change.
+ */
+public class PatternIndex {
+    private static final String PATH_PREFIX = "$.";
+
+    private static final byte UNTESTED = 0;
+
+    private static final byte MATCHED = 1;
+
+    private static final byte FAILED = 2;
+
+    private volatile Snapshot snapshot = new Snapshot();
+
+    /**
+     * Puts the rule into the index, replacing the rule of the same name
+     *
+     * @param ruleName the unique name of the rule
+     * @param evaluator the patterns of the rule built by {@link PatternEvaluatorBuilder}
+     */
+    public synchronized void put(String ruleName, PatternEvaluator evaluator) {
+        Snapshot next = snapshot.copy();
+        next.removeRule(ruleName);
+        next.addRule(new Rule(ruleName, evaluator));
+        snapshot = next;
+    }
+
+    /**
+     * Removes the rule from the index
+     *
+     * @param ruleName the name of the rule
+     * @return true if the rule was in the index
+     */
+    public synchronized boolean remove(String ruleName) {
+        if (!snapshot.rules.containsKey(ruleName)) {
+            return false;
+        }
+        Snapshot next = snapshot.copy();
+        next.removeRule(ruleName);
+        snapshot = next;
+        return true;
+    }
+
+    public Set<String> getRuleNames() {
+        return Collections.unmodifiableSet(snapshot.rules.keySet());
+    }
+
+    /**
+     * Returns the spec attribute names any rule tests, the other spec attributes needn't be provided to match
+     *
+     * @return the attribute names
+     */
+    public Set<String> getSpecAttrNames() {
+        return Collections.unmodifiableSet(snapshot.specFields.keySet());
+    }
+
+    /**
+     * Tests whether any rule has data patterns, otherwise the data needn't be provided to match
+     *
+     * @return true if any rule has data patterns
+     */
+    public boolean hasDataPattern() {
+        Snapshot current = snapshot;
+        return !current.dataFields.isEmpty() || !current.evaluatedRules.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return snapshot.rules.isEmpty();
+    }
+
+    /**
+     * Finds the rules matching the event, a rule matches if {@link PatternEvaluator#evaluateData(String)},
+     * {@link PatternEvaluator#evaluateSpecAttr(Map)} and {@link PatternEvaluator#evaluateExtensionAttr(Map)} of it
+     * all pass
+     *
+     * @param specAttrs the spec attributes of the event
+     * @param extensionsAttrs the extensions attributes of the event
+     * @param data the data of the event, {@link JsonNull} if the event has no data
+     * @return the names of the matched rules
+     */
+    public Set<String> match(Map<String, JsonElement> specAttrs, Map<String, JsonElement> extensionsAttrs,
+        JsonElement data) {
+        Snapshot current = snapshot;
+        MatchState state = new MatchState();
+        visitAttrs(specAttrs, current.specFields, state);
+        visitAttrs(extensionsAttrs, current.extensionsFields, state);
+        if (data != null && data.isJsonObject()) {
+            visitData(data.getAsJsonObject(), current.dataRoot, state);
+        }
+
+        Set<String> matchedRules = new HashSet<>();
+        for (Map.Entry<Rule, byte[]> ruleState : state.ruleStates.entrySet()) {
+            if (ruleState.getKey().resolve(ruleState.getValue())) {
+                matchedRules.add(ruleState.getKey().name);
+            }
+        }
+        for (Rule rule : current.absentMatchingRules) {
+            // A touched rule has been resolved above
+            if (!state.ruleStates.containsKey(rule)) {
+                matchedRules.add(rule.name);
+            }
+        }
+        for (Rule rule : current.evaluatedRules) {
+            if (rule.evaluate(specAttrs, extensionsAttrs, data)) {
+                matchedRules.add(rule.name);
+            }
+        }
+        return matchedRules;
+    }
+
+    private void visitAttrs(Map<String, JsonElement> attrs, Map<String, FieldIndex> fields, MatchState state) {
+        if (attrs == null || attrs.isEmpty() || fields.isEmpty()) {
+            return;
+        }
+        // Walks the smaller side, so an event with few attributes doesn't pay for the fields of every rule
+        if (attrs.size() <= fields.size()) {
+            for (Map.Entry<String, JsonElement> attr : attrs.entrySet()) {
+                FieldIndex field = fields.get(attr.getKey());
+                if (field != null && attr.getValue() != null) {
+                    field.visit(attr.getValue(), state);
+                }
+            }
+            return;
+        }
+        for (Map.Entry<String, FieldIndex> field : fields.entrySet()) {
+            JsonElement value = attrs.get(field.getKey());
+            if (value != null) {
+                field.getValue().visit(value, state);
+            }
+        }
+    }
+
+    private void visitData(JsonObject jsonObject, DataNode node, MatchState state) {
+        if (jsonObject.size() <= node.children.size()) {
+            for (Map.Entry<String, JsonElement> property : jsonObject.entrySet()) {
+                DataNode child = node.children.get(property.getKey());
+                if (child != null) {
+                    visitDataNode(property.getValue(), child, state);
+                }
+            }
+            return;
+        }
+        for (Map.Entry<String, DataNode> child : node.children.entrySet()) {
+            JsonElement value = jsonObject.get(child.getKey());
+            if (value != null) {
+                visitDataNode(value, child.getValue(), state);
+            }
+        }
+    }
+
+    private void visitDataNode(JsonElement value, DataNode node, MatchState state) {
+        if (node.field != null) {
+            node.field.visit(value, state);
+        }
+        // json-path finds no property below a value which is not an object
+        if (!node.children.isEmpty() && value.isJsonObject()) {
+            visitData(value.getAsJsonObject(), node, state);
+        }
+    }
+
+    /**
+     * The entries of a rule are tested once, the first test of an entry decides it
+     */
+    private static class MatchState {
+        private final Map<Rule, byte[]> ruleStates = new HashMap<>();
+
+        private void test(EntryRef entryRef, JsonElement value) {
+            byte[] entryStates = entryStates(entryRef.rule);
+            if (entryStates[entryRef.ordinal] == UNTESTED) {
+                entryStates[entryRef.ordinal] = entryRef.patternEntry.match(value) ? MATCHED : FAILED;
+            }
+        }
+
+        private void matched(EntryRef entryRef) {
+            byte[] entryStates = entryStates(entryRef.rule);
+            if (entryStates[entryRef.ordinal] == UNTESTED) {
+                entryStates[entryRef.ordinal] = MATCHED;
+            }
+        }
+
+        private byte[] entryStates(Rule rule) {
+            return ruleStates.computeIfAbsent(rule, key -> new byte[key.absentMatches.length]);
+        }
+    }
+
+    /**
+     * The compiled patterns of one rule
+     */
+    private static class Rule {
+        private final String name;
+
+        private final PatternEvaluator evaluator;
+
+        /**
+         * Whether an entry matches when its field is absent, by the ordinal of the entry in the rule
+         */
+        private final boolean[] absentMatches;
+
+        /**
+         * The entries of the rule by the field they test, empty if the whole rule is evaluated
+         */
+        private final Map<String, List<EntryRef>> specEntries = new HashMap<>();
+
+        private final Map<String, List<EntryRef>> extensionsEntries = new HashMap<>();
+
+        private final Map<String, List<EntryRef>> dataEntries = new HashMap<>();
+
+        /**
+         * Whether the data patterns need json-path, then the rule is evaluated by its evaluator instead of indexed
+         */
+        private final boolean evaluated;
+
+        private Rule(String name, PatternEvaluator evaluator) {
+            this.name = name;
+            this.evaluator = evaluator;
+            this.evaluated = evaluator.hasDataPattern() && !evaluator.isDataPatternCompiled();
+            List<PatternEntry> patternEntries = new ArrayList<>();
+            if (!evaluated) {
+                patternEntries.addAll(evaluator.getSpecAttrPatternList());
+                patternEntries.addAll(evaluator.getExtensionsAttrPatternList());
+                patternEntries.addAll(evaluator.getDataPatternList());
+            }
+            this.absentMatches = new boolean[patternEntries.size()];
+            int ordinal = 0;
+            for (PatternEntry patternEntry : evaluator.getSpecAttrPatternList()) {
+                ordinal = addEntry(specEntries, patternEntry.getPatternName(), patternEntry, ordinal);
+            }
+            for (PatternEntry patternEntry : evaluator.getExtensionsAttrPatternList()) {
+                ordinal = addEntry(extensionsEntries, patternEntry.getPatternName(), patternEntry, ordinal);
+            }
+            for (PatternEntry patternEntry : evaluator.getDataPatternList()) {
+                ordinal = addEntry(dataEntries, patternEntry.getPatternPath(), patternEntry, ordinal);
+            }
+        }
+
+        private int addEntry(Map<String, List<EntryRef>> entries, String field, PatternEntry patternEntry, int ordinal) {
+            if (evaluated) {
+                return ordinal;
+            }
+            absentMatches[ordinal] = patternEntry.match(null);
+            entries.computeIfAbsent(field, key -> new ArrayList<>()).add(new EntryRef(this, ordinal, patternEntry));
+            return ordinal + 1;
+        }
+
+        private boolean isAbsentMatching() {
+            for (boolean absentMatch : absentMatches) {
+                if (!absentMatch) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean resolve(byte[] entryStates) {
+            for (int ordinal = 0; ordinal < entryStates.length; ordinal++) {
+                if (entryStates[ordinal] == FAILED || entryStates[ordinal] == UNTESTED && !absentMatches[ordinal]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean evaluate(Map<String, JsonElement> specAttrs, Map<String, JsonElement> extensionsAttrs,
+            JsonElement data) {
+            JsonElement dataElement = data == null ? JsonNull.INSTANCE : data;
+            return evaluator.evaluateData(dataElement.toString()) && evaluator.evaluateSpecAttr(
+                specAttrs == null ? Collections.emptyMap() : specAttrs) && evaluator.evaluateExtensionAttr(
+                extensionsAttrs == null ? Collections.emptyMap() : extensionsAttrs);
+        }
+    }
+
+    private static class EntryRef {
+        private final Rule rule;
+
+        private final int ordinal;
+
+        private final PatternEntry patternEntry;
+
+        private EntryRef(Rule rule, int ordinal, PatternEntry patternEntry) {
+            this.rule = rule;
+            this.ordinal = ordinal;
+            this.patternEntry = patternEntry;
+        }
+
+        /**
+         * Tests whether the entry only matches values equal to some primitives, then it's looked up by value
+         *
+         * @return the string representations of the primitives, or null if the entry must be tested
+         */
+        private List<String> equalValues() {
+            if (patternEntry.getPatternType() != PatternType.OR || patternEntry.getConditionList().isEmpty()) {
+                return null;
+            }
+            List<String> values = new ArrayList<>(patternEntry.getConditionList().size());
+            for (PatternCondition condition : patternEntry.getConditionList()) {
+                if (!(condition instanceof EqualCondition) || !((EqualCondition) condition).getVal().isJsonPrimitive()) {
+                    return null;
+                }
+                values.add(((EqualCondition) condition).getVal().getAsString());
+            }
+            return values;
+        }
+    }
+
+    /**
+     * The entries testing one field, never modified once published
+     */
+    private static class FieldIndex {
+        private static final FieldIndex EMPTY = new FieldIndex(Collections.emptyMap(), Collections.emptyList());
+
+        /**
+         * The entries only matching equal primitives, by the string representation of the primitives
+         */
+        private final Map<String, List<EntryRef>> equalEntries;
+
+        private final List<EntryRef> testedEntries;
+
+        private FieldIndex(Map<String, List<EntryRef>> equalEntries, List<EntryRef> testedEntries) {
+            this.equalEntries = equalEntries;
+            this.testedEntries = testedEntries;
+        }
+
+        private FieldIndex plus(List<EntryRef> entryRefs) {
+            Map<String, List<EntryRef>> nextEqualEntries = new HashMap<>(equalEntries);
+            List<EntryRef> nextTestedEntries = new ArrayList<>(testedEntries);
+            for (EntryRef entryRef : entryRefs) {
+                List<String> values = entryRef.equalValues();
+                if (values == null) {
+                    nextTestedEntries.add(entryRef);
+                    continue;
+                }
+                for (String value : values) {
+                    List<EntryRef> equalRefs = new ArrayList<>(nextEqualEntries.getOrDefault(value, Collections.emptyList()));
+                    equalRefs.add(entryRef);
+                    nextEqualEntries.put(value, equalRefs);
+                }
+            }
+            return new FieldIndex(nextEqualEntries, nextTestedEntries);
+        }
+
+        /**
+         * @return the index without the entries of the rule, null if nothing is left
+         */
+        private FieldIndex minus(Rule rule) {
+            Map<String, List<EntryRef>> nextEqualEntries = new HashMap<>(equalEntries.size());
+            for (Map.Entry<String, List<EntryRef>> equalEntry : equalEntries.entrySet()) {
+                List<EntryRef> equalRefs = without(equalEntry.getValue(), rule);
+                if (!equalRefs.isEmpty()) {
+                    nextEqualEntries.put(equalEntry.getKey(), equalRefs);
+                }
+            }
+            List<EntryRef> nextTestedEntries = without(testedEntries, rule);
+            if (nextEqualEntries.isEmpty() && nextTestedEntries.isEmpty()) {
+                return null;
+            }
+            return new FieldIndex(nextEqualEntries, nextTestedEntries);
+        }
+
+        private static List<EntryRef> without(List<EntryRef> entryRefs, Rule rule) {
+            List<EntryRef> remaining = new ArrayList<>(entryRefs.size());
+            for (EntryRef entryRef : entryRefs) {
+                if (entryRef.rule != rule) {
+                    remaining.add(entryRef);
+                }
+            }
+            return remaining;
+        }
+
+        private void visit(JsonElement value, MatchState state) {
+            for (EntryRef entryRef : testedEntries) {
+                state.test(entryRef, value);
+            }
+            if (equalEntries.isEmpty()) {
+                return;
+            }
+            if (value.isJsonPrimitive()) {
+                matchEqual(value.getAsString(), state);
+                return;
+            }
+            if (!value.isJsonArray()) {
+                return;
+            }
+            // As the conditions do, an array matches if any element matches, but only an array of primitives
+            for (JsonElement element : value.getAsJsonArray()) {
+                if (!(element.isJsonPrimitive() || element.isJsonNull())) {
+                    return;
+                }
+            }
+            for (JsonElement element : value.getAsJsonArray()) {
+                if (element.isJsonPrimitive()) {
+                    matchEqual(element.getAsString(), state);
+                }
+            }
+        }
+
+        private void matchEqual(String value, MatchState state) {
+            List<EntryRef> equalRefs = equalEntries.get(value);
+            if (equalRefs == null) {
+                return;
+            }
+            for (EntryRef entryRef : equalRefs) {
+                state.matched(entryRef);
+            }
+        }
+    }
+
+    /**
+     * A node of the trie of the data paths, never modified once published
+     */
+    private static class DataNode {
+        private final Map<String, DataNode> children = new HashMap<>();
+
+        private FieldIndex field;
+    }
+
+    /**
+     * The state of the index published to the matches, a change works on a copy of it
+     */
+    private static class Snapshot {
+        private final Map<String, Rule> rules;
+
+        private final Map<String, FieldIndex> specFields;
+
+        private final Map<String, FieldIndex> extensionsFields;
+
+        private final Map<String, FieldIndex> dataFields;
+
+        /**
+         * The rules matching an event which touches none of their entries
+         */
+        private final List<Rule> absentMatchingRules;
+
+        private final List<Rule> evaluatedRules;
+
+        private DataNode dataRoot = new DataNode();
+
+        private Snapshot() {
+            this(new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), new ArrayList<>(),
+                new ArrayList<>());
+        }
+
+        private Snapshot(Map<String, Rule> rules, Map<String, FieldIndex> specFields,
+            Map<String, FieldIndex> extensionsFields, Map<String, FieldIndex> dataFields,
+            List<Rule> absentMatchingRules, List<Rule> evaluatedRules) {
+            this.rules = rules;
+            this.specFields = specFields;
+            this.extensionsFields = extensionsFields;
+            this.dataFields = dataFields;
+            this.absentMatchingRules = absentMatchingRules;
+            this.evaluatedRules = evaluatedRules;
+        }
+
+        private Snapshot copy() {
+            Snapshot copied = new Snapshot(new HashMap<>(rules), new HashMap<>(specFields),
+                new HashMap<>(extensionsFields), new HashMap<>(dataFields), new ArrayList<>(absentMatchingRules),
+                new ArrayList<>(evaluatedRules));
+            copied.dataRoot = dataRoot;
+            return copied;
+        }
+
+        private void addRule(Rule rule) {
+            rules.put(rule.name, rule);
+            if (rule.evaluated) {
+                evaluatedRules.add(rule);
+                return;
+            }
+            if (rule.isAbsentMatching()) {
+                absentMatchingRules.add(rule);
+            }
+            rule.specEntries.forEach((field, entryRefs) -> specFields.put(field,
+                specFields.getOrDefault(field, FieldIndex.EMPTY).plus(entryRefs)));
+            rule.extensionsEntries.forEach((field, entryRefs) -> extensionsFields.put(field,
+                extensionsFields.getOrDefault(field, FieldIndex.EMPTY).plus(entryRefs)));
+            rule.dataEntries.forEach((field, entryRefs) -> dataFields.put(field,
+                dataFields.getOrDefault(field, FieldIndex.EMPTY).plus(entryRefs)));
+            if (!rule.dataEntries.isEmpty()) {
+                rebuildDataTrie();
+            }
+        }
+
+        private void removeRule(String ruleName) {
+            Rule rule = rules.remove(ruleName);
+            if (rule == null) {
+                return;
+            }
+            if (rule.evaluated) {
+                evaluatedRules.remove(rule);
+                return;
+            }
+            absentMatchingRules.remove(rule);
+            rule.specEntries.keySet().forEach(field -> specFields.computeIfPresent(field, (key, index) -> index.minus(rule)));
+            rule.extensionsEntries.keySet().forEach(field -> extensionsFields.computeIfPresent(field, (key, index) -> index.minus(rule)));
+            rule.dataEntries.keySet().forEach(field -> dataFields.computeIfPresent(field, (key, index) -> index.minus(rule)));
+            if (!rule.dataEntries.isEmpty()) {
+                rebuildDataTrie();
+            }
+        }
+
+        /**
+         * The trie only holds the paths, so rebuilding it doesn't touch the entries
+         */
+        private void rebuildDataTrie() {
+            DataNode root = new DataNode();
+            for (Map.Entry<String, FieldIndex> dataField : dataFields.entrySet()) {
+                DataNode node = root;
+                for (String segment : dataField.getKey().substring(PATH_PREFIX.length()).split("\\.", -1)) {
+                    node = node.children.computeIfAbsent(segment, key -> new DataNode());
+                }
+                node.field = dataField.getValue();
+            }
+            dataRoot = root;
+        }
+    }
+}
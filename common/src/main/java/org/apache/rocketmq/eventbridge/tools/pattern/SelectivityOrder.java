@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.tools.pattern;
+
+import java.util.Arrays;
+
+/**
+ * Orders the checks of a conjunction so that the cheap checks which reject the most run first.
+ * <p>
+ * Every check keeps how often it ran and rejected, and 1 of {@link #SAMPLE_INTERVAL} evaluations is timed to keep its
+ * cost. Every {@link #REORDER_INTERVAL} evaluations the checks are sorted by their cost per rejection, the order of
+ * checking a conjunction of independent checks with the least expected cost, and the statistics are halved so the
+ * order follows a changing workload. A check which hasn't run yet has no cost, so it is tried first in the next round.
+ * <p>
+ * The checks of a conjunction can run in any order without changing its result. The statistics are updated without
+ * synchronization, a lost update only makes the order a bit less accurate.
+ */
+class SelectivityOrder {
+    static final int SAMPLE_INTERVAL = 16;
+
+    static final int REORDER_INTERVAL = 1024;
+
+    private final int[] evaluations;
+
+    private final int[] rejections;
+
+    private final long[] sampledNanos;
+
+    private final int[] samples;
+
+    private volatile int[] order;
+
+    private int evaluationCount;
+
+    SelectivityOrder(int size) {
+        this.evaluations = new int[size];
+        this.rejections = new int[size];
+        this.sampledNanos = new long[size];
+        this.samples = new int[size];
+        int[] initialOrder = new int[size];
+        for (int index = 0; index < size; index++) {
+            initialOrder[index] = index;
+        }
+        this.order = initialOrder;
+    }
+
+    /**
+     * @return the indexes of the checks in the order to run them, never modified
+     */
+    int[] order() {
+        return order;
+    }
+
+    /**
+     * Starts an evaluation of the conjunction, reordering the checks every {@link #REORDER_INTERVAL} evaluations
+     *
+     * @return whether the checks of this evaluation are timed
+     */
+    boolean startEvaluation() {
+        int count = ++evaluationCount;
+        if (count % REORDER_INTERVAL == 0) {
+            reorder();
+        }
+        return count % SAMPLE_INTERVAL == 0;
+    }
+
+    /**
+     * Records a run of a check
+     *
+     * @param index the index of the check
+     * @param matched whether the check passed
+     * @param nanos the time the check took, negative if it wasn't timed
+     */
+    void record(int index, boolean matched, long nanos) {
+        evaluations[index]++;
+        if (!matched) {
+            rejections[index]++;
+        }
+        if (nanos >= 0) {
+            sampledNanos[index] += nanos;
+            samples[index]++;
+        }
+    }
+
+    private void reorder() {
+        int size = evaluations.length;
+        double[] scores = new double[size];
+        Integer[] indexes = new Integer[size];
+        for (int index = 0; index < size; index++) {
+            double cost = samples[index] == 0 ? 0 : (double) sampledNanos[index] / samples[index];
+            // Laplace smoothing, so a check which never rejected is ordered by its cost among the others
+            double rejectRate = (rejections[index] + 1.0) / (evaluations[index] + 2.0);
+            scores[index] = cost / rejectRate;
+            indexes[index] = index;
+
+            evaluations[index] >>= 1;
+            rejections[index] >>= 1;
+            sampledNanos[index] >>= 1;
+            samples[index] >>= 1;
+        }
+        Arrays.sort(indexes, (left, right) -> Double.compare(scores[left], scores[right]));
+        int[] nextOrder = new int[size];
+        for (int index = 0; index < size; index++) {
+            nextOrder[index] = indexes[index];
+        }
+        order = nextOrder;
+    }
+}
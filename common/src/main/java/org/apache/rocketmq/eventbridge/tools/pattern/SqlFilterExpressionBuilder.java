@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.tools.pattern;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.apache.rocketmq.eventbridge.tools.JsonUtil;
+
+/**
+ * SqlFilterExpressionBuilder compiles the spec attribute part of an event pattern into a RocketMQ SQL92 expression,
+ * so the broker drops most of the events a rule can never match before they are pulled.
+ * <p>
+ * The expression is a pre-filter: it accepts at least every event the {@link PatternEvaluator} matches, and the
+ * evaluator stays the exact check. Entries which can't be expressed, such as cidr conditions, are left out of it.
+ * Only the attributes which the event writer stores as message properties of the same name are compiled.
+ * Numeric conditions are never compiled, since the event writer stores the properties as strings and a numeric
+ * comparison on a string is false on the broker.
+ * Prefix and suffix conditions are only compiled for brokers supporting STARTSWITH and ENDSWITH, which came with
+ * RocketMQ 5.
+ */
+public class SqlFilterExpressionBuilder {
+
+    static final Set<String> PROPERTY_ATTRIBUTES = ImmutableSet.of("source", "type", "subject");
+
+    /**
+     * Builds the SQL92 expression of an event pattern for any broker supporting SQL92
+     *
+     * @param eventPattern the json event pattern string
+     * @return the expression, or null if every event may match
+     * @throws InvalidEventPatternException if the pattern is invalid
+     */
+    public static String build(String eventPattern) {
+        return build(eventPattern, false);
+    }
+
+    /**
+     * Builds the SQL92 expression of an event pattern
+     *
+     * @param eventPattern the json event pattern string
+     * @param stringFunctions whether the broker supports STARTSWITH and ENDSWITH
+     * @return the expression, or null if every event may match
+     * @throws InvalidEventPatternException if the pattern is invalid
+     */
+    public static String build(String eventPattern, boolean stringFunctions) {
+        if (JsonUtil.isEmptyJsonObject(eventPattern)) {
+            return null;
+        }
+        return build(PatternEvaluatorBuilder.build(eventPattern), stringFunctions);
+    }
+
+    /**
+     * Builds the SQL92 expression of the spec attribute entries of an evaluator
+     *
+     * @param patternEvaluator the evaluator
+     * @param stringFunctions whether the broker supports STARTSWITH and ENDSWITH
+     * @return the expression, or null if every event may match
+     */
+    public static String build(PatternEvaluator patternEvaluator, boolean stringFunctions) {
+        List<String> entryExpressions = new ArrayList<>();
+        for (PatternEntry patternEntry : patternEvaluator.getSpecAttrPatternList()) {
+            if (!PROPERTY_ATTRIBUTES.contains(patternEntry.getPatternName())) {
+                continue;
+            }
+            String entryExpression = patternEntry.toSqlExpression(stringFunctions);
+            if (entryExpression != null) {
+                entryExpressions.add("(" + entryExpression + ")");
+            }
+        }
+        return entryExpressions.isEmpty() ? null : String.join(" AND ", entryExpressions);
+    }
+
+    /**
+     * @return the conditions joined by OR, or null if any of them can't be translated
+     */
+    static String or(List<PatternCondition> conditions, String attributeName, boolean stringFunctions) {
+        List<String> expressions = new ArrayList<>(conditions.size());
+        for (PatternCondition condition : conditions) {
+            String expression = condition instanceof AbstractPatternCondition ?
+                ((AbstractPatternCondition) condition).toSqlExpression(attributeName, stringFunctions) : null;
+            if (expression == null) {
+                return null;
+            }
+            expressions.add(expression);
+        }
+        if (expressions.isEmpty()) {
+            return null;
+        }
+        return expressions.size() == 1 ? expressions.get(0) : "(" + String.join(" OR ", expressions) + ")";
+    }
+
+    static String quote(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
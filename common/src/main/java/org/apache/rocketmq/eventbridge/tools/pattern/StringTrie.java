@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.tools.pattern;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A character trie of prefixes, or of suffixes when reversed, which tells whether a string starts (or ends) with any
+ * of its keys in one walk over the string.
+ */
+class StringTrie {
+    private final boolean reversed;
+
+    private final Node root = new Node();
+
+    private int size;
+
+    StringTrie(boolean reversed) {
+        this.reversed = reversed;
+    }
+
+    void add(String key) {
+        Node node = root;
+        for (int index = 0; index < key.length(); index++) {
+            char character = key.charAt(reversed ? key.length() - 1 - index : index);
+            if (node.children == null) {
+                node.children = new HashMap<>(4);
+            }
+            node = node.children.computeIfAbsent(character, c -> new Node());
+        }
+        if (!node.terminal) {
+            node.terminal = true;
+            size++;
+        }
+    }
+
+    /**
+     * Tests whether the value starts with any key, or ends with any key when reversed
+     *
+     * @param value the string to test
+     * @return true if any key matches
+     */
+    boolean matchesAny(String value) {
+        Node node = root;
+        for (int index = 0; !node.terminal; index++) {
+            if (index == value.length() || node.children == null) {
+                return false;
+            }
+            node = node.children.get(value.charAt(reversed ? value.length() - 1 - index : index));
+            if (node == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static class Node {
+        private Map<Character, Node> children;
+
+        private boolean terminal;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.tools.pattern;
+
+import com.google.common.collect.Sets;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import org.apache.rocketmq.eventbridge.config.AppConfig;
+import org.apache.rocketmq.eventbridge.config.GlobalConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DataPatternMatcherTest {
+
+    private static final String PATTERN = "{\n" + "    \"source\": [\"acs.ecs\"],\n" + "    \"data\": {\n"
+        + "        \"state\": [ { \"anything-but\": \"initializing\" } ],\n"
+        + "        \"count\": [ { \"numeric\": [ \">\", 0, \"<=\", 5 ] } ],\n"
+        + "        \"detail\": {\n" + "            \"risk\": [8, null],\n"
+        + "            \"owner\": [ { \"exists\": false } ]\n" + "        },\n"
+        + "        \"tags\": [ { \"prefix\": \"prod-\" } ]\n" + "    }\n" + "}";
+
+    private static final String[] DATA = {
+        "{\"state\": \"running\", \"count\": 3, \"detail\": {\"risk\": 8}, \"tags\": [\"dev-a\", \"prod-b\"]}",
+        "{\"payload\": {\"huge\": [1, 2, {\"x\": \"y\"}]}, \"state\": \"running\", \"count\": 5, "
+            + "\"detail\": {\"risk\": null, \"other\": {}}, \"tags\": \"prod-c\"}",
+        "{\"state\": \"initializing\", \"count\": 3, \"detail\": {\"risk\": 8}, \"tags\": \"prod-a\"}",
+        "{\"state\": \"running\", \"count\": 3, \"detail\": {\"risk\": 8, \"owner\": \"me\"}, \"tags\": \"prod-a\"}",
+        "{\"state\": \"running\", \"count\": 3, \"detail\": [{\"risk\": 8}], \"tags\": \"prod-a\"}",
+        "{\"state\": \"running\", \"count\": \"3\", \"detail\": {\"risk\": 8}, \"tags\": \"prod-a\"}",
+        "{\"count\": 1, \"detail\": {\"risk\": 8}, \"tags\": \"prod-a\"}",
+        "{\"state\": {\"nested\": 1}, \"count\": 1, \"detail\": {\"risk\": 8}, \"tags\": \"prod-a\"}",
+        "[{\"state\": \"running\"}]",
+        "\"text\""
+    };
+
+    @Before
+    public void before() {
+        GlobalConfig globalConfig = new GlobalConfig();
+        globalConfig.setEventExtensionKeys(Sets.newHashSet("aliyunregionid"));
+        AppConfig.refreshGlobalConfig(globalConfig);
+    }
+
+    @Test
+    public void matchAsJsonPathDoes() {
+        PatternEvaluator evaluator = PatternEvaluatorBuilder.build(PATTERN);
+        assertThat(evaluator.isDataPatternCompiled()).isTrue();
+        PatternEvaluator jsonPathEvaluator = jsonPathEvaluatorOf(evaluator);
+
+        for (String data : DATA) {
+            assertThat(evaluator.evaluateData(data)).as(data).isEqualTo(jsonPathEvaluator.evaluateData(data));
+        }
+        assertThat(evaluator.evaluateData(DATA[0])).isTrue();
+        assertThat(evaluator.evaluateData(DATA[1])).isTrue();
+        assertThat(evaluator.evaluateData(DATA[2])).isFalse();
+    }
+
+    @Test
+    public void matchLastOccurrenceOfDuplicateKey() {
+        PatternEvaluator evaluator = PatternEvaluatorBuilder.build(PATTERN);
+        PatternEvaluator jsonPathEvaluator = jsonPathEvaluatorOf(evaluator);
+        String[] duplicateData = {
+            "{\"state\": \"initializing\", \"count\": 3, \"detail\": {\"risk\": 8}, \"tags\": \"prod-a\", \"state\": \"running\"}",
+            "{\"state\": \"running\", \"count\": 3, \"detail\": {\"risk\": 8}, \"tags\": \"prod-a\", \"state\": \"initializing\"}",
+            "{\"state\": \"running\", \"count\": 3, \"detail\": {\"risk\": 1}, \"tags\": \"prod-a\", \"detail\": {\"risk\": 8}}",
+            "{\"state\": \"running\", \"count\": 3, \"detail\": {\"risk\": 8}, \"tags\": \"prod-a\", \"detail\": {\"risk\": 1}}",
+            "{\"state\": \"running\", \"count\": 3, \"detail\": {\"risk\": 8}, \"tags\": \"prod-a\", \"detail\": 5}"
+        };
+        for (String data : duplicateData) {
+            assertThat(evaluator.evaluateData(data)).as(data).isEqualTo(jsonPathEvaluator.evaluateData(data));
+        }
+        assertThat(evaluator.evaluateData(duplicateData[0])).isTrue();
+        assertThat(evaluator.evaluateData(duplicateData[1])).isFalse();
+        assertThat(evaluator.evaluateData(duplicateData[2])).isTrue();
+        assertThat(evaluator.evaluateData(duplicateData[3])).isFalse();
+        assertThat(evaluator.evaluateData(duplicateData[4])).isFalse();
+    }
+
+    @Test
+    public void matchEventWithoutSerializingData() {
+        PatternEvaluator evaluator = PatternEvaluatorBuilder.build(PATTERN);
+        for (String data : DATA) {
+            JsonObject event = new JsonObject();
+            event.addProperty("source", "acs.ecs");
+            event.add("data", JsonParser.parseString(data));
+            assertThat(evaluator.testEventPattern(event)).as(data).isEqualTo(evaluator.evaluateData(data));
+        }
+    }
+
+    @Test
+    public void decideAtEndOfObject() {
+        PatternEvaluator evaluator = PatternEvaluatorBuilder.build("{\"data\": {\"state\": [\"running\"]}}");
+        // a later key may still replace the tested value, so the broken tail is read before any decision
+        assertThatThrownBy(() -> evaluator.evaluateData("{\"state\": \"stopped\", \"tail\": [1, 2,"))
+            .isInstanceOf(JsonSyntaxException.class);
+        assertThatThrownBy(() -> evaluator.evaluateData("{\"state\": \"running\", \"tail\": [1, 2,"))
+            .isInstanceOf(JsonSyntaxException.class);
+    }
+
+    @Test
+    public void keepJsonPathForNonPropertyPaths() {
+        PatternEvaluator evaluator = PatternEvaluatorBuilder.build("{\"data\": {\"items[0]\": [\"a\"]}}");
+        assertThat(evaluator.isDataPatternCompiled()).isFalse();
+        assertThat(evaluator.evaluateData("{\"items\": [\"a\", \"b\"]}")).isTrue();
+
+        evaluator = PatternEvaluatorBuilder.build("{\"data\": {\"a.b\": [1], \"a\": {\"c\": [2]}}}");
+        assertThat(evaluator.isDataPatternCompiled()).isTrue();
+        String data = "{\"a\": {\"b\": 1, \"c\": 2}}";
+        assertThat(evaluator.evaluateData(data)).isEqualTo(jsonPathEvaluatorOf(evaluator).evaluateData(data)).isTrue();
+    }
+
+    private PatternEvaluator jsonPathEvaluatorOf(PatternEvaluator evaluator) {
+        PatternEvaluator jsonPathEvaluator = new PatternEvaluator();
+        for (PatternEntry patternEntry : evaluator.getDataPatternList()) {
+            jsonPathEvaluator.addDataPatternEntry(patternEntry);
+        }
+        return jsonPathEvaluator;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.tools.pattern;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import java.net.InetAddress;
+import org.apache.commons.net.util.SubnetUtils;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FoldedConditionsTest {
+
+    private static final String[] VALUES = {
+        "\"acct-1\"", "\"acct-5\"", "\"acct-3000\"", "\"prod-api\"", "\"api-prod\"", "\"x.log\"", "\"x.log.gz\"",
+        "\"a\"", "\"b\"", "3000", "3000.0", "true", "\"true\"", "null", "[\"x\", \"acct-2\"]", "[\"x\", null]",
+        "[\"acct-2\", {\"a\": 1}]", "[]", "{\"acct-1\": 1}", "\"\"", "\"pro\"", "\".log\""
+    };
+
+    @Test
+    public void foldEqualsPrefixesAndSuffixes() {
+        StringBuilder pattern = new StringBuilder("{\"account\": [null, true, 3000");
+        for (int index = 0; index < 100; index++) {
+            pattern.append(", \"acct-").append(index).append('"');
+        }
+        pattern.append(", {\"prefix\": \"prod-\"}, {\"prefix\": \"prod\"}, {\"suffix\": \".log\"}")
+            .append(", {\"numeric\": [\">\", 5000]}, {\"exists\": false}]}");
+        assertFoldedAsLinear(pattern.toString());
+    }
+
+    @Test
+    public void foldAnythingButSets() {
+        assertFoldedAsLinear("{\"account\": [{\"anything-but\": [\"a\", \"b\", 3000, null]}, \"a\"]}");
+        assertFoldedAsLinear("{\"account\": [{\"anything-but\": [\"a\", \"b\", \"c\", \"d\"]},"
+            + " {\"anything-but\": [\"a\", \"x\", \"y\", \"z\"]}]}");
+        assertFoldedAsLinear("{\"account\": [{\"anything-but\": {\"prefix\": \"acct-\"}}, \"a\", \"b\", \"c\", \"d\"]}");
+    }
+
+    @Test
+    public void matchNumericIntervalsAsOperators() {
+        double[] data = {0, 5, -5, 1.0E9, -1.0E9, 0.1, 120, 1.0E-8};
+        for (NumericOperators operator : NumericOperators.values()) {
+            for (double dst : data) {
+                DoubleIntervalSet intervalSet = operator.toIntervalSet(dst);
+                double[] values = {dst, dst + 1.0E-7, dst - 1.0E-7, dst + 2.0E-7, dst - 2.0E-7, -0.0, 0.0,
+                    Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NaN, dst * 2, dst + 1};
+                for (double value : values) {
+                    for (double src : new double[] {value, Math.nextUp(value), Math.nextDown(value)}) {
+                        assertThat(intervalSet.contains(src)).as(src + " " + operator + " " + dst)
+                            .isEqualTo(operator.match(src, dst));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void foldNumericRanges() {
+        PatternEntry folded = PatternEvaluatorBuilder.build("{\"data\": {\"count\": [{\"numeric\": [\">\", 0, \"<=\", 5]},"
+            + " {\"numeric\": [\">=\", 3, \"<\", 10]}, {\"numeric\": [\"=\", 10]}, {\"numeric\": [\">\", 100]},"
+            + " {\"numeric\": [\"!=\", 50, \">\", 40]}]}}").getDataPatternList().get(0);
+        assertThat(folded.isConditionsFolded()).isTrue();
+        for (double value = -2; value < 120; value += 0.25) {
+            boolean expected = value > 0 && value <= 10 || value > 40 && value != 50;
+            assertThat(folded.match(new JsonPrimitive(value))).as("count " + value).isEqualTo(expected);
+        }
+        assertThat(folded.match(new JsonPrimitive("7"))).isFalse();
+        assertThat(folded.match(JsonParser.parseString("[\"a\", 7]"))).isTrue();
+    }
+
+    @Test
+    public void foldCidrBlocks() {
+        String[] cidrExps = {"10.0.0.0/24", "10.0.0.0/16", "192.168.1.0/30", "172.16.0.1/31", "0.0.0.0/0",
+            "192.168.7.7", "::1", "2001:db8::ff00:42:8329", "::ffff:10.9.9.9"};
+        String[] ips = {"10.0.0.1", "10.0.0.0", "10.0.0.255", "10.0.255.255", "10.1.0.1", "010.000.000.001",
+            "192.168.1.1", "192.168.1.2", "192.168.1.3", "172.16.0.0", "172.16.0.1", "192.168.7.7", "0.0.0.0",
+            "255.255.255.255", "::1", "0:0:0:0:0:0:0:1", "2001:db8:0:0:0:ff00:42:8329", "10.9.9.9",
+            "::ffff:192.168.7.7", "10.0.0.256", "10.0.0", "10.0.0.1.1", ""};
+        for (int from = 0; from < cidrExps.length; from++) {
+            StringBuilder pattern = new StringBuilder("{\"data\": {\"ip\": [\"x\"");
+            for (int index = 0; index < cidrExps.length - from; index++) {
+                pattern.append(", {\"cidr\": \"").append(cidrExps[(from + index) % cidrExps.length]).append("\"}");
+            }
+            PatternEntry folded = PatternEvaluatorBuilder.build(pattern.append("]}}").toString())
+                .getDataPatternList().get(0);
+            for (String ip : ips) {
+                boolean expected = false;
+                for (int index = 0; index < cidrExps.length - from; index++) {
+                    expected |= matchCidrAsBefore(cidrExps[(from + index) % cidrExps.length], ip);
+                }
+                assertThat(folded.match(new JsonPrimitive(ip))).as(pattern + " on " + ip).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void keepShortListsLinear() {
+        PatternEntry patternEntry = PatternEvaluatorBuilder.build("{\"source\": [\"a\", \"b\"]}")
+            .getSpecAttrPatternList().get(0);
+        assertThat(patternEntry.isConditionsFolded()).isFalse();
+    }
+
+    @Test
+    public void matchStringTrie() {
+        StringTrie prefixes = new StringTrie(false);
+        prefixes.add("ab");
+        prefixes.add("abcd");
+        assertThat(prefixes.matchesAny("abc")).isTrue();
+        assertThat(prefixes.matchesAny("a")).isFalse();
+        assertThat(prefixes.matchesAny("xab")).isFalse();
+
+        StringTrie suffixes = new StringTrie(true);
+        suffixes.add(".gz");
+        assertThat(suffixes.matchesAny("x.tar.gz")).isTrue();
+        assertThat(suffixes.matchesAny("x.gz.tar")).isFalse();
+        assertThat(suffixes.matchesAny("gz")).isFalse();
+    }
+
+    /**
+     * The cidr matching before the subnets and addresses were parsed once
+     */
+    private boolean matchCidrAsBefore(String cidrExp, String ip) {
+        try {
+            if (cidrExp.contains("/")) {
+                return new SubnetUtils(cidrExp).getInfo().isInRange(ip);
+            }
+            return InetAddress.getByName(ip).equals(InetAddress.getByName(cidrExp));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void assertFoldedAsLinear(String pattern) {
+        PatternEntry folded = PatternEvaluatorBuilder.build("{\"data\": " + pattern + "}").getDataPatternList().get(0);
+        assertThat(folded.isConditionsFolded()).isTrue();
+        PatternEntry linear = new PatternEntry(folded.getPatternName(), folded.getPatternPath());
+        folded.getConditionList().forEach(linear::addRuleCondition);
+
+        assertThat(folded.match(null)).isEqualTo(linear.match(null));
+        for (String value : VALUES) {
+            JsonElement jsonElement = JsonParser.parseString(value);
+            assertThat(folded.match(jsonElement)).as(pattern + " on " + value).isEqualTo(linear.match(jsonElement));
+        }
+    }
+}
@@ -18,6 +18,9 @@
 package org.apache.rocketmq.eventbridge.tools.pattern;
 
 import com.google.common.collect.Sets;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -450,4 +453,28 @@ public class PatternEvaluatorTest {
 
         assertThat(evaluator.evaluateData(jsonData)).isTrue();
     }
+
+    @Test
+    public void testEventPatternBySlots() {
+        String pattern = "{\"source\": [\"acs.ecs\"], \"subject\": [{\"exists\": false}],"
+            + " \"aliyunregionid\": [{\"prefix\": \"cn-\"}], \"data\": {\"a\": [1]}}";
+        PatternEvaluator evaluator = PatternEvaluatorBuilder.build(pattern);
+        assertThat(evaluator.getAttributeSlotCount()).isEqualTo(3);
+        assertThat(evaluator.getAttributeSlot("source")).isEqualTo(0);
+        assertThat(evaluator.getAttributeSlot("type")).isEqualTo(-1);
+
+        assertThat(evaluator.testEventPattern(JsonParser.parseString("{\"source\": \"acs.ecs\", \"subject\": \"s\","
+            + " \"aliyunregionid\": \"cn-hangzhou\", \"data\": {\"a\": 1}}").getAsJsonObject())).isFalse();
+        // the attributes of the previous event must not leak into this one
+        assertThat(evaluator.testEventPattern(JsonParser.parseString("{\"source\": \"acs.ecs\","
+            + " \"aliyunregionid\": \"cn-hangzhou\", \"data\": {\"a\": 1}}").getAsJsonObject())).isTrue();
+        assertThat(evaluator.testEventPattern(JsonParser.parseString("{\"source\": \"acs.ecs\","
+            + " \"data\": {\"a\": 1}}").getAsJsonObject())).isFalse();
+
+        JsonElement[] attributes = new JsonElement[evaluator.getAttributeSlotCount()];
+        attributes[evaluator.getAttributeSlot("source")] = new JsonPrimitive("acs.ecs");
+        attributes[evaluator.getAttributeSlot("aliyunregionid")] = new JsonPrimitive("cn-beijing");
+        assertThat(evaluator.evaluate(() -> "{\"a\": 1}", attributes)).isTrue();
+        assertThat(evaluator.evaluate(() -> "{\"a\": 2}", attributes)).isFalse();
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.tools.pattern;
+
+import com.google.common.collect.Sets;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.apache.rocketmq.eventbridge.config.AppConfig;
+import org.apache.rocketmq.eventbridge.config.GlobalConfig;
+import org.apache.rocketmq.eventbridge.tools.JsonUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PatternIndexTest {
+
+    private static final Map<String, String> PATTERNS = new LinkedHashMap<>();
+
+    static {
+        PATTERNS.put("empty", "{}");
+        PATTERNS.put("source", "{\"source\": [\"acs.ecs\", \"acs.oss\"]}");
+        PATTERNS.put("prefix", "{\"source\": [{\"prefix\": \"acs.\"}], \"type\": [\"ecs:Started\"]}");
+        PATTERNS.put("anything-but", "{\"type\": [{\"anything-but\": [\"ecs:Started\", \"ecs:Stopped\"]}]}");
+        PATTERNS.put("absent-subject", "{\"subject\": [{\"exists\": false}]}");
+        PATTERNS.put("region", "{\"aliyunregionid\": [\"cn-hangzhou\"]}");
+        PATTERNS.put("data", "{\"source\": [\"acs.ecs\"], \"data\": {\"state\": [\"running\", 1], "
+            + "\"detail\": {\"risk\": [{\"numeric\": [\">\", 5]}], \"owner\": [{\"exists\": false}]}}}");
+        PATTERNS.put("data-null", "{\"data\": {\"state\": [null]}}");
+        PATTERNS.put("json-path", "{\"data\": {\"items[0]\": [\"a\"]}}");
+    }
+
+    private static final String[][] EVENTS = {
+        {"{\"source\": \"acs.ecs\", \"type\": \"ecs:Started\"}", "{\"state\": \"running\", \"detail\": {\"risk\": 8}}"},
+        {"{\"source\": \"acs.ecs\", \"type\": \"ecs:Deleted\", \"subject\": \"i-1\"}", "{\"state\": [\"stopped\", 1]}"},
+        {"{\"source\": \"acs.oss\", \"type\": \"ecs:Started\"}", "{\"state\": null, \"items\": [\"a\"]}"},
+        {"{\"source\": \"custom\", \"type\": \"ecs:Stopped\"}", "{\"state\": [\"running\", {\"x\": 1}]}"},
+        {"{\"source\": \"acs.ecs\"}", "{\"state\": \"running\", \"detail\": {\"risk\": 8, \"owner\": \"me\"}}"},
+        {"{\"source\": \"acs.ecs\", \"type\": \"ecs:Started\"}", "\"text\""},
+        {"{}", "{\"detail\": [1]}"}
+    };
+
+    @Before
+    public void before() {
+        GlobalConfig globalConfig = new GlobalConfig();
+        globalConfig.setEventExtensionKeys(Sets.newHashSet("aliyunregionid"));
+        AppConfig.refreshGlobalConfig(globalConfig);
+    }
+
+    @Test
+    public void matchAsEvaluatorsDo() {
+        PatternIndex index = new PatternIndex();
+        Map<String, PatternEvaluator> evaluators = new HashMap<>();
+        PATTERNS.forEach((ruleName, pattern) -> {
+            evaluators.put(ruleName, PatternEvaluatorBuilder.build(pattern));
+            index.put(ruleName, evaluators.get(ruleName));
+        });
+        assertThat(index.getSpecAttrNames()).containsOnly("source", "type", "subject");
+        assertThat(index.hasDataPattern()).isTrue();
+
+        for (String[] event : EVENTS) {
+            for (Map<String, JsonElement> extensionsAttrs : extensionsAttrsOf("cn-hangzhou", "cn-beijing", null)) {
+                assertMatch(index, evaluators, specAttrsOf(event[0]), extensionsAttrs, JsonParser.parseString(event[1]));
+            }
+        }
+
+        Set<String> matched = index.match(specAttrsOf(EVENTS[0][0]), new HashMap<>(), JsonParser.parseString(EVENTS[0][1]));
+        assertThat(matched).containsOnly("empty", "source", "prefix", "absent-subject", "data");
+    }
+
+    @Test
+    public void putAndRemoveIncrementally() {
+        PatternIndex index = new PatternIndex();
+        index.put("rule-1", PatternEvaluatorBuilder.build("{\"source\": [\"acs.ecs\"]}"));
+        index.put("rule-2", PatternEvaluatorBuilder.build("{\"source\": [\"acs.ecs\"], \"data\": {\"a\": [1]}}"));
+        Map<String, JsonElement> specAttrs = specAttrsOf("{\"source\": \"acs.ecs\"}");
+        JsonElement data = JsonParser.parseString("{\"a\": 1}");
+        assertThat(index.match(specAttrs, null, data)).containsOnly("rule-1", "rule-2");
+
+        index.put("rule-1", PatternEvaluatorBuilder.build("{\"source\": [\"acs.oss\"]}"));
+        assertThat(index.match(specAttrs, null, data)).containsOnly("rule-2");
+
+        assertThat(index.remove("rule-2")).isTrue();
+        assertThat(index.remove("rule-2")).isFalse();
+        assertThat(index.hasDataPattern()).isFalse();
+        assertThat(index.match(specAttrs, null, data)).isEmpty();
+        assertThat(index.match(specAttrsOf("{\"source\": \"acs.oss\"}"), null, data)).containsOnly("rule-1");
+
+        assertThat(index.remove("rule-1")).isTrue();
+        assertThat(index.isEmpty()).isTrue();
+        assertThat(index.getSpecAttrNames()).isEmpty();
+    }
+
+    private void assertMatch(PatternIndex index, Map<String, PatternEvaluator> evaluators,
+        Map<String, JsonElement> specAttrs, Map<String, JsonElement> extensionsAttrs, JsonElement data) {
+        Set<String> matched = index.match(specAttrs, extensionsAttrs, data);
+        evaluators.forEach((ruleName, evaluator) -> {
+            boolean expected = evaluator.evaluateData(data.toString()) && evaluator.evaluateSpecAttr(specAttrs)
+                && evaluator.evaluateExtensionAttr(extensionsAttrs);
+            assertThat(matched.contains(ruleName)).as(ruleName + " on " + specAttrs + extensionsAttrs + data)
+                .isEqualTo(expected);
+        });
+    }
+
+    private Map<String, JsonElement> specAttrsOf(String specAttrs) {
+        Map<String, JsonElement> attrs = new HashMap<>();
+        JsonParser.parseString(specAttrs).getAsJsonObject().entrySet()
+            .forEach(attr -> attrs.put(attr.getKey(), attr.getValue()));
+        return attrs;
+    }
+
+    private Map<String, JsonElement>[] extensionsAttrsOf(String... regions) {
+        Map<String, JsonElement>[] extensionsAttrs = new Map[regions.length];
+        for (int index = 0; index < regions.length; index++) {
+            Map<String, String> attrs = new HashMap<>();
+            if (regions[index] != null) {
+                attrs.put("aliyunregionid", regions[index]);
+            }
+            extensionsAttrs[index] = JsonUtil.convertToJsonElement(attrs);
+        }
+        return extensionsAttrs;
+    }
+}
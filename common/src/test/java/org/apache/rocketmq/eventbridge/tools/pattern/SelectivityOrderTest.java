@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.tools.pattern;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SelectivityOrderTest {
+
+    @Test
+    public void orderCheapRejectingChecksFirst() {
+        SelectivityOrder order = new SelectivityOrder(3);
+        assertThat(order.order()).containsExactly(0, 1, 2);
+        for (int evaluation = 0; evaluation < SelectivityOrder.REORDER_INTERVAL; evaluation++) {
+            // 0 is expensive and never rejects, 1 is cheap and rejects half, 2 is expensive and rejects most
+            order.startEvaluation();
+            order.record(0, true, 1000);
+            order.record(1, evaluation % 2 == 0, 10);
+            order.record(2, evaluation % 10 == 0, 1000);
+        }
+        assertThat(order.order()).containsExactly(1, 2, 0);
+    }
+
+    @Test
+    public void evaluateInAdaptedOrder() {
+        PatternEvaluator evaluator = PatternEvaluatorBuilder.build("{\"source\": [\"s1\", \"s2\"],"
+            + " \"type\": [{\"prefix\": \"t1\"}], \"data\": {\"a\": {\"b\": [{\"numeric\": [\">\", 5]}]}}}");
+        Map<String, JsonElement> extensionsAttrs = new HashMap<>();
+        for (int evaluation = 0; evaluation < 4 * SelectivityOrder.REORDER_INTERVAL; evaluation++) {
+            String source = evaluation % 3 == 0 ? "s1" : "s3";
+            String type = evaluation % 5 == 0 ? "t2" : "t1.created";
+            int value = evaluation % 7;
+            Map<String, JsonElement> specAttrs = new HashMap<>();
+            specAttrs.put("source", new JsonPrimitive(source));
+            specAttrs.put("type", new JsonPrimitive(type));
+            boolean expected = source.equals("s1") && type.startsWith("t1") && value > 5;
+            assertThat(evaluator.evaluate(() -> "{\"a\": {\"b\": " + value + "}}", specAttrs, extensionsAttrs))
+                .isEqualTo(expected);
+        }
+        assertThat(evaluator.getGroupOrder().order()).containsExactlyInAnyOrder(0, 1, 2);
+    }
+}
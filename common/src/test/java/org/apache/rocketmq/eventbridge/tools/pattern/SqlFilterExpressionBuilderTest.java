@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.tools.pattern;
+
+import com.google.common.collect.Sets;
+import org.apache.rocketmq.eventbridge.config.AppConfig;
+import org.apache.rocketmq.eventbridge.config.GlobalConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SqlFilterExpressionBuilderTest {
+
+    @Before
+    public void before() {
+        GlobalConfig globalConfig = new GlobalConfig();
+        globalConfig.setEventExtensionKeys(Sets.newHashSet("aliyunregionid"));
+        AppConfig.refreshGlobalConfig(globalConfig);
+    }
+
+    @Test
+    public void buildWithMatchAllPattern() {
+        assertThat(SqlFilterExpressionBuilder.build("{}")).isNull();
+        assertThat(SqlFilterExpressionBuilder.build("{\"data\":{\"name\":[\"test\"]}}")).isNull();
+        assertThat(SqlFilterExpressionBuilder.build("{\"id\":[\"1\"],\"aliyunregionid\":[\"cn-hangzhou\"]}")).isNull();
+    }
+
+    @Test
+    public void buildWithSpecAttributes() {
+        String pattern = "{\"source\":[\"acs.oss\",{\"prefix\":\"acs.ec\"}],\"type\":[{\"anything-but\":[\"a\",\"b'c\"]}],"
+            + "\"subject\":[{\"suffix\":\".jpg\"}],\"data\":{\"name\":[\"test\"]}}";
+        String expression = SqlFilterExpressionBuilder.build(pattern, true);
+        assertThat(expression).contains("((source = 'acs.oss' OR source STARTSWITH 'acs.ec'))")
+            .contains("(NOT ((type = 'a' OR type = 'b''c')))")
+            .contains("(subject ENDSWITH '.jpg')");
+        assertThat(expression.split(" AND ")).hasSize(3);
+
+        // brokers before RocketMQ 5 reject STARTSWITH and ENDSWITH
+        assertThat(SqlFilterExpressionBuilder.build(pattern)).isEqualTo("(NOT ((type = 'a' OR type = 'b''c')))");
+    }
+
+    @Test
+    public void buildSkipsUntranslatableEntries() {
+        assertThat(SqlFilterExpressionBuilder.build("{\"source\":[\"acs.oss\",{\"cidr\":\"10.0.0.0/24\"}],"
+            + "\"type\":[{\"exists\":true}]}")).isEqualTo("(type IS NOT NULL)");
+        assertThat(SqlFilterExpressionBuilder.build("{\"source\":[{\"anything-but\":[null]}]}")).isNull();
+        // the properties are strings, a numeric comparison on them would drop every event on the broker
+        assertThat(SqlFilterExpressionBuilder.build("{\"subject\":[{\"numeric\":[\">\",0,\"<=\",5]}]}", true))
+            .isNull();
+        assertThat(SqlFilterExpressionBuilder.build("{\"subject\":[{\"numeric\":[\"!=\",1]}]}")).isNull();
+    }
+}
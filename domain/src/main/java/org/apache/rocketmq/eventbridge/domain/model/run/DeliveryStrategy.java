@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.rocketmq.eventbridge.domain.model.run;
+
+import lombok.Builder;
+import lombok.Data;
+import org.apache.rocketmq.eventbridge.enums.DeliveryOrderingEnum;
+
+/**
+ * How the runtime delivers the events of a runner to its target, unset values fall back to the runtime defaults.
+ */
+@Builder
+@Data
+public class DeliveryStrategy {
+
+    /**
+     * max batches of the runner in flight to the target at the same time
+     */
+    private Integer maxInflight;
+
+    /**
+     * weight of the runner in the fair share of the sink threads
+     */
+    private Integer weight;
+
+    /**
+     * ordering guarantee, null means no ordering
+     */
+    private DeliveryOrderingEnum ordering;
+
+    /**
+     * extension key of the event used as ordering key when ordering is KEY, such as subject
+     */
+    private String orderingKey;
+
+    /**
+     * number of sequential lanes the events are hashed onto when ordered, defaults to maxInflight
+     */
+    private Integer orderingLanes;
+
+    /**
+     * max time in milliseconds the trigger waits to accumulate a batch before putting it to the target,
+     * null or non-positive means no linger
+     */
+    private Long lingerMs;
+
+    /**
+     * a lingering batch is put once it holds this many records, defaults to the adaptive batch size
+     */
+    private Integer lingerMaxRecords;
+
+    /**
+     * a lingering batch is put once its records hold this many bytes, null means unbounded
+     */
+    private Long lingerMaxBytes;
+}
@@ -29,4 +29,6 @@ public class RunOptions {
     private RetryStrategy retryStrategy;
 
     private DeadLetterQueue deadLetterQueue;
+
+    private DeliveryStrategy deliveryStrategy;
 }
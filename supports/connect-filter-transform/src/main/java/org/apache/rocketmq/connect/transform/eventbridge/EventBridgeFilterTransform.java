@@ -16,9 +16,9 @@
  */
 package org.apache.rocketmq.connect.transform.eventbridge;
 
-import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
 import io.cloudevents.SpecVersion;
 import io.openmessaging.KeyValue;
 import io.openmessaging.connector.api.component.ComponentContext;
@@ -26,41 +26,47 @@ import io.openmessaging.connector.api.data.ConnectRecord;
 import org.apache.rocketmq.eventbridge.tools.pattern.PatternEvaluator;
 import org.apache.rocketmq.eventbridge.tools.pattern.PatternEvaluatorBuilder;
 
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 public class EventBridgeFilterTransform implements io.openmessaging.connector.api.component.Transform {
 
+    private static final Gson GSON = new Gson();
+
     private PatternEvaluator evaluator;
 
+    /**
+     * the slots of the spec attributes the pattern refers to, the extensions attributes are never provided
+     */
+    private int[] specAttrSlots;
+
+    /**
+     * the attributes of the record being filtered, every spec attribute slot is overwritten for each record unless
+     * the value is the same as the one of the previous record, whose primitive is kept
+     */
+    private ThreadLocal<JsonElement[]> attributes;
+
     @Override
     public ConnectRecord doTransform(ConnectRecord record) {
-        if (!evaluator.evaluateData(new Gson().toJson(record.getData()))) {
-            return null;
-        } else if (!evaluator.evaluateSpecAttr(this.buildSpecAttr(record))) {
-            return null;
-        } else if (!evaluator.evaluateExtensionAttr(this.buildExtensionAttr(record))) {
+        // the data is only serialized if the attributes don't reject the record first
+        if (!evaluator.evaluate(() -> GSON.toJson(record.getData()), this.fillSpecAttr(record))) {
             return null;
-        } else {
-            return record;
         }
+        return record;
     }
 
-    private Map<String, JsonElement> buildSpecAttr(ConnectRecord record) {
-        Map<String, JsonElement> extensionsAttrs = Maps.newHashMap();
-        SpecVersion.V1.getAllAttributes()
-            .forEach(key -> {
-                if (record.getExtensions()
-                    .containsKey(key)) {
-                    extensionsAttrs.put(key, new Gson().toJsonTree(record.getExtensions()
-                        .getString(key)));
-                }
-            });
-        return extensionsAttrs;
-    }
-
-    private Map<String, JsonElement> buildExtensionAttr(ConnectRecord record) {
-        Map<String, JsonElement> extensionsAttrs = Maps.newHashMap();
-        return extensionsAttrs;
+    private JsonElement[] fillSpecAttr(ConnectRecord record) {
+        JsonElement[] recordAttributes = attributes.get();
+        for (int slot : specAttrSlots) {
+            String value = record.getExtension(evaluator.getAttributeName(slot));
+            JsonElement previous = recordAttributes[slot];
+            if (value == null) {
+                recordAttributes[slot] = null;
+            } else if (previous == null || !value.equals(previous.getAsString())) {
+                recordAttributes[slot] = new JsonPrimitive(value);
+            }
+        }
+        return recordAttributes;
     }
 
     @Override
@@ -75,7 +81,19 @@ public class EventBridgeFilterTransform implements io.openmessaging.connector.ap
 
     @Override
     public void init(KeyValue config) {
-        this.evaluator = PatternEvaluatorBuilder.build(config.getString("filterPattern"));
+        PatternEvaluator patternEvaluator = PatternEvaluatorBuilder.build(config.getString("filterPattern"));
+        List<Integer> slots = new ArrayList<>();
+        for (int slot = 0; slot < patternEvaluator.getAttributeSlotCount(); slot++) {
+            if (SpecVersion.V1.getAllAttributes()
+                .contains(patternEvaluator.getAttributeName(slot))) {
+                slots.add(slot);
+            }
+        }
+        this.specAttrSlots = slots.stream()
+            .mapToInt(Integer::intValue)
+            .toArray();
+        this.attributes = ThreadLocal.withInitial(() -> new JsonElement[patternEvaluator.getAttributeSlotCount()]);
+        this.evaluator = patternEvaluator;
     }
 
     @Override
@@ -20,6 +20,8 @@ package org.apache.rocketmq.connect.transform.eventbridge;
 import io.openmessaging.KeyValue;
 import io.openmessaging.connector.api.data.ConnectRecord;
 import io.openmessaging.internal.DefaultKeyValue;
+import java.util.Collections;
+import java.util.HashMap;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -39,4 +41,41 @@ public class EventBridgeFilterTransformTest {
         record.addExtension("source", "acs.mns");
         Assert.assertNotNull(transform.doTransform(record));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void doTransformWithRepeatedAttributes() {
+        EventBridgeFilterTransform transform = new EventBridgeFilterTransform();
+        KeyValue keyValue = new DefaultKeyValue();
+        keyValue.put("filterPattern", "{\"source\":[\"acs.mns\"]}");
+        transform.init(keyValue);
+
+        ConnectRecord record = new ConnectRecord(null, null, System.currentTimeMillis());
+        record.addExtension("source", "acs.mns");
+        Assert.assertNotNull(transform.doTransform(record));
+        ConnectRecord sameSourceRecord = new ConnectRecord(null, null, System.currentTimeMillis());
+        sameSourceRecord.addExtension("source", "acs.mns");
+        Assert.assertNotNull(transform.doTransform(sameSourceRecord));
+
+        Assert.assertNull(transform.doTransform(new ConnectRecord(null, null, System.currentTimeMillis())));
+        Assert.assertNotNull(transform.doTransform(sameSourceRecord));
+    }
+
+    @Test
+    public void doTransformWithData() {
+        EventBridgeFilterTransform transform = new EventBridgeFilterTransform();
+        KeyValue keyValue = new DefaultKeyValue();
+        keyValue.put("filterPattern", "{\"type\":[{\"prefix\":\"ecs:\"}],\"data\":{\"state\":[\"running\"]}}");
+        transform.init(keyValue);
+
+        ConnectRecord record = new ConnectRecord(null, null, System.currentTimeMillis());
+        record.setData("{\"state\":\"running\"}");
+        record.addExtension("source", "acs.ecs");
+        Assert.assertNull(transform.doTransform(record));
+
+        record.addExtension("type", "ecs:Started");
+        Assert.assertNull(transform.doTransform(record));
+
+        record.setData(new HashMap<>(Collections.singletonMap("state", "running")));
+        Assert.assertNotNull(transform.doTransform(record));
+    }
+}